@@ -1,21 +1,45 @@
 package me.study.querydsl;
 
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.querydsl.sql.Configuration;
+import com.querydsl.sql.H2Templates;
+import com.querydsl.sql.SQLQueryFactory;
+import com.querydsl.sql.spring.SpringConnectionProvider;
+import com.querydsl.sql.spring.SpringExceptionTranslator;
+import me.study.querydsl.change.ChangeFeed;
+import me.study.querydsl.change.ChangeTrackingQueryFactory;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
 import org.springframework.context.annotation.Bean;
 
 import javax.persistence.EntityManager;
+import javax.sql.DataSource;
 
 @SpringBootApplication
 public class QuerydslToyApplication {
 
+    private static final int STARTUP_STEP_CAPACITY = 4096;
+
     public static void main(String[] args) {
-        SpringApplication.run(QuerydslToyApplication.class, args);
+        SpringApplication application = new SpringApplication(QuerydslToyApplication.class);
+        // 기동 단계별 소요 시간을 모아 /actuator/startup 과 StartupTimelineReporter 로 보여준다
+        application.setApplicationStartup(new BufferingApplicationStartup(STARTUP_STEP_CAPACITY));
+        application.run(args);
+    }
+
+    // bulk update / delete 가 바꾼 테이블을 커밋 후 ChangeFeed 로 알린다
+    @Bean
+    JPAQueryFactory jpaQueryFactory(EntityManager em, ChangeFeed changeFeed) {
+        return new ChangeTrackingQueryFactory(em, changeFeed);
     }
 
     @Bean
-    JPAQueryFactory jpaQueryFactory(EntityManager em) {
-        return new JPAQueryFactory(em);
+    SQLQueryFactory sqlQueryFactory(DataSource dataSource) {
+        // literal 대신 bind parameter 를 쓰므로 조건 조합마다 SQL 문자열이 같고 prepared statement 를 재사용할 수 있다
+        Configuration configuration = new Configuration(H2Templates.builder().build());
+        configuration.setUseLiterals(false);
+        configuration.setExceptionTranslator(new SpringExceptionTranslator());
+        return new SQLQueryFactory(configuration, new SpringConnectionProvider(dataSource));
     }
 }
@@ -0,0 +1,11 @@
+package me.study.querydsl.change;
+
+@FunctionalInterface
+public interface BulkWriteListener {
+
+    /**
+     * bulk update / delete / insert 를 실행하기 직전에 쓰는 쪽 스레드(트랜잭션 안)에서 불린다.
+     * 커밋 후 오는 TableInvalidated 보다 먼저 알아야 하는 구독자가 쓴다. 빨리 돌아와야 한다.
+     */
+    void beforeBulkWrite(Class<?> entityType);
+}
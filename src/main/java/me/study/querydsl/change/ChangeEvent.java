@@ -0,0 +1,7 @@
+package me.study.querydsl.change;
+
+/**
+ * ChangeFeed 로 전달되는 커밋된 변경. MemberChanged / TeamChanged / TableInvalidated 중 하나다.
+ */
+public interface ChangeEvent {
+}
@@ -0,0 +1,229 @@
+package me.study.querydsl.change;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 커밋된 Member / Team 변경을 프로세스 안의 구독자(캐시, read model)에게 전달한다.
+ *
+ * 발행은 sequence 를 하나 받아 고정 크기 ring buffer 의 칸에 넣는 것이라 잠금도, 구독자를 기다리는 일도 없다.
+ * 구독자는 잠깐 spin 한 뒤 sleeping 을 세우고 잠들며, 발행 쪽은 sleeping 인 구독자만 unpark 한다.
+ * 그래서 한가할 때 구독자 스레드는 idleWait 마다 한 번만 깨어난다.
+ * 구독자마다 자기 스레드에서 sequence 순서대로 읽으므로 모든 구독자가 같은 순서로 받는다.
+ * 한 트랜잭션의 변경은 Hibernate 가 실행한 순서대로, 트랜잭션 사이에는 커밋 후 발행된 순서대로 온다.
+ * 구독자가 capacity 만큼 뒤처져 받지 못한 이벤트가 덮어쓰이면 그 대신 TableInvalidated.all 을 받는다.
+ */
+@Slf4j
+public class ChangeFeed {
+
+    private static final int SPINS = 100;
+    private static final long AWAIT_PARK_NANOS = 100_000;
+
+    private final AtomicReferenceArray<Entry> slots;
+    private final int mask;
+    private final long idleWaitNanos;
+
+    // 다음에 발행할 sequence
+    private final AtomicLong next = new AtomicLong();
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final List<BulkWriteListener> bulkWriteListeners = new CopyOnWriteArrayList<>();
+
+    public ChangeFeed(int capacity, Duration idleWait) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity 는 2의 거듭제곱이어야 합니다. capacity=" + capacity);
+        }
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+        this.idleWaitNanos = idleWait.toNanos();
+    }
+
+    /**
+     * 커밋이 끝난 변경을 발행한다. 구독자가 없거나 느려도 바로 돌아온다.
+     */
+    public void publish(ChangeEvent event) {
+        long sequence = next.getAndIncrement();
+        Entry entry = new Entry(sequence, event);
+        int index = (int) (sequence & mask);
+        while (true) {
+            Entry old = slots.get(index);
+            // 늦게 도착한 발행자가 한 바퀴 뒤의 이벤트를 덮어쓰지 않게 한다. 이 이벤트를 기다리던 구독자는 overrun 으로 처리한다
+            if (old != null && old.sequence > sequence) {
+                return;
+            }
+            if (slots.compareAndSet(index, old, entry)) {
+                wakeSleeping();
+                return;
+            }
+        }
+    }
+
+    // 칸에 넣은 뒤 sleeping 을 읽으므로, 잠들기 전에 다시 확인한 구독자가 이 이벤트를 놓치면 여기서 깨운다
+    private void wakeSleeping() {
+        for (Subscription subscription : subscriptions) {
+            if (subscription.sleeping) {
+                LockSupport.unpark(subscription.thread);
+            }
+        }
+    }
+
+    /**
+     * 트랜잭션 안이면 커밋된 뒤에, 밖이면 바로 발행한다. 롤백되면 발행하지 않는다.
+     */
+    public void publishAfterCommit(ChangeEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publish(event);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                publish(event);
+            }
+        });
+    }
+
+    /**
+     * 지금까지 발행한 이벤트 수. 구독자의 delivered() 가 이 값 이상이면 그 전 이벤트를 모두 처리했다.
+     */
+    public long published() {
+        return next.get();
+    }
+
+    /**
+     * 지금 이후에 발행되는 이벤트를 name 스레드에서 listener 로 전달한다.
+     */
+    public Subscription subscribe(String name, ChangeListener listener) {
+        Subscription subscription = new Subscription(name, listener, next.get());
+        subscriptions.add(subscription);
+        subscription.thread.start();
+        return subscription;
+    }
+
+    /**
+     * ChangeTrackingQueryFactory 의 bulk 연산 직전에 쓰는 쪽 스레드에서 불릴 listener 를 등록한다.
+     */
+    public void addBulkWriteListener(BulkWriteListener listener) {
+        bulkWriteListeners.add(listener);
+    }
+
+    public void removeBulkWriteListener(BulkWriteListener listener) {
+        bulkWriteListeners.remove(listener);
+    }
+
+    void beforeBulkWrite(Class<?> entityType) {
+        bulkWriteListeners.forEach(listener -> listener.beforeBulkWrite(entityType));
+    }
+
+    /**
+     * 지금까지 발행된 이벤트를 모든 구독자가 처리할 때까지 기다린다. 시간 안에 끝나지 않으면 false.
+     */
+    public boolean awaitDelivered(Duration timeout) {
+        long target = next.get();
+        long deadline = System.nanoTime() + timeout.toNanos();
+        for (Subscription subscription : subscriptions) {
+            while (subscription.running && subscription.cursor < target) {
+                if (System.nanoTime() - deadline >= 0) {
+                    return false;
+                }
+                LockSupport.parkNanos(this, AWAIT_PARK_NANOS);
+            }
+        }
+        return true;
+    }
+
+    public void shutdown() {
+        subscriptions.forEach(Subscription::close);
+    }
+
+    public class Subscription implements AutoCloseable {
+
+        private final String name;
+        private final ChangeListener listener;
+        private final Thread thread;
+
+        // 다음에 읽을 sequence. 구독자 스레드만 쓴다
+        private volatile long cursor;
+        private volatile boolean running = true;
+        // 새 이벤트를 기다리며 park 하려는 중이면 true. 발행 쪽이 보고 깨운다
+        private volatile boolean sleeping;
+
+        private Subscription(String name, ChangeListener listener, long cursor) {
+            this.name = name;
+            this.listener = listener;
+            this.cursor = cursor;
+            this.thread = new Thread(this::run, "change-feed-" + name);
+            this.thread.setDaemon(true);
+        }
+
+        /**
+         * 처리를 마친 이벤트 수 (다음에 읽을 sequence).
+         */
+        public long delivered() {
+            return cursor;
+        }
+
+        @Override
+        public void close() {
+            running = false;
+            subscriptions.remove(this);
+            LockSupport.unpark(thread);
+        }
+
+        private void run() {
+            int idle = 0;
+            while (running) {
+                long sequence = cursor;
+                Entry entry = slots.get((int) (sequence & mask));
+                if (entry != null && entry.sequence == sequence) {
+                    deliver(entry.event);
+                    cursor = sequence + 1;
+                    idle = 0;
+                } else if (entry != null && entry.sequence > sequence) {
+                    // 지금까지 발행된 이벤트는 모두 커밋된 뒤이므로 건너뛰고 다시 읽게 하면 빠진 변경이 없다
+                    long resumeAt = next.get();
+                    log.warn("change feed 구독자가 뒤처져 이벤트를 잃었다. 전체를 다시 읽게 한다. subscriber={}, missed={}",
+                            name, resumeAt - sequence);
+                    deliver(TableInvalidated.all("change-feed-overrun"));
+                    cursor = resumeAt;
+                    idle = 0;
+                } else if (idle < SPINS) {
+                    idle++;
+                    Thread.onSpinWait();
+                } else {
+                    // sleeping 을 세운 뒤 칸을 다시 확인한다. 그 사이 발행된 이벤트는 여기서 보거나 발행 쪽이 깨운다
+                    sleeping = true;
+                    if (slots.get((int) (sequence & mask)) == entry && running) {
+                        LockSupport.parkNanos(this, idleWaitNanos);
+                    }
+                    sleeping = false;
+                }
+            }
+        }
+
+        private void deliver(ChangeEvent event) {
+            try {
+                listener.onChange(event);
+            } catch (RuntimeException e) {
+                log.warn("change feed 구독자가 이벤트 처리에 실패했다. subscriber={}, event={}", name, event, e);
+            }
+        }
+    }
+
+    private static class Entry {
+        private final long sequence;
+        private final ChangeEvent event;
+
+        Entry(long sequence, ChangeEvent event) {
+            this.sequence = sequence;
+            this.event = event;
+        }
+    }
+}
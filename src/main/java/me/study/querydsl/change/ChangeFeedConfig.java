@@ -0,0 +1,29 @@
+package me.study.querydsl.change;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.persistence.EntityManagerFactory;
+
+@Configuration(proxyBeanMethods = false)
+@EnableConfigurationProperties(ChangeFeedProperties.class)
+public class ChangeFeedConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    ChangeFeed changeFeed(ChangeFeedProperties properties, EntityManagerFactory emf) {
+        ChangeFeed feed = new ChangeFeed(properties.getCapacity(), properties.getIdleWait());
+
+        EventListenerRegistry registry = emf.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        ChangeFeedListener listener = new ChangeFeedListener(feed);
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, listener);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, listener);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, listener);
+        return feed;
+    }
+}
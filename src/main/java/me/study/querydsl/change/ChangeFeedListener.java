@@ -0,0 +1,81 @@
+package me.study.querydsl.change;
+
+import me.study.querydsl.entity.Member;
+import me.study.querydsl.entity.Team;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.proxy.HibernateProxy;
+
+/**
+ * 커밋된 Member / Team 엔티티 변경을 값만 복사해 ChangeFeed 에 넣는다. 롤백된 변경은 Hibernate 가 넘기지 않는다.
+ * 커밋이 끝난 뒤 커밋한 스레드에서 불리므로 구독자의 처리는 여기서 기다리지 않는다.
+ */
+class ChangeFeedListener implements PostCommitInsertEventListener, PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+
+    private final ChangeFeed feed;
+
+    ChangeFeedListener(ChangeFeed feed) {
+        this.feed = feed;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        publish(ChangeType.INSERT, event.getEntity());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        publish(ChangeType.UPDATE, event.getEntity());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        publish(ChangeType.DELETE, event.getEntity());
+    }
+
+    private void publish(ChangeType type, Object entity) {
+        if (entity instanceof Member) {
+            Member member = (Member) entity;
+            feed.publish(new MemberChanged(type, member.getId(), member.getUsername(), member.getAge(), teamId(member),
+                    member.getVersion()));
+        } else if (entity instanceof Team) {
+            Team team = (Team) entity;
+            feed.publish(new TeamChanged(type, team.getId(), team.getName(), team.getVersion()));
+        }
+    }
+
+    // 프록시를 초기화하면 커밋이 끝난 세션에서 쿼리가 나가므로 id 만 꺼낸다
+    private static Long teamId(Member member) {
+        Team team = member.getTeam();
+        if (team == null) {
+            return null;
+        }
+        if (team instanceof HibernateProxy) {
+            return (Long) ((HibernateProxy) team).getHibernateLazyInitializer().getIdentifier();
+        }
+        return team.getId();
+    }
+
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        Class<?> entityClass = persister.getMappedClass();
+        return entityClass == Member.class || entityClass == Team.class;
+    }
+}
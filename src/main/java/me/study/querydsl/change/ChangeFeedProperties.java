@@ -0,0 +1,19 @@
+package me.study.querydsl.change;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "member.change-feed")
+public class ChangeFeedProperties {
+
+    // ring buffer 칸 수 (2의 거듭제곱). 구독자가 이만큼 뒤처지면 TableInvalidated 로 대신 받는다
+    private int capacity = 8_192;
+    // 새 이벤트가 없을 때 구독자 스레드가 한 번에 잠드는 시간. 발행하면 바로 깨우므로 전달 지연과는 상관없고,
+    // 줄이면 한가할 때 구독자마다 초당 1 / idleWait 번 깨어난다
+    private Duration idleWait = Duration.ofMillis(100);
+}
@@ -0,0 +1,10 @@
+package me.study.querydsl.change;
+
+@FunctionalInterface
+public interface ChangeListener {
+
+    /**
+     * 구독자 스레드에서 sequence 순서대로 한 건씩 불린다. 예외를 던지면 로그만 남기고 다음 이벤트로 넘어간다.
+     */
+    void onChange(ChangeEvent event);
+}
@@ -0,0 +1,66 @@
+package me.study.querydsl.change;
+
+import com.querydsl.core.types.EntityPath;
+import com.querydsl.jpa.impl.JPADeleteClause;
+import com.querydsl.jpa.impl.JPAInsertClause;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.querydsl.jpa.impl.JPAUpdateClause;
+
+import javax.persistence.EntityManager;
+
+/**
+ * update / delete / insert clause 의 execute() 가 바꾼 엔티티 테이블을 커밋 후 TableInvalidated 로 알린다.
+ * bulk 연산은 영속성 컨텍스트와 엔티티 이벤트를 거치지 않으므로 어떤 행이 바뀌었는지 알 수 없다.
+ * 실행 직전에는 ChangeFeed 의 BulkWriteListener 에 알린다.
+ */
+public class ChangeTrackingQueryFactory extends JPAQueryFactory {
+
+    private final EntityManager em;
+    private final ChangeFeed feed;
+
+    public ChangeTrackingQueryFactory(EntityManager em, ChangeFeed feed) {
+        super(em);
+        this.em = em;
+        this.feed = feed;
+    }
+
+    @Override
+    public JPAUpdateClause update(EntityPath<?> path) {
+        return new JPAUpdateClause(em, path) {
+            @Override
+            public long execute() {
+                feed.beforeBulkWrite(path.getType());
+                return invalidate(path, "update", super.execute());
+            }
+        };
+    }
+
+    @Override
+    public JPADeleteClause delete(EntityPath<?> path) {
+        return new JPADeleteClause(em, path) {
+            @Override
+            public long execute() {
+                feed.beforeBulkWrite(path.getType());
+                return invalidate(path, "delete", super.execute());
+            }
+        };
+    }
+
+    @Override
+    public JPAInsertClause insert(EntityPath<?> path) {
+        return new JPAInsertClause(em, path) {
+            @Override
+            public long execute() {
+                feed.beforeBulkWrite(path.getType());
+                return invalidate(path, "insert", super.execute());
+            }
+        };
+    }
+
+    private long invalidate(EntityPath<?> path, String operation, long count) {
+        if (count > 0) {
+            feed.publishAfterCommit(new TableInvalidated(path.getType(), operation + " " + path.getType().getSimpleName()));
+        }
+        return count;
+    }
+}
@@ -0,0 +1,5 @@
+package me.study.querydsl.change;
+
+public enum ChangeType {
+    INSERT, UPDATE, DELETE
+}
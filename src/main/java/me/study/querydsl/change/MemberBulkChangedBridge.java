@@ -0,0 +1,29 @@
+package me.study.querydsl.change;
+
+import me.study.querydsl.entity.Member;
+import me.study.querydsl.entity.Team;
+import me.study.querydsl.service.MemberBulkChangedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * JDBC 대량 쓰기(MemberBulkChangedEvent)를 ChangeFeed 의 TableInvalidated 로 옮긴다.
+ * 구독자는 feed 하나만 보면 되고, 다시 읽기는 쓴 쪽 스레드가 아니라 구독자 스레드에서 feed 순서대로 한다.
+ */
+@Component
+class MemberBulkChangedBridge {
+
+    private final ChangeFeed changeFeed;
+
+    MemberBulkChangedBridge(ChangeFeed changeFeed) {
+        this.changeFeed = changeFeed;
+    }
+
+    @EventListener
+    public void onBulkChanged(MemberBulkChangedEvent event) {
+        if (event.isTeamsCreated()) {
+            changeFeed.publishAfterCommit(new TableInvalidated(Team.class, event.getSource()));
+        }
+        changeFeed.publishAfterCommit(new TableInvalidated(Member.class, event.getSource()));
+    }
+}
@@ -0,0 +1,21 @@
+package me.study.querydsl.change;
+
+import lombok.Value;
+
+/**
+ * 커밋된 Member 한 건의 변경. 커밋 시점의 값을 복사해 두므로 세션이 닫힌 뒤에도 읽을 수 있다.
+ * 삭제면 삭제 직전의 값이다.
+ *
+ * 커밋이 끝난 뒤 각자의 스레드에서 발행하므로 같은 회원의 변경이 커밋 순서와 다르게 올 수 있다.
+ * 받는 쪽은 version 이 이미 반영한 것 이하면 버린다.
+ */
+@Value
+public class MemberChanged implements ChangeEvent {
+    ChangeType type;
+    Long memberId;
+    String username;
+    int age;
+    // 팀이 없으면 null
+    Long teamId;
+    long version;
+}
@@ -0,0 +1,21 @@
+package me.study.querydsl.change;
+
+import lombok.Value;
+
+/**
+ * 어떤 행이 바뀌었는지 모르는 변경 (bulk update / delete / insert-select).
+ * 받은 쪽은 해당 엔티티 테이블을 통째로 다시 읽는다. entityType 이 null 이면 모든 테이블이다.
+ */
+@Value
+public class TableInvalidated implements ChangeEvent {
+    Class<?> entityType;
+    String source;
+
+    public static TableInvalidated all(String source) {
+        return new TableInvalidated(null, source);
+    }
+
+    public boolean covers(Class<?> type) {
+        return entityType == null || entityType == type;
+    }
+}
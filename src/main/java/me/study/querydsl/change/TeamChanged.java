@@ -0,0 +1,15 @@
+package me.study.querydsl.change;
+
+import lombok.Value;
+
+/**
+ * 커밋된 Team 한 건의 변경. 회원 목록은 담지 않는다.
+ * MemberChanged 와 같이 version 으로 늦게 온 변경을 걸러야 한다.
+ */
+@Value
+public class TeamChanged implements ChangeEvent {
+    ChangeType type;
+    Long teamId;
+    String name;
+    long version;
+}
@@ -0,0 +1,27 @@
+package me.study.querydsl.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * ./gradlew appCdsArchive 의 학습 실행용. 기동(워밍업 포함)이 끝나면 바로 종료해
+ * JVM 이 -XX:ArchiveClassesAtExit 로 그때까지 로딩한 클래스를 아카이브에 쓰게 한다.
+ */
+@Slf4j
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+@ConditionalOnProperty(prefix = "member.startup", name = "training-run", havingValue = "true")
+public class AppCdsTrainingRun implements ApplicationListener<ApplicationReadyEvent> {
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        log.info("AppCDS 학습 실행이 끝나 종료합니다.");
+        System.exit(SpringApplication.exit(event.getApplicationContext()));
+    }
+}
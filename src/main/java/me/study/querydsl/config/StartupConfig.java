@@ -0,0 +1,20 @@
+package me.study.querydsl.config;
+
+import me.study.querydsl.controller.MemberController;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * startup 프로필은 빈을 지연 생성하지만 검색 요청 경로는 기동 시 만들어 첫 요청이 빈 생성 비용을 떠안지 않게 한다.
+ */
+@Profile("startup")
+@Configuration(proxyBeanMethods = false)
+public class StartupConfig {
+
+    @Bean
+    static LazyInitializationExcludeFilter eagerRequestPath() {
+        return LazyInitializationExcludeFilter.forBeanTypes(MemberController.class);
+    }
+}
@@ -0,0 +1,54 @@
+package me.study.querydsl.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.stream.Collectors;
+
+/**
+ * 기동이 끝나면 BufferingApplicationStartup 이 모은 단계 중 오래 걸린 것을 로그로 남긴다.
+ * 전체 타임라인은 /actuator/startup 으로 볼 수 있다.
+ */
+@Slf4j
+@Profile("startup")
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class StartupTimelineReporter implements ApplicationListener<ApplicationReadyEvent> {
+
+    private static final int TOP_STEPS = 10;
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        ApplicationStartup applicationStartup = event.getApplicationContext().getApplicationStartup();
+        if (!(applicationStartup instanceof BufferingApplicationStartup)) {
+            return;
+        }
+
+        StartupTimeline timeline = ((BufferingApplicationStartup) applicationStartup).getBufferedTimeline();
+        Duration total = Duration.between(timeline.getStartTime(), Instant.ofEpochMilli(event.getTimestamp()));
+        String slowest = timeline.getEvents().stream()
+                .sorted(Comparator.comparing(StartupTimeline.TimelineEvent::getDuration).reversed())
+                .limit(TOP_STEPS)
+                .map(e -> String.format("%n  %6dms %s %s", e.getDuration().toMillis(), e.getStartupStep().getName(), tags(e)))
+                .collect(Collectors.joining());
+
+        log.info("기동 완료. total={}ms, steps={}, 오래 걸린 단계:{}", total.toMillis(), timeline.getEvents().size(), slowest);
+    }
+
+    private String tags(StartupTimeline.TimelineEvent event) {
+        StringBuilder tags = new StringBuilder();
+        event.getStartupStep().getTags().forEach(tag -> tags.append(tag.getKey()).append('=').append(tag.getValue()).append(' '));
+        return tags.toString().trim();
+    }
+}
@@ -1,36 +1,114 @@
 package me.study.querydsl.controller;
 
 import lombok.RequiredArgsConstructor;
+import me.study.querydsl.deadline.RequestDeadline;
+import me.study.querydsl.dto.MemberField;
 import me.study.querydsl.dto.MemberSearchCondition;
 import me.study.querydsl.dto.MemberTeamDto;
 import me.study.querydsl.repository.MemberJpaRepository;
-import me.study.querydsl.repository.MemberRepository;
+import me.study.querydsl.repository.MemberReactiveRepository;
+import me.study.querydsl.service.MemberBatchService;
+import me.study.querydsl.service.MemberSearchService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+/**
+ * 페이징 없는 /v1 은 3초, 나머지 조회는 1초 안에 끝내도록 @RequestDeadline 을 건다 (member.deadline.enabled).
+ * 예산을 넘긴 statement 는 DB 에서 취소되고 504 로 응답한다. /v4 는 다른 스레드에서 읽으므로 걸지 않는다.
+ *
+ * includeArchived=true 는 /v1, /v2, /v3 의 DTO 검색에서만 받는다. fields 검색과 /v4 는 400 으로 거절한다.
+ */
 @RestController
 @RequiredArgsConstructor
 public class MemberController {
 
     private final MemberJpaRepository memberJpaRepository;
-    private final MemberRepository memberRepository;
+    private final MemberSearchService memberSearchService;
+    private final MemberReactiveRepository memberReactiveRepository;
+    private final MemberBatchService memberBatchService;
 
     @GetMapping("/v1/members")
+    @RequestDeadline(3_000)
     public List<MemberTeamDto> searchMemberV1(MemberSearchCondition condition) {
+        if (condition.isIncludeArchived()) {
+            return memberSearchService.search(condition);
+        }
         return memberJpaRepository.search(condition);
     }
 
+    // fields=username,age 처럼 필요한 필드만 조회해 그 필드만 내려준다
+    @GetMapping(value = "/v1/members", params = "fields")
+    @RequestDeadline(3_000)
+    public List<Map<String, Object>> searchMemberFieldsV1(MemberSearchCondition condition, @RequestParam String fields) {
+        rejectArchived(condition);
+        return memberSearchService.searchFields(condition, parseFields(fields));
+    }
+
     @GetMapping("/v2/members")
+    @RequestDeadline(1_000)
     public Page<MemberTeamDto> searchMemberV2(MemberSearchCondition condition, Pageable pageable) {
-        return memberRepository.searchPageSimple(condition, pageable);
+        return memberSearchService.searchPageSimple(condition, pageable);
+    }
+
+    @GetMapping(value = "/v2/members", params = "fields")
+    @RequestDeadline(1_000)
+    public Page<Map<String, Object>> searchMemberFieldsV2(MemberSearchCondition condition, @RequestParam String fields, Pageable pageable) {
+        rejectArchived(condition);
+        return memberSearchService.searchPageFields(condition, parseFields(fields), pageable);
     }
 
     @GetMapping("/v3/members")
+    @RequestDeadline(1_000)
     public Page<MemberTeamDto> searchMemberV3(MemberSearchCondition condition, Pageable pageable) {
-        return memberRepository.searchPageComplex(condition, pageable);
+        return memberSearchService.searchPageComplex(condition, pageable);
+    }
+
+    @GetMapping(value = "/v3/members", params = "fields")
+    @RequestDeadline(1_000)
+    public Page<Map<String, Object>> searchMemberFieldsV3(MemberSearchCondition condition, @RequestParam String fields, Pageable pageable) {
+        rejectArchived(condition);
+        return memberSearchService.searchPageFields(condition, parseFields(fields), pageable);
+    }
+
+    // 한 줄에 한 건씩(NDJSON) 내려보내며, 클라이언트가 받아간 만큼만 DB 에서 읽는다
+    @GetMapping(value = "/v4/members", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<MemberTeamDto> searchMemberV4(MemberSearchCondition condition) {
+        rejectArchived(condition);
+        return memberReactiveRepository.search(condition);
+    }
+
+    // ids=1,2,3 순서대로 돌려주며 없는 id 는 빠진다
+    @GetMapping("/members/batch")
+    @RequestDeadline(1_000)
+    public List<MemberTeamDto> findMembers(@RequestParam List<Long> ids) {
+        if (ids.size() > MemberBatchService.MAX_IDS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "ids 는 " + MemberBatchService.MAX_IDS + "개까지 요청할 수 있습니다.");
+        }
+        return memberBatchService.findAllByIds(ids);
+    }
+
+    private void rejectArchived(MemberSearchCondition condition) {
+        if (condition.isIncludeArchived()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "이 검색은 includeArchived 를 지원하지 않습니다.");
+        }
+    }
+
+    private Set<MemberField> parseFields(String fields) {
+        try {
+            return MemberField.parse(fields);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
     }
 }
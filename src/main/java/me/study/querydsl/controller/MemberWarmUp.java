@@ -0,0 +1,134 @@
+package me.study.querydsl.controller;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import me.study.querydsl.dto.MemberSearchCondition;
+import me.study.querydsl.repository.MemberJpaRepository;
+import me.study.querydsl.repository.MemberSort;
+import me.study.querydsl.repository.TeamDictionary;
+import me.study.querydsl.service.MemberSearchService;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 배포 직후 첫 요청들이 Hibernate HQL plan 캐시 채우기, Querydsl 직렬화, JIT 컴파일 비용을 떠안지 않도록
+ * /v1 ~ /v3 검색이 만들 수 있는 조건 조합 x 페이지 x 정렬을 미리 한 번씩 실행한다.
+ *
+ * TeamDictionary 등 ApplicationReadyEvent 에서 읽는 캐시가 채워진 뒤에 실제 요청과 같은 경로로 실행한다.
+ * readiness 는 ApplicationReadyEvent 를 모두 처리한 뒤 ACCEPTING_TRAFFIC 이 되므로 워밍업이 끝날 때까지 REFUSING_TRAFFIC 이다.
+ * AppCdsTrainingRun(LOWEST_PRECEDENCE) 보다는 먼저 실행한다. 워밍업이 실패해도 기동은 계속한다.
+ */
+@Slf4j
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+@ConditionalOnProperty(prefix = "member.warmup", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(MemberWarmUpProperties.class)
+public class MemberWarmUp implements ApplicationListener<ApplicationReadyEvent> {
+
+    private static final List<Sort> SORTS = List.of(
+            Sort.unsorted(),
+            Sort.by(Sort.Direction.ASC, MemberSort.AGE),
+            Sort.by(Sort.Direction.DESC, MemberSort.AGE),
+            Sort.by(Sort.Direction.ASC, MemberSort.USERNAME),
+            Sort.by(Sort.Direction.DESC, MemberSort.USERNAME),
+            Sort.by(Sort.Direction.ASC, MemberSort.MEMBER_ID),
+            Sort.by(Sort.Direction.DESC, MemberSort.MEMBER_ID));
+
+    private final MemberJpaRepository memberJpaRepository;
+    private final MemberSearchService memberSearchService;
+    private final MemberWarmUpProperties properties;
+    // member.team-dictionary.enabled=false 면 null
+    private final TeamDictionary teamDictionary;
+    private final Timer timer;
+
+    @Getter
+    private long executedQueries;
+
+    public MemberWarmUp(MemberJpaRepository memberJpaRepository, MemberSearchService memberSearchService,
+                        MemberWarmUpProperties properties, ObjectProvider<TeamDictionary> teamDictionary,
+                        MeterRegistry meterRegistry) {
+        this.memberJpaRepository = memberJpaRepository;
+        this.memberSearchService = memberSearchService;
+        this.properties = properties;
+        this.teamDictionary = teamDictionary.getIfAvailable();
+        this.timer = Timer.builder("member.warmup")
+                .description("기동 시 검색 워밍업에 걸린 시간")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        long start = System.nanoTime();
+        try {
+            List<MemberSearchCondition> conditions = conditions(teamName());
+            for (int i = 0; i < properties.getIterations(); i++) {
+                for (MemberSearchCondition condition : conditions) {
+                    warmUp(condition);
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("검색 워밍업이 중간에 실패했습니다. executedQueries={}", executedQueries, e);
+        } finally {
+            Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+            timer.record(elapsed);
+            log.info("검색 워밍업 완료. iterations={}, executedQueries={}, elapsed={}ms",
+                    properties.getIterations(), executedQueries, elapsed.toMillis());
+        }
+    }
+
+    private void warmUp(MemberSearchCondition condition) {
+        // 페이지 없는 검색은 결과 전체를 읽으므로 빈 결과를 만들 수 없는 모양(조건 없음, teamName 만)은 건너뛴다
+        if (condition.getUsername() != null || condition.getAgeGoe() != null || condition.getAgeLoe() != null) {
+            memberJpaRepository.search(condition);
+            memberSearchService.search(condition);
+            executedQueries += 2;
+        }
+
+        for (Sort sort : SORTS) {
+            // 첫 페이지(offset 없음)와 그 다음 페이지는 SQL 이 다르다
+            for (int page = 0; page < 2; page++) {
+                PageRequest pageRequest = PageRequest.of(page, 20, sort);
+                memberSearchService.searchPageSimple(condition, pageRequest);
+                memberSearchService.searchPageComplex(condition, pageRequest);
+                executedQueries += 2;
+            }
+        }
+    }
+
+    // 사전에 있는 이름이어야 실제 요청처럼 team 조인 없는 경로를 탄다. 팀이 없으면 조인 경로만 데운다
+    private String teamName() {
+        TeamDictionary.Teams teams = teamDictionary != null ? teamDictionary.current() : null;
+        return teams != null ? teams.anyName().orElse("warmup") : "warmup";
+    }
+
+    /**
+     * username, teamName, ageGoe, ageLoe 각각 있음/없음의 16가지 조합.
+     * username 과 나이 조건은 맞는 회원이 없는 값이라 결과를 읽지 않고 SQL 모양만 데운다.
+     */
+    private List<MemberSearchCondition> conditions(String teamName) {
+        List<MemberSearchCondition> conditions = new ArrayList<>();
+        for (int mask = 0; mask < 16; mask++) {
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setUsername((mask & 1) != 0 ? "warmup" : null);
+            condition.setTeamName((mask & 2) != 0 ? teamName : null);
+            condition.setAgeGoe((mask & 4) != 0 ? Integer.MAX_VALUE : null);
+            condition.setAgeLoe((mask & 8) != 0 ? Integer.MIN_VALUE : null);
+            conditions.add(condition);
+        }
+        return conditions;
+    }
+}
@@ -0,0 +1,15 @@
+package me.study.querydsl.controller;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "member.warmup")
+public class MemberWarmUpProperties {
+
+    private boolean enabled = false;
+    // 모든 검색 모양을 몇 바퀴 돌릴지 (첫 바퀴는 plan 캐시, 나머지는 JIT)
+    private int iterations = 3;
+}
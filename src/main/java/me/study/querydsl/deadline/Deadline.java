@@ -0,0 +1,71 @@
+package me.study.querydsl.deadline;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 현재 스레드에서 처리 중인 요청의 마감 시각. DeadlineDataSource 가 statement 마다 남은 시간을 query timeout 으로 건다.
+ * 다른 스레드(샤드 fan-out, /v4 reactive 등)로 넘어간 작업에는 전파되지 않는다.
+ */
+public final class Deadline {
+
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    private final long expiresAtNanos;
+
+    private Deadline(long expiresAtNanos) {
+        this.expiresAtNanos = expiresAtNanos;
+    }
+
+    public static Deadline after(Duration timeout) {
+        return new Deadline(System.nanoTime() + timeout.toNanos());
+    }
+
+    /**
+     * 없으면 null
+     */
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * timeout 안에 work 를 실행한다. 이미 더 이른 마감이 있으면 그것을 따른다.
+     */
+    public static <T> T within(Duration timeout, Supplier<T> work) {
+        Deadline previous = CURRENT.get();
+        CURRENT.set(earlier(previous, after(timeout)));
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    static void set(Deadline deadline) {
+        CURRENT.set(deadline);
+    }
+
+    static void clear() {
+        CURRENT.remove();
+    }
+
+    static Deadline earlier(Deadline a, Deadline b) {
+        if (a == null) {
+            return b;
+        }
+        return a.expiresAtNanos - b.expiresAtNanos <= 0 ? a : b;
+    }
+
+    public long remainingMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(expiresAtNanos - System.nanoTime());
+    }
+
+    public boolean isExpired() {
+        return expiresAtNanos - System.nanoTime() <= 0;
+    }
+}
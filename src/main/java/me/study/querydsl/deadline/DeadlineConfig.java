@@ -0,0 +1,34 @@
+package me.study.querydsl.deadline;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "member.deadline", name = "enabled", havingValue = "true")
+public class DeadlineConfig implements WebMvcConfigurer {
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new DeadlineInterceptor());
+    }
+
+    // JPA / querydsl-sql / JdbcTemplate 모두 같은 DataSource 빈을 쓰므로 여기서 한 번 감싼다
+    @Bean
+    static BeanPostProcessor deadlineDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource && !(bean instanceof DeadlineDataSource) && "dataSource".equals(beanName)) {
+                    return new DeadlineDataSource((DataSource) bean);
+                }
+                return bean;
+            }
+        };
+    }
+}
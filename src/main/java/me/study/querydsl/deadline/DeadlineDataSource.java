@@ -0,0 +1,103 @@
+package me.study.querydsl.deadline;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Deadline 이 있는 스레드에서 꺼낸 커넥션은 만드는 statement 마다 남은 시간을 Statement.setQueryTimeout 으로 건다.
+ * 시간이 지나면 DB 가 statement 를 취소하고 SQLTimeoutException 을 던진다. 이미 지났으면 DB 로 보내지 않는다.
+ *
+ * JDBC query timeout 은 초 단위이므로 남은 시간을 올림한다 (최소 1초).
+ * H2 는 query timeout 을 세션에 거므로, 커넥션을 풀에 돌려주기 전에 0 으로 되돌린다.
+ * Deadline 이 없을 때 꺼낸 커넥션은 감싸지 않는다.
+ */
+public class DeadlineDataSource extends DelegatingDataSource {
+
+    public DeadlineDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(super.getConnection(username, password));
+    }
+
+    private Connection wrap(Connection connection) {
+        if (Deadline.current() == null) {
+            return connection;
+        }
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                new DeadlineConnectionHandler(connection));
+    }
+
+    private static class DeadlineConnectionHandler implements InvocationHandler {
+
+        private final Connection target;
+        private boolean timeoutApplied;
+
+        DeadlineConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "close":
+                    resetTimeout();
+                    break;
+                default:
+                    break;
+            }
+
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+            if (result instanceof Statement) {
+                applyTimeout((Statement) result);
+            }
+            return result;
+        }
+
+        private void applyTimeout(Statement statement) throws SQLException {
+            Deadline deadline = Deadline.current();
+            if (deadline == null) {
+                return;
+            }
+            long remaining = deadline.remainingMillis();
+            if (remaining <= 0) {
+                statement.close();
+                throw new DeadlineExceededException(-remaining);
+            }
+            statement.setQueryTimeout((int) Math.max(1, (remaining + 999) / 1000));
+            timeoutApplied = true;
+        }
+
+        private void resetTimeout() throws SQLException {
+            if (timeoutApplied && !target.isClosed()) {
+                try (Statement statement = target.createStatement()) {
+                    statement.setQueryTimeout(0);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package me.study.querydsl.deadline;
+
+import java.sql.SQLTimeoutException;
+
+/**
+ * 마감이 이미 지나 statement 를 DB 로 보내지 않았을 때 던진다.
+ * SQLTimeoutException 이므로 Hibernate / Spring 은 DB 가 취소한 경우와 같은 QueryTimeoutException 으로 바꾼다.
+ */
+public class DeadlineExceededException extends SQLTimeoutException {
+
+    public DeadlineExceededException(long overdueMillis) {
+        super("request deadline 을 " + overdueMillis + "ms 넘겨 statement 를 실행하지 않았습니다.");
+    }
+}
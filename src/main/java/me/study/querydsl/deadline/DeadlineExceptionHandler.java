@@ -0,0 +1,61 @@
+package me.study.querydsl.deadline;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.method.HandlerMethod;
+
+import java.util.Map;
+
+/**
+ * query timeout 을 HTTP 상태로 바꾼다.
+ * 요청의 Deadline 이 지났으면 504, Deadline 이 남았는데 DB 가 timeout 을 냈으면(다른 원인의 timeout) 503 + Retry-After 다.
+ * 취소된 요청 수는 member.deadline.exceeded{endpoint, cause} 로 센다.
+ * cause 는 DB 가 실행 중에 취소했으면 canceled, 마감이 지나 보내지도 않았으면 rejected 다.
+ */
+@Slf4j
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RestControllerAdvice
+@ConditionalOnProperty(prefix = "member.deadline", name = "enabled", havingValue = "true")
+public class DeadlineExceptionHandler {
+
+    private final MeterRegistry meterRegistry;
+
+    public DeadlineExceptionHandler(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @ExceptionHandler(QueryTimeoutException.class)
+    public ResponseEntity<Map<String, Object>> queryTimeout(QueryTimeoutException e, HandlerMethod handler) {
+        Deadline deadline = Deadline.current();
+        boolean expired = deadline != null && deadline.isExpired();
+        String cause = e.getMostSpecificCause() instanceof DeadlineExceededException ? "rejected" : "canceled";
+        String endpoint = handler.getBeanType().getSimpleName() + "." + handler.getMethod().getName();
+
+        Counter.builder("member.deadline.exceeded")
+                .tag("endpoint", endpoint)
+                .tag("cause", cause)
+                .tag("status", expired ? "504" : "503")
+                .description("query timeout 으로 끝난 요청 수")
+                .register(meterRegistry)
+                .increment();
+        log.info("query timeout. endpoint={}, cause={}, expired={}, message={}", endpoint, cause, expired, e.getMostSpecificCause().getMessage());
+
+        if (expired) {
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT)
+                    .body(Map.of("status", 504, "error", "request deadline exceeded"));
+        }
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(Map.of("status", 503, "error", "query timeout"));
+    }
+}
@@ -0,0 +1,45 @@
+package me.study.querydsl.deadline;
+
+import org.springframework.util.StringUtils;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.time.Duration;
+
+/**
+ * @RequestDeadline 이 붙은 핸들러를 실행하는 동안 Deadline 을 건다.
+ */
+class DeadlineInterceptor implements HandlerInterceptor {
+
+    static final String TIMEOUT_HEADER = "X-Request-Timeout";
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!(handler instanceof HandlerMethod)) {
+            return true;
+        }
+        RequestDeadline annotation = ((HandlerMethod) handler).getMethodAnnotation(RequestDeadline.class);
+        if (annotation == null) {
+            return true;
+        }
+
+        Deadline deadline = Deadline.after(Duration.ofMillis(annotation.value()));
+        String header = request.getHeader(TIMEOUT_HEADER);
+        if (StringUtils.hasText(header)) {
+            try {
+                deadline = Deadline.earlier(deadline, Deadline.after(Duration.ofMillis(Math.max(0, Long.parseLong(header.trim())))));
+            } catch (NumberFormatException e) {
+                // 잘못된 헤더는 무시하고 엔드포인트 예산을 쓴다
+            }
+        }
+        Deadline.set(deadline);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Deadline.clear();
+    }
+}
@@ -0,0 +1,22 @@
+package me.study.querydsl.deadline;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 핸들러 메서드의 처리 시간 예산. 요청 안에서 실행되는 모든 statement 에 남은 시간이 query timeout 으로 걸린다.
+ * 클라이언트가 X-Request-Timeout 헤더(ms)로 더 짧은 예산을 주면 그것을 따른다.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RequestDeadline {
+
+    /**
+     * 밀리초
+     */
+    long value();
+}
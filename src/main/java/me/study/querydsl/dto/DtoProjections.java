@@ -0,0 +1,407 @@
+package me.study.querydsl.dto;
+
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.ExpressionException;
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.FactoryExpressionBase;
+import com.querydsl.core.types.Operation;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.Visitor;
+
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Projections.bean / fields / constructor 를 대신하는 DTO 프로젝션. select 에 그대로 넣으면 된다.
+ *
+ * Projections 는 행마다 Method.invoke, Field.set, Constructor.newInstance 로 DTO 를 만든다.
+ * 여기서는 DTO 타입과 속성 조합마다 한 번만 생성과 값 넣기를 MethodHandle 하나로 묶어 두고 행마다 그 핸들만 부른다.
+ * 바인딩 규칙(경로 이름이나 as 별칭으로 찾고, 못 찾은 속성은 무시하고, null 값은 건너뛴다)은 Projections 와 같다.
+ */
+public final class DtoProjections {
+
+    private static final MethodHandle IS_NULL;
+
+    static {
+        try {
+            IS_NULL = MethodHandles.lookup().findStatic(Objects.class, "isNull", MethodType.methodType(boolean.class, Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static final ClassValue<DtoAccessors> ACCESSORS = new ClassValue<>() {
+        @Override
+        protected DtoAccessors computeValue(Class<?> type) {
+            return new DtoAccessors(type);
+        }
+    };
+
+    private DtoProjections() {
+    }
+
+    /**
+     * Projections.bean 처럼 setter 로 채운다.
+     */
+    public static <T> FactoryExpression<T> bean(Class<? extends T> type, Expression<?>... exprs) {
+        return new BeanProjection<>(type, false, exprs);
+    }
+
+    /**
+     * Projections.fields 처럼 setter 없이 필드에 바로 쓴다.
+     */
+    public static <T> FactoryExpression<T> fields(Class<? extends T> type, Expression<?>... exprs) {
+        return new BeanProjection<>(type, true, exprs);
+    }
+
+    /**
+     * Projections.constructor 처럼 인자 타입이 맞는 public 생성자로 만든다.
+     */
+    public static <T> FactoryExpression<T> constructor(Class<? extends T> type, Expression<?>... exprs) {
+        return new ConstructorProjection<>(type, exprs);
+    }
+
+    private static final class BeanProjection<T> extends FactoryExpressionBase<T> {
+
+        private final List<Expression<?>> args;
+        private final List<String> names;
+        private final boolean fieldAccess;
+        // (Object[])Object
+        private final MethodHandle factory;
+
+        BeanProjection(Class<? extends T> type, boolean fieldAccess, Expression<?>... exprs) {
+            super(type);
+            Map<String, Expression<?>> bindings = createBindings(exprs);
+            this.args = List.copyOf(bindings.values());
+            this.names = List.copyOf(bindings.keySet());
+            this.fieldAccess = fieldAccess;
+
+            DtoAccessors accessors = ACCESSORS.get(type);
+            for (Map.Entry<String, Expression<?>> binding : bindings.entrySet()) {
+                Property property = accessors.property(binding.getKey(), fieldAccess);
+                Class<?> valueType = binding.getValue().getType();
+                if (property != Property.MISSING && !isAssignable(property.type, valueType)) {
+                    throw new IllegalArgumentException(valueType.getName() + " is not compatible with " + property.type.getName());
+                }
+            }
+            this.factory = accessors.beanFactory(names, fieldAccess);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T newInstance(Object... a) {
+            try {
+                return (T) (Object) factory.invokeExact(a);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new ExpressionException(e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public List<Expression<?>> getArgs() {
+            return args;
+        }
+
+        @Override
+        public <R, C> R accept(Visitor<R, C> v, C context) {
+            return v.visit(this, context);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (!(obj instanceof BeanProjection)) {
+                return false;
+            }
+            BeanProjection<?> other = (BeanProjection<?>) obj;
+            return getType().equals(other.getType()) && fieldAccess == other.fieldAccess
+                    && names.equals(other.names) && args.equals(other.args);
+        }
+    }
+
+    private static final class ConstructorProjection<T> extends FactoryExpressionBase<T> {
+
+        private final List<Expression<?>> args;
+        // (Object[])Object
+        private final MethodHandle constructor;
+        // 원시 타입 인자에 null 이 오면 대신 넣을 기본값. 원시 타입 인자가 없으면 null
+        private final Object[] defaults;
+
+        ConstructorProjection(Class<? extends T> type, Expression<?>... exprs) {
+            super(type);
+            this.args = List.of(exprs);
+            Class<?>[] argTypes = new Class<?>[exprs.length];
+            for (int i = 0; i < exprs.length; i++) {
+                argTypes[i] = exprs[i].getType();
+            }
+            ConstructorHandle handle = ACCESSORS.get(type).constructor(argTypes);
+            this.constructor = handle.handle;
+            this.defaults = handle.defaults;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T newInstance(Object... a) {
+            Object[] values = a;
+            if (defaults != null) {
+                for (int i = 0; i < a.length; i++) {
+                    if (a[i] == null && defaults[i] != null) {
+                        if (values == a) {
+                            values = a.clone();
+                        }
+                        values[i] = defaults[i];
+                    }
+                }
+            }
+            try {
+                return (T) (Object) constructor.invokeExact(values);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new ExpressionException(e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public List<Expression<?>> getArgs() {
+            return args;
+        }
+
+        @Override
+        public <R, C> R accept(Visitor<R, C> v, C context) {
+            return v.visit(this, context);
+        }
+    }
+
+    /**
+     * DTO 타입 하나의 생성자 / setter / 필드 핸들 캐시. 처음 쓰는 조합만 만들어 넣는다.
+     */
+    private static final class DtoAccessors {
+
+        private static final MethodType WRITER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+        private final Class<?> type;
+        private final MethodHandles.Lookup lookup;
+        private volatile Map<String, PropertyDescriptor> descriptors;
+        private final Map<String, Property> setters = new ConcurrentHashMap<>();
+        private final Map<String, Property> fields = new ConcurrentHashMap<>();
+        private final Map<List<String>, MethodHandle> beanFactories = new ConcurrentHashMap<>();
+        private final Map<List<String>, MethodHandle> fieldFactories = new ConcurrentHashMap<>();
+        private final Map<List<Class<?>>, ConstructorHandle> constructors = new ConcurrentHashMap<>();
+
+        DtoAccessors(Class<?> type) {
+            this.type = type;
+            this.lookup = privateLookup(type);
+        }
+
+        Property property(String name, boolean fieldAccess) {
+            return fieldAccess ? field(name) : setter(name);
+        }
+
+        /**
+         * 기본 생성자로 만들고 names 순서의 값 중 null 이 아닌 것만 setter / 필드로 넣는 (Object[])Object 핸들.
+         * 속성마다 핸들이나 람다를 따로 부르면 행마다 속성 수만큼 간접 호출이 생기므로 한 번 호출로 끝나게 묶는다.
+         */
+        MethodHandle beanFactory(List<String> names, boolean fieldAccess) {
+            Map<List<String>, MethodHandle> factories = fieldAccess ? fieldFactories : beanFactories;
+            return factories.computeIfAbsent(names, key -> {
+                MethodHandle skipNull = MethodHandles.dropArguments(IS_NULL, 0, Object.class);
+                // (bean, values) -> bean
+                MethodHandle chain = MethodHandles.dropArguments(MethodHandles.identity(Object.class), 1, Object[].class);
+                for (int i = key.size() - 1; i >= 0; i--) {
+                    MethodHandle writer = property(key.get(i), fieldAccess).writer;
+                    if (writer == null) {
+                        continue;
+                    }
+                    MethodHandle write = MethodHandles.guardWithTest(skipNull, MethodHandles.empty(WRITER_TYPE), writer);
+                    MethodHandle element = MethodHandles.insertArguments(MethodHandles.arrayElementGetter(Object[].class), 1, i);
+                    chain = MethodHandles.foldArguments(chain, MethodHandles.filterArguments(write, 1, element));
+                }
+                try {
+                    MethodHandle constructor = lookup.findConstructor(type, MethodType.methodType(void.class))
+                            .asType(MethodType.methodType(Object.class));
+                    return MethodHandles.foldArguments(chain, constructor);
+                } catch (ReflectiveOperationException e) {
+                    throw new ExpressionException(type.getName() + " 의 기본 생성자를 만들 수 없습니다.", e);
+                }
+            });
+        }
+
+        private Property setter(String name) {
+            return setters.computeIfAbsent(name, key -> {
+                PropertyDescriptor descriptor = descriptors().get(key);
+                Method writeMethod = descriptor == null ? null : descriptor.getWriteMethod();
+                if (writeMethod == null) {
+                    return Property.MISSING;
+                }
+                try {
+                    return new Property(writeMethod.getParameterTypes()[0], lookup.unreflect(writeMethod).asType(WRITER_TYPE));
+                } catch (IllegalAccessException e) {
+                    throw new ExpressionException(writeMethod + " 를 쓸 수 없습니다.", e);
+                }
+            });
+        }
+
+        private Property field(String name) {
+            return fields.computeIfAbsent(name, key -> {
+                Field field = findField(key);
+                if (field == null) {
+                    return Property.MISSING;
+                }
+                try {
+                    MethodHandle writer = privateLookup(field.getDeclaringClass()).unreflectSetter(field).asType(WRITER_TYPE);
+                    return new Property(field.getType(), writer);
+                } catch (IllegalAccessException e) {
+                    throw new ExpressionException(field + " 에 쓸 수 없습니다.", e);
+                }
+            });
+        }
+
+        ConstructorHandle constructor(Class<?>[] argTypes) {
+            return constructors.computeIfAbsent(List.of(argTypes), key -> {
+                Constructor<?> constructor = findConstructor(argTypes);
+                Class<?>[] parameterTypes = constructor.getParameterTypes();
+                Object[] defaults = null;
+                for (int i = 0; i < parameterTypes.length; i++) {
+                    if (parameterTypes[i].isPrimitive()) {
+                        if (defaults == null) {
+                            defaults = new Object[parameterTypes.length];
+                        }
+                        defaults[i] = Array.get(Array.newInstance(parameterTypes[i], 1), 0);
+                    }
+                }
+                try {
+                    MethodHandle handle = lookup.unreflectConstructor(constructor)
+                            .asSpreader(Object[].class, parameterTypes.length)
+                            .asType(MethodType.methodType(Object.class, Object[].class));
+                    return new ConstructorHandle(handle, defaults);
+                } catch (IllegalAccessException e) {
+                    throw new ExpressionException(constructor + " 를 쓸 수 없습니다.", e);
+                }
+            });
+        }
+
+        private Map<String, PropertyDescriptor> descriptors() {
+            Map<String, PropertyDescriptor> result = descriptors;
+            if (result == null) {
+                result = new LinkedHashMap<>();
+                try {
+                    for (PropertyDescriptor descriptor : Introspector.getBeanInfo(type).getPropertyDescriptors()) {
+                        result.put(descriptor.getName(), descriptor);
+                    }
+                } catch (IntrospectionException e) {
+                    throw new ExpressionException(e.getMessage(), e);
+                }
+                descriptors = result;
+            }
+            return result;
+        }
+
+        private Field findField(String name) {
+            for (Class<?> current = type; current != Object.class && current != null; current = current.getSuperclass()) {
+                try {
+                    return current.getDeclaredField(name);
+                } catch (NoSuchFieldException e) {
+                    // 상위 클래스에서 찾는다
+                }
+            }
+            return null;
+        }
+
+        private Constructor<?> findConstructor(Class<?>[] argTypes) {
+            for (Constructor<?> constructor : type.getConstructors()) {
+                Class<?>[] parameterTypes = constructor.getParameterTypes();
+                if (parameterTypes.length != argTypes.length) {
+                    continue;
+                }
+                boolean matches = true;
+                for (int i = 0; i < argTypes.length && matches; i++) {
+                    matches = isAssignable(parameterTypes[i], argTypes[i]);
+                }
+                if (matches) {
+                    return constructor;
+                }
+            }
+            throw new ExpressionException("No constructor found for " + type + " with parameters: " + Arrays.toString(argTypes));
+        }
+
+        private static MethodHandles.Lookup privateLookup(Class<?> type) {
+            try {
+                return MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+            } catch (IllegalAccessException e) {
+                throw new ExpressionException(type.getName() + " 에 접근할 수 없습니다.", e);
+            }
+        }
+    }
+
+    private static final class Property {
+
+        static final Property MISSING = new Property(null, null);
+
+        final Class<?> type;
+        // (Object, Object)void
+        final MethodHandle writer;
+
+        Property(Class<?> type, MethodHandle writer) {
+            this.type = type;
+            this.writer = writer;
+        }
+    }
+
+    private static final class ConstructorHandle {
+
+        final MethodHandle handle;
+        final Object[] defaults;
+
+        ConstructorHandle(MethodHandle handle, Object[] defaults) {
+            this.handle = handle;
+            this.defaults = defaults;
+        }
+    }
+
+    // Projections 와 같이 경로 이름이나 as 별칭을 속성 이름으로 쓴다
+    private static Map<String, Expression<?>> createBindings(Expression<?>... exprs) {
+        Map<String, Expression<?>> bindings = new LinkedHashMap<>();
+        for (Expression<?> expr : exprs) {
+            if (expr instanceof Path) {
+                bindings.put(((Path<?>) expr).getMetadata().getName(), expr);
+            } else if (expr instanceof Operation && ((Operation<?>) expr).getOperator() == Ops.ALIAS
+                    && ((Operation<?>) expr).getArg(1) instanceof Path) {
+                Operation<?> operation = (Operation<?>) expr;
+                String name = ((Path<?>) operation.getArg(1)).getMetadata().getName();
+                // 중첩 프로젝션은 별칭 없이 넘겨야 인자가 펼쳐진다
+                bindings.put(name, operation.getArg(0) instanceof FactoryExpression ? operation.getArg(0) : expr);
+            } else {
+                throw new IllegalArgumentException("Unsupported expression " + expr);
+            }
+        }
+        return bindings;
+    }
+
+    private static boolean isAssignable(Class<?> target, Class<?> source) {
+        return target.isAssignableFrom(source) || wrap(target).isAssignableFrom(wrap(source));
+    }
+
+    private static Class<?> wrap(Class<?> type) {
+        return MethodType.methodType(type).wrap().returnType();
+    }
+}
@@ -0,0 +1,61 @@
+package me.study.querydsl.dto;
+
+import lombok.Getter;
+import org.springframework.util.StringUtils;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * 검색 응답에서 골라 받을 수 있는 필드 (fields=username,age)
+ */
+@Getter
+public enum MemberField {
+    MEMBER_ID("memberId", false),
+    USERNAME("username", false),
+    AGE("age", false),
+    // team_id 는 member 테이블의 FK 라서 team 조인이 필요 없다
+    TEAM_ID("teamId", false),
+    TEAM_NAME("teamName", true);
+
+    private final String fieldName;
+    private final boolean teamJoin;
+
+    MemberField(String fieldName, boolean teamJoin) {
+        this.fieldName = fieldName;
+        this.teamJoin = teamJoin;
+    }
+
+    /**
+     * 콤마로 구분된 필드명을 선언 순서의 EnumSet 으로 바꾼다.
+     * 요청마다 순서가 달라도 같은 SQL 이 만들어지도록 입력 순서는 따르지 않는다.
+     */
+    public static Set<MemberField> parse(String fields) {
+        EnumSet<MemberField> result = EnumSet.noneOf(MemberField.class);
+        for (String name : StringUtils.commaDelimitedListToStringArray(fields)) {
+            String trimmed = name.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            result.add(of(trimmed));
+        }
+        if (result.isEmpty()) {
+            throw new IllegalArgumentException("fields 가 비어 있습니다.");
+        }
+        return result;
+    }
+
+    public static boolean needsTeamJoin(Set<MemberField> fields, MemberSearchCondition condition) {
+        return StringUtils.hasText(condition.getTeamName())
+                || fields.stream().anyMatch(MemberField::isTeamJoin);
+    }
+
+    private static MemberField of(String fieldName) {
+        for (MemberField field : values()) {
+            if (field.fieldName.equals(fieldName)) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("지원하지 않는 필드입니다. field=" + fieldName);
+    }
+}
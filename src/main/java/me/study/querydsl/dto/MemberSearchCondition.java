@@ -9,4 +9,6 @@ public class MemberSearchCondition {
     private String teamName;
     private Integer ageGoe;
     private Integer ageLoe;
+    // true 면 member_archive 로 옮겨진 회원까지 함께 검색한다
+    private boolean includeArchived;
 }
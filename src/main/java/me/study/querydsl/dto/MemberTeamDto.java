@@ -2,8 +2,10 @@ package me.study.querydsl.dto;
 
 import com.querydsl.core.annotations.QueryProjection;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 @Data
+@NoArgsConstructor
 public class MemberTeamDto {
     private Long memberId;
     private String username;
@@ -1,14 +1,19 @@
 package me.study.querydsl.entity;
 
 import lombok.*;
+import org.hibernate.Hibernate;
 
 import javax.persistence.*;
 
 @Entity
+@Table(indexes = {
+        // 페이징 정렬 키 (member_id 는 tiebreaker)
+        @Index(name = "idx_member_age", columnList = "age, member_id"),
+        @Index(name = "idx_member_username", columnList = "username, member_id")
+})
 @Getter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id", "username", "age"})
-@EqualsAndHashCode
 public class Member {
 
     @Id
@@ -18,6 +23,10 @@ public class Member {
     private String username;
     private int age;
 
+    // 커밋 순서대로 커진다. ChangeFeed 구독자는 이미 반영한 것보다 작은 version 의 변경을 버린다
+    @Version
+    private long version;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "team_id")
     private Team team;
@@ -38,8 +47,38 @@ public class Member {
         }
     }
 
+    /**
+     * 연관관계의 주인은 Member.team 이므로 DB 에는 team_id 만 반영되면 된다.
+     * Team.members 는 이미 로딩된 경우에만 맞춰 주고, 로딩되지 않은 컬렉션이나 프록시는 건드리지 않는다.
+     * (팀에 회원을 붙일 때마다 팀의 회원 전체를 읽어 오지 않도록)
+     */
     public void changeTeam(Team team) {
-      this.team = team;
-      team.getMembers().add(this);
+        Team oldTeam = this.team;
+        this.team = team;
+        if (oldTeam != null && Hibernate.isInitialized(oldTeam)) {
+            oldTeam.removeMember(this);
+        }
+        if (Hibernate.isInitialized(team)) {
+            team.addMember(this);
+        }
+    }
+
+    // 연관관계를 타지 않도록 id 만 비교한다. 영속화 전에는 같은 인스턴스만 같다
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Member)) {
+            return false;
+        }
+        Long id = getId();
+        return id != null && id.equals(((Member) o).getId());
+    }
+
+    // 영속화 전후로 값이 바뀌지 않도록 id 를 쓰지 않는다
+    @Override
+    public int hashCode() {
+        return Member.class.hashCode();
     }
 }
@@ -0,0 +1,39 @@
+package me.study.querydsl.entity;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 보관 조건에 맞아 member 에서 옮겨 온 회원 (cold 테이블).
+ * MemberArchiveService 가 SQL 로만 옮겨 넣으므로 엔티티는 스키마 생성과 조회에만 쓴다.
+ * member_id 는 member 에서의 값을 그대로 쓴다.
+ */
+@Entity
+@Table(name = "member_archive", indexes = {
+        // member 와 같은 정렬 키 인덱스. includeArchived 검색의 각 쪽이 같은 순서로 읽는다
+        @Index(name = "idx_member_archive_age", columnList = "age, member_id"),
+        @Index(name = "idx_member_archive_username", columnList = "username, member_id")
+})
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString(of = {"id", "username", "age", "archivedAt"})
+public class MemberArchive {
+
+    @Id
+    @Column(name = "member_id")
+    private Long id;
+    private String username;
+    private int age;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "team_id")
+    private Team team;
+
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+}
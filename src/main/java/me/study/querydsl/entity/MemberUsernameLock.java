@@ -0,0 +1,26 @@
+package me.study.querydsl.entity;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * username 별 advisory lock 행. member.username 은 unique 가 아니므로 MemberUpsertService 가
+ * 같은 username 을 동시에 upsert 할 때 이 행을 먼저 잠가 조회 → insert 를 한 번에 하나씩 하게 한다.
+ * SQL 로만 쓰므로 엔티티는 스키마 생성에만 쓴다.
+ */
+@Entity
+@Table(name = "member_username_lock")
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString(of = "username")
+public class MemberUsernameLock {
+
+    @Id
+    private String username;
+}
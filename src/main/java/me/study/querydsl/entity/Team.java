@@ -1,11 +1,15 @@
 package me.study.querydsl.entity;
 
 import lombok.*;
+import org.hibernate.Hibernate;
+
+import org.hibernate.annotations.OptimisticLock;
 
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
 import javax.persistence.OneToMany;
+import javax.persistence.Version;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -20,10 +24,46 @@ public class Team {
     private Long id;
     private String name;
 
+    // Member.version 과 같다
+    @Version
+    private long version;
+
+    // 회원이 팀을 옮길 때마다 팀의 version 이 오르지 않도록 한다
+    @OptimisticLock(excluded = true)
     @OneToMany(mappedBy = "team")
     private List<Member> members = new ArrayList<>();
 
     public Team(String name) {
         this.name = name;
     }
+
+    // members 가 아직 로딩되지 않았으면 나중에 DB 에서 읽을 때 반영되므로 건드리지 않는다
+    void addMember(Member member) {
+        if (Hibernate.isInitialized(members)) {
+            members.add(member);
+        }
+    }
+
+    void removeMember(Member member) {
+        if (Hibernate.isInitialized(members)) {
+            members.remove(member);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Team)) {
+            return false;
+        }
+        Long id = getId();
+        return id != null && id.equals(((Team) o).getId());
+    }
+
+    @Override
+    public int hashCode() {
+        return Team.class.hashCode();
+    }
 }
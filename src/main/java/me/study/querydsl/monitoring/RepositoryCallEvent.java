@@ -0,0 +1,41 @@
+package me.study.querydsl.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 리포지토리 메서드 한 번의 호출. 같은 스레드의 CPU / 할당 샘플을 이 이벤트 구간으로 묶어 본다.
+ */
+@Name("me.study.querydsl.RepositoryCall")
+@Label("Repository Call")
+@Category({"Querydsl", "Repository"})
+@Description("MemberRepositoryImpl / MemberJpaRepository / MemberQueryRepository 메서드 호출")
+@StackTrace(false)
+class RepositoryCallEvent extends jdk.jfr.Event {
+
+    @Label("Repository")
+    String repository;
+
+    @Label("Method")
+    String method;
+
+    @Label("Condition")
+    @Description("MemberSearchCondition 중 값이 있는 필드 (username+teamName 등), 조건이 없으면 -")
+    String condition;
+
+    @Label("Offset")
+    long offset;
+
+    @Label("Page Size")
+    int pageSize;
+
+    @Label("Sort")
+    String sort;
+
+    @Label("Rows")
+    @Description("돌려준 행 수, 셀 수 없는 결과면 -1")
+    long rows;
+}
@@ -0,0 +1,96 @@
+package me.study.querydsl.monitoring;
+
+import me.study.querydsl.dto.MemberSearchCondition;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.StringJoiner;
+
+/**
+ * 리포지토리 메서드 호출마다 RepositoryCallEvent 를 남긴다.
+ * 이벤트가 꺼져 있으면(JFR 기록이 없거나 설정에서 끈 경우) isEnabled 확인 한 번만 하고 그대로 호출한다.
+ */
+@Aspect
+@Component
+@ConditionalOnProperty(prefix = "member.jfr", name = "enabled", havingValue = "true")
+public class RepositoryJfrAspect {
+
+    @Around("execution(public * me.study.querydsl.repository.MemberRepositoryImpl.*(..))"
+            + " || execution(public * me.study.querydsl.repository.MemberJpaRepository.*(..))"
+            + " || execution(public * me.study.querydsl.repository.MemberQueryRepository.*(..))")
+    public Object record(ProceedingJoinPoint joinPoint) throws Throwable {
+        RepositoryCallEvent event = new RepositoryCallEvent();
+        if (!event.isEnabled()) {
+            return joinPoint.proceed();
+        }
+
+        event.begin();
+        Object result = null;
+        try {
+            result = joinPoint.proceed();
+            return result;
+        } finally {
+            event.end();
+            // threshold 를 넘긴 호출만 필드를 채운다
+            if (event.shouldCommit()) {
+                event.repository = joinPoint.getSignature().getDeclaringType().getSimpleName();
+                event.method = joinPoint.getSignature().getName();
+                event.offset = -1;
+                event.pageSize = -1;
+                for (Object arg : joinPoint.getArgs()) {
+                    if (arg instanceof MemberSearchCondition) {
+                        event.condition = shape((MemberSearchCondition) arg);
+                    } else if (arg instanceof Pageable && ((Pageable) arg).isPaged()) {
+                        Pageable pageable = (Pageable) arg;
+                        event.offset = pageable.getOffset();
+                        event.pageSize = pageable.getPageSize();
+                        event.sort = pageable.getSort().toString();
+                    }
+                }
+                event.rows = rows(result);
+                event.commit();
+            }
+        }
+    }
+
+    static String shape(MemberSearchCondition condition) {
+        StringJoiner shape = new StringJoiner("+", "", "").setEmptyValue("-");
+        if (StringUtils.hasText(condition.getUsername())) {
+            shape.add("username");
+        }
+        if (StringUtils.hasText(condition.getTeamName())) {
+            shape.add("teamName");
+        }
+        if (condition.getAgeGoe() != null) {
+            shape.add("ageGoe");
+        }
+        if (condition.getAgeLoe() != null) {
+            shape.add("ageLoe");
+        }
+        return shape.toString();
+    }
+
+    private static long rows(Object result) {
+        if (result == null) {
+            return 0;
+        }
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Page) {
+            return ((Page<?>) result).getNumberOfElements();
+        }
+        if (result instanceof Optional) {
+            return ((Optional<?>) result).isPresent() ? 1 : 0;
+        }
+        return result instanceof Number ? -1 : 1;
+    }
+}
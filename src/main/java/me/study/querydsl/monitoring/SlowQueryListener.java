@@ -0,0 +1,95 @@
+package me.study.querydsl.monitoring;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * p6spy 가 감싼 DataSource 의 모든 statement 실행 시간을 SQL 모양별로 집계하고,
+ * slowThreshold 를 넘거나 sampleRate 로 뽑힌 statement 만 bind 값과 호출 메서드를 붙여 로그로 남는다.
+ *
+ * 빠른 경로에서는 bind 전 SQL 문자열로 집계만 한다. bind 값 치환(getSqlWithValues)과 스택 탐색은 로그를 남길 때만 한다.
+ * p6spy 로깅(decorator.datasource.p6spy.enable-logging)과 Hibernate SQL 로그를 끄고 이것만 켜는 용도다 (prod 프로필).
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "member.sql-monitor", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(SqlMonitorProperties.class)
+public class SlowQueryListener extends SimpleJdbcEventListener {
+
+    static final String OTHER = "OTHER";
+
+    private static final String BASE_PACKAGE = "me.study.querydsl.";
+    private static final String MONITORING_PACKAGE = "me.study.querydsl.monitoring.";
+
+    private final SqlMonitorProperties properties;
+    private final long slowNanos;
+    private final Map<String, SqlShapeStats> shapes = new ConcurrentHashMap<>();
+
+    public SlowQueryListener(SqlMonitorProperties properties) {
+        this.properties = properties;
+        this.slowNanos = properties.getSlowThreshold().toNanos();
+    }
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        String sql = statementInformation.getSql();
+        shape(sql).record(timeElapsedNanos, e != null);
+
+        if (timeElapsedNanos >= slowNanos) {
+            log.warn("slow sql {}ms caller={} sql={}",
+                    timeElapsedNanos / 1_000_000, caller(), statementInformation.getSqlWithValues());
+        } else if (properties.getSampleRate() > 0 && ThreadLocalRandom.current().nextDouble() < properties.getSampleRate()) {
+            log.info("sampled sql {}us caller={} sql={}",
+                    timeElapsedNanos / 1_000, caller(), statementInformation.getSqlWithValues());
+        }
+    }
+
+    /**
+     * 전체 실행 시간이 큰 순서로 돌려준다.
+     */
+    public List<SqlShapeStats.Snapshot> snapshot() {
+        return shapes.entrySet().stream()
+                .map(entry -> entry.getValue().snapshot(entry.getKey()))
+                .sorted(Comparator.comparingDouble(SqlShapeStats.Snapshot::getTotalMillis).reversed())
+                .collect(Collectors.toList());
+    }
+
+    public void reset() {
+        shapes.clear();
+    }
+
+    private SqlShapeStats shape(String sql) {
+        SqlShapeStats stats = shapes.get(sql);
+        if (stats != null) {
+            return stats;
+        }
+        // 리터럴이 박힌 SQL 처럼 모양이 끝없이 늘어나는 경우 메모리를 제한한다 (상한은 대략적으로만 지킨다)
+        if (shapes.size() >= properties.getMaxShapes()) {
+            return shapes.computeIfAbsent(OTHER, key -> new SqlShapeStats());
+        }
+        return shapes.computeIfAbsent(sql, key -> new SqlShapeStats());
+    }
+
+    // 이 애플리케이션 코드 중 statement 를 실행한 가장 가까운 메서드 (리포지토리 프록시 대신 구현 클래스가 잡힌다)
+    private static String caller() {
+        return StackWalker.getInstance().walk(frames -> frames
+                .filter(frame -> frame.getClassName().startsWith(BASE_PACKAGE)
+                        && !frame.getClassName().startsWith(MONITORING_PACKAGE))
+                .findFirst()
+                .map(frame -> frame.getClassName().substring(BASE_PACKAGE.length()) + "." + frame.getMethodName()
+                        + ":" + frame.getLineNumber())
+                .orElse("unknown"));
+    }
+}
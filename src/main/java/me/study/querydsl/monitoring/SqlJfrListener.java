@@ -0,0 +1,80 @@
+package me.study.querydsl.monitoring;
+
+import com.p6spy.engine.common.PreparedStatementInformation;
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * statement 실행마다 SqlStatementEvent 를 남긴다.
+ * 실행 전에 만든 이벤트를 실행 후 콜백까지 스레드에 들고 있는다. 한 스레드의 statement 실행은 겹치지 않는다.
+ * 이벤트가 꺼져 있으면 아무것도 저장하지 않는다.
+ */
+@Component
+@ConditionalOnProperty(prefix = "member.jfr", name = "enabled", havingValue = "true")
+public class SqlJfrListener extends SimpleJdbcEventListener {
+
+    private final ThreadLocal<SqlStatementEvent> current = new ThreadLocal<>();
+
+    @Override
+    public void onBeforeAnyExecute(StatementInformation statementInformation) {
+        SqlStatementEvent event = new SqlStatementEvent();
+        if (event.isEnabled()) {
+            event.rows = -1;
+            event.begin();
+            current.set(event);
+        }
+    }
+
+    @Override
+    public void onAfterExecuteUpdate(PreparedStatementInformation statementInformation, long timeElapsedNanos, int rowCount, SQLException e) {
+        setRows(rowCount);
+        super.onAfterExecuteUpdate(statementInformation, timeElapsedNanos, rowCount, e);
+    }
+
+    @Override
+    public void onAfterExecuteUpdate(StatementInformation statementInformation, long timeElapsedNanos, String sql, int rowCount, SQLException e) {
+        setRows(rowCount);
+        super.onAfterExecuteUpdate(statementInformation, timeElapsedNanos, sql, rowCount, e);
+    }
+
+    @Override
+    public void onAfterExecuteBatch(StatementInformation statementInformation, long timeElapsedNanos, int[] updateCounts, SQLException e) {
+        if (updateCounts != null && current.get() != null) {
+            long sum = 0;
+            for (int count : updateCounts) {
+                // SUCCESS_NO_INFO(-2) 는 한 행으로 센다
+                sum += count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(count, 0);
+            }
+            setRows(sum);
+        }
+        super.onAfterExecuteBatch(statementInformation, timeElapsedNanos, updateCounts, e);
+    }
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        SqlStatementEvent event = current.get();
+        if (event == null) {
+            return;
+        }
+        current.remove();
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.sql = statementInformation.getSql();
+            event.failed = e != null;
+            event.commit();
+        }
+    }
+
+    private void setRows(long rowCount) {
+        SqlStatementEvent event = current.get();
+        if (event != null) {
+            event.rows = rowCount;
+        }
+    }
+}
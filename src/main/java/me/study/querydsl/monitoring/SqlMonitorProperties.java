@@ -0,0 +1,21 @@
+package me.study.querydsl.monitoring;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "member.sql-monitor")
+public class SqlMonitorProperties {
+
+    private boolean enabled = false;
+    // 이보다 오래 걸린 statement 는 bind 값과 호출한 메서드를 함께 WARN 으로 남긴다
+    private Duration slowThreshold = Duration.ofMillis(100);
+    // 느리지 않은 statement 중 INFO 로 남길 비율 (0 ~ 1)
+    private double sampleRate = 0.001;
+    // SQL 모양(bind 전 SQL) 별 집계 개수 상한. 넘치면 OTHER 하나로 모은다
+    private int maxShapes = 1_000;
+}
@@ -0,0 +1,77 @@
+package me.study.querydsl.monitoring;
+
+import lombok.Value;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * SQL 모양 하나의 실행 시간 집계. 기록은 잠금 없이 한다.
+ * 분위수는 2배 간격(마이크로초) 버킷으로 세므로 버킷 상한 값으로 근사한다.
+ */
+class SqlShapeStats {
+
+    private static final int BUCKETS = 64;
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+    void record(long nanos, boolean error) {
+        count.increment();
+        totalNanos.add(nanos);
+        if (error) {
+            errors.increment();
+        }
+        long max = maxNanos.get();
+        while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+            max = maxNanos.get();
+        }
+        long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        buckets.incrementAndGet(BUCKETS - Long.numberOfLeadingZeros(micros));
+    }
+
+    Snapshot snapshot(String sql) {
+        long n = count.sum();
+        long total = totalNanos.sum();
+        return new Snapshot(sql, n, errors.sum(),
+                millis(total),
+                n == 0 ? 0 : millis(total / n),
+                millis(maxNanos.get()),
+                percentile(n, 0.5),
+                percentile(n, 0.99));
+    }
+
+    private double percentile(long n, double quantile) {
+        long rank = (long) Math.ceil(n * quantile);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank && seen > 0) {
+                // 버킷 i 는 [2^(i-1), 2^i) 마이크로초
+                return i == 0 ? 0 : (1L << i) / 1_000.0;
+            }
+        }
+        return 0;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    @Value
+    static class Snapshot {
+        String sql;
+        long count;
+        long errors;
+        double totalMillis;
+        double meanMillis;
+        double maxMillis;
+        double p50Millis;
+        double p99Millis;
+    }
+}
@@ -0,0 +1,29 @@
+package me.study.querydsl.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JDBC statement 실행 한 번. 조회 결과를 읽는 시간은 들어가지 않는다.
+ */
+@Name("me.study.querydsl.SqlStatement")
+@Label("SQL Statement")
+@Category({"Querydsl", "SQL"})
+@Description("p6spy 가 감싼 DataSource 의 statement 실행")
+@StackTrace(false)
+class SqlStatementEvent extends jdk.jfr.Event {
+
+    @Label("SQL")
+    @Description("bind 전 SQL")
+    String sql;
+
+    @Label("Rows")
+    @Description("insert / update / delete / batch 의 변경 행 수, 조회면 -1")
+    long rows;
+
+    @Label("Failed")
+    boolean failed;
+}
@@ -0,0 +1,34 @@
+package me.study.querydsl.monitoring;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * GET /actuator/sqlstats 로 SQL 모양별 실행 횟수 / 시간을 보고, DELETE 로 초기화한다.
+ */
+@Component
+@ConditionalOnProperty(prefix = "member.sql-monitor", name = "enabled", havingValue = "true")
+@Endpoint(id = "sqlstats")
+public class SqlStatsEndpoint {
+
+    private final SlowQueryListener slowQueryListener;
+
+    public SqlStatsEndpoint(SlowQueryListener slowQueryListener) {
+        this.slowQueryListener = slowQueryListener;
+    }
+
+    @ReadOperation
+    public List<SqlShapeStats.Snapshot> sqlStats() {
+        return slowQueryListener.snapshot();
+    }
+
+    @DeleteOperation
+    public void reset() {
+        slowQueryListener.reset();
+    }
+}
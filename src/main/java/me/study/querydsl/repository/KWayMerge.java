@@ -0,0 +1,66 @@
+package me.study.querydsl.repository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * 이미 같은 기준으로 정렬된 여러 목록을 하나로 합치면서 [offset, offset + limit) 구간만 꺼낸다.
+ * 각 목록은 최소 offset + limit 건을 가져와야 전역 페이지가 정확하다.
+ */
+public final class KWayMerge {
+
+    private KWayMerge() {
+    }
+
+    public static <T> List<T> merge(List<? extends List<T>> sources, Comparator<? super T> comparator,
+                                    long offset, int limit) {
+        // 같은 값이면 앞쪽 목록을 먼저 내보내야 결과가 매번 같다
+        PriorityQueue<Cursor<T>> heap = new PriorityQueue<>((a, b) -> {
+            int result = comparator.compare(a.current(), b.current());
+            return result != 0 ? result : Integer.compare(a.source, b.source);
+        });
+
+        for (int i = 0; i < sources.size(); i++) {
+            if (!sources.get(i).isEmpty()) {
+                heap.add(new Cursor<>(i, sources.get(i)));
+            }
+        }
+
+        List<T> page = new ArrayList<>(limit);
+        long skipped = 0;
+        while (!heap.isEmpty() && page.size() < limit) {
+            Cursor<T> cursor = heap.poll();
+            if (skipped < offset) {
+                skipped++;
+            } else {
+                page.add(cursor.current());
+            }
+
+            if (cursor.advance()) {
+                heap.add(cursor);
+            }
+        }
+        return page;
+    }
+
+    private static class Cursor<T> {
+        private final int source;
+        private final List<T> values;
+        private int position;
+
+        Cursor(int source, List<T> values) {
+            this.source = source;
+            this.values = values;
+        }
+
+        T current() {
+            return values.get(position);
+        }
+
+        boolean advance() {
+            return ++position < values.size();
+        }
+    }
+}
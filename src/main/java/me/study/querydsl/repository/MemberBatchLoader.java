@@ -0,0 +1,97 @@
+package me.study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import me.study.querydsl.entity.Member;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.PersistenceContext;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.Status;
+import org.hibernate.persister.entity.EntityPersister;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static me.study.querydsl.entity.QMember.member;
+import static me.study.querydsl.entity.QTeam.team;
+
+/**
+ * 여러 id 의 Member 를 IN 쿼리 몇 번으로 조회한다.
+ *
+ * 영속성 컨텍스트에 이미 있는 Member 는 그대로 쓰고 나머지만 MAX_CHUNK 개씩 나눠 조회한다.
+ * IN 절 파라미터 수는 2의 거듭제곱으로 맞춰(마지막 id 반복) 쿼리 모양이 1, 2, 4 ... MAX_CHUNK 개로만 만들어지게 한다.
+ * 그래서 Hibernate 쿼리 plan 캐시와 DB 의 statement 캐시가 id 개수마다 늘어나지 않는다.
+ */
+final class MemberBatchLoader {
+
+    static final int MAX_CHUNK = 512;
+
+    private MemberBatchLoader() {
+    }
+
+    /**
+     * 호출자가 준 순서대로 돌려준다. 중복 id 는 한 번만 담고, 없는 id 는 건너뛴다.
+     */
+    static List<Member> findAllByIds(EntityManager em, JPAQueryFactory jpaQueryFactory, Collection<Long> ids) {
+        Set<Long> ordered = new LinkedHashSet<>(ids);
+        ordered.remove(null);
+
+        Map<Long, Member> found = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        EntityPersister persister = session.getFactory().getMetamodel().entityPersister(Member.class);
+        PersistenceContext persistenceContext = session.getPersistenceContextInternal();
+
+        for (Long id : ordered) {
+            Object cached = persistenceContext.getEntity(session.generateEntityKey(id, persister));
+            if (cached == null) {
+                missing.add(id);
+                continue;
+            }
+            EntityEntry entry = persistenceContext.getEntry(cached);
+            if (entry == null || (entry.getStatus() != Status.DELETED && entry.getStatus() != Status.GONE)) {
+                found.put(id, (Member) cached);
+            }
+        }
+
+        for (int from = 0; from < missing.size(); from += MAX_CHUNK) {
+            List<Long> chunk = missing.subList(from, Math.min(from + MAX_CHUNK, missing.size()));
+            jpaQueryFactory
+                    .selectFrom(member)
+                    .leftJoin(member.team, team).fetchJoin()
+                    .where(member.id.in(pad(chunk)))
+                    .fetch()
+                    .forEach(m -> found.put(m.getId(), m));
+        }
+
+        List<Member> result = new ArrayList<>(found.size());
+        for (Long id : ordered) {
+            Member m = found.get(id);
+            if (m != null) {
+                result.add(m);
+            }
+        }
+        return result;
+    }
+
+    static List<Long> pad(List<Long> chunk) {
+        int size = chunk.size();
+        int padded = Integer.highestOneBit(size) == size ? size : Integer.highestOneBit(size) << 1;
+        if (padded == size) {
+            return chunk;
+        }
+
+        List<Long> result = new ArrayList<>(padded);
+        result.addAll(chunk);
+        Long last = chunk.get(size - 1);
+        while (result.size() < padded) {
+            result.add(last);
+        }
+        return result;
+    }
+}
@@ -10,27 +10,36 @@ import me.study.querydsl.dto.QMemberTeamDto;
 import me.study.querydsl.entity.Member;
 import me.study.querydsl.entity.QMember;
 import me.study.querydsl.entity.QTeam;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
 import javax.persistence.EntityManager;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 import static me.study.querydsl.entity.QMember.*;
 import static me.study.querydsl.entity.QTeam.*;
 
 @Repository
+@Transactional(readOnly = true)
 public class MemberJpaRepository {
 
     private final EntityManager em;
     private final JPAQueryFactory jpaQueryFactory;
+    // member.username-filter.enabled=false 면 null
+    private final UsernameFilter usernameFilter;
 
-    public MemberJpaRepository(EntityManager em) {
+    public MemberJpaRepository(EntityManager em, ObjectProvider<UsernameFilter> usernameFilter) {
         this.em = em;
         this.jpaQueryFactory = new JPAQueryFactory(em);
+        this.usernameFilter = usernameFilter.getIfAvailable();
     }
 
+    @Transactional
     public void save(Member member) {
         em.persist(member);
     }
@@ -40,6 +49,10 @@ public class MemberJpaRepository {
         return Optional.ofNullable(member);
     }
 
+    public List<Member> findAllByIds(Collection<Long> ids) {
+        return MemberBatchLoader.findAllByIds(em, jpaQueryFactory, ids);
+    }
+
     public List<Member> findAll() {
         return em.createQuery("select m from Member m", Member.class)
                 .getResultList();
@@ -52,16 +65,20 @@ public class MemberJpaRepository {
     }
 
     public List<Member> findByUsername(String username) {
-        return em.createQuery("select m from Member m where m.username = :username", Member.class)
+        return findByUsername(username, () -> em.createQuery("select m from Member m where m.username = :username", Member.class)
                 .setParameter("username", username)
-                .getResultList();
+                .getResultList());
     }
 
     public List<Member> findByUsername_QueryDsl(String username) {
-        return jpaQueryFactory
+        return findByUsername(username, () -> jpaQueryFactory
                 .selectFrom(member)
                 .where(member.username.eq(username))
-                .fetch();
+                .fetch());
+    }
+
+    private List<Member> findByUsername(String username, Supplier<List<Member>> query) {
+        return usernameFilter != null ? usernameFilter.find(em, username, query) : query.get();
     }
 
     public List<MemberTeamDto> searchByBuilder(MemberSearchCondition condition) {
@@ -6,6 +6,7 @@ import me.study.querydsl.dto.MemberSearchCondition;
 import me.study.querydsl.dto.MemberTeamDto;
 import me.study.querydsl.dto.QMemberTeamDto;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
 import javax.persistence.EntityManager;
@@ -15,6 +16,7 @@ import static me.study.querydsl.entity.QMember.member;
 import static me.study.querydsl.entity.QTeam.team;
 
 @Repository
+@Transactional(readOnly = true)
 public class MemberQueryRepository {
 
     private final JPAQueryFactory jpaQueryFactory;
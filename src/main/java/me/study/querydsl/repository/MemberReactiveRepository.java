@@ -0,0 +1,123 @@
+package me.study.querydsl.repository;
+
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import me.study.querydsl.dto.MemberSearchCondition;
+import me.study.querydsl.dto.MemberTeamDto;
+import me.study.querydsl.dto.QMemberTeamDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.EntityTransaction;
+import java.util.List;
+
+import static me.study.querydsl.entity.QMember.member;
+import static me.study.querydsl.entity.QTeam.team;
+
+/**
+ * MemberRepositoryImpl.search 와 같은 조건으로 결과를 한 건씩 흘려보낸다.
+ *
+ * member_id 순으로 batchSize 건씩 keyset 페이징해 읽고, 구독자가 다음 batch 를 요청할 때만 다음 batch 를 읽는다.
+ * batch 마다 짧은 읽기 트랜잭션을 열고 닫으므로 느린 클라이언트가 batch 사이에 커넥션을 잡고 있지 않는다.
+ * 대신 한 스냅샷이 아니다. batch 사이에 커밋된 변경은 아직 읽지 않은 member_id 에만 보인다.
+ */
+@Repository
+public class MemberReactiveRepository {
+
+    private final EntityManagerFactory emf;
+    private final int batchSize;
+    private final Scheduler scheduler;
+
+    public MemberReactiveRepository(EntityManagerFactory emf,
+                                    @Value("${member.reactive.batch-size:500}") int batchSize,
+                                    @Value("${member.reactive.thread-cap:4}") int threadCap,
+                                    @Value("${member.reactive.queued-task-cap:100}") int queuedTaskCap) {
+        this.emf = emf;
+        this.batchSize = batchSize;
+        // JDBC 는 blocking 이므로 전용 scheduler 에서만 읽는다. 커넥션은 batch 를 읽는 동안만 쓰므로
+        // /v4 가 동시에 잡는 커넥션은 threadCap 개를 넘지 않는다. 다른 엔드포인트 몫이 남도록 풀 크기보다 충분히 작게 둔다
+        this.scheduler = Schedulers.newBoundedElastic(threadCap, queuedTaskCap, "member-search");
+    }
+
+    public Flux<MemberTeamDto> search(MemberSearchCondition condition) {
+        return Flux.<List<MemberTeamDto>, Long>generate(() -> 0L, (lastId, sink) -> {
+                    List<MemberTeamDto> batch = fetchBatch(condition, lastId);
+                    if (batch.isEmpty()) {
+                        sink.complete();
+                        return lastId;
+                    }
+                    sink.next(batch);
+                    if (batch.size() < batchSize) {
+                        sink.complete();
+                    }
+                    return batch.get(batch.size() - 1).getMemberId();
+                })
+                // 지금 batch 를 다 내보낸 뒤에야 다음 batch 를 요청한다
+                .concatMapIterable(batch -> batch, 1)
+                .subscribeOn(scheduler);
+    }
+
+    @PreDestroy
+    public void close() {
+        scheduler.dispose();
+    }
+
+    private List<MemberTeamDto> fetchBatch(MemberSearchCondition condition, long lastId) {
+        EntityManager em = emf.createEntityManager();
+        EntityTransaction tx = em.getTransaction();
+        try {
+            tx.begin();
+            return new JPAQueryFactory(em)
+                    .select(new QMemberTeamDto(
+                            member.id.as("memberId"),
+                            member.username,
+                            member.age,
+                            team.id.as("teamId"),
+                            team.name.as("teamName")
+                    )).from(member)
+                    .leftJoin(member.team, team)
+                    .where(
+                            member.id.gt(lastId),
+                            usernameEq(condition.getUsername()),
+                            teamNameEq(condition.getTeamName()),
+                            ageGoe(condition.getAgeGoe()),
+                            ageLoe(condition.getAgeLoe())
+                    )
+                    .orderBy(member.id.asc())
+                    .limit(batchSize)
+                    .setHint("org.hibernate.readOnly", true)
+                    .fetch();
+        } finally {
+            try {
+                if (tx.isActive()) {
+                    tx.rollback();
+                }
+            } finally {
+                em.close();
+            }
+        }
+    }
+
+    private BooleanExpression usernameEq(String username) {
+        return StringUtils.hasText(username) ? member.username.eq(username) : null;
+    }
+
+    private BooleanExpression teamNameEq(String teamName) {
+        return StringUtils.hasText(teamName) ? team.name.eq(teamName) : null;
+    }
+
+    private BooleanExpression ageGoe(Integer ageGoe) {
+        return ageGoe != null ? member.age.goe(ageGoe) : null;
+    }
+
+    private BooleanExpression ageLoe(Integer ageLoe) {
+        return ageLoe != null ? member.age.loe(ageLoe) : null;
+    }
+}
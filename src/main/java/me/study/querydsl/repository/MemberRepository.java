@@ -4,8 +4,6 @@ import me.study.querydsl.entity.Member;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.querydsl.QuerydslPredicateExecutor;
 
-import java.util.List;
-
 public interface MemberRepository extends JpaRepository<Member, Long>, MemberRepositoryCustom, QuerydslPredicateExecutor {
-    List<Member> findByUsername(String username);
+    // findByUsername 은 UsernameFilter 를 거치도록 MemberRepositoryImpl 에 있다
 }
@@ -1,14 +1,13 @@
 package me.study.querydsl.repository;
 
-import me.study.querydsl.dto.MemberSearchCondition;
-import me.study.querydsl.dto.MemberTeamDto;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import me.study.querydsl.entity.Member;
 
+import java.util.Collection;
 import java.util.List;
 
-public interface MemberRepositoryCustom {
-    List<MemberTeamDto> search(MemberSearchCondition memberSearchCondition);
-    Page<MemberTeamDto> searchPageSimple(MemberSearchCondition memberSearchCondition, Pageable pageable);
-    Page<MemberTeamDto> searchPageComplex(MemberSearchCondition memberSearchCondition, Pageable pageable);
+public interface MemberRepositoryCustom extends MemberSearchRepository {
+    List<Member> findByUsername(String username);
+
+    // 영속성 컨텍스트를 먼저 보고 나머지를 IN 쿼리로 나눠 조회한다. 결과는 ids 순서를 따른다
+    List<Member> findAllByIds(Collection<Long> ids);
 }
@@ -1,78 +1,96 @@
 package me.study.querydsl.repository;
 
 import com.querydsl.core.QueryResults;
-import com.querydsl.core.types.Order;
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.FactoryExpression;
 import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import me.study.querydsl.dto.DtoProjections;
+import me.study.querydsl.dto.MemberField;
 import me.study.querydsl.dto.MemberSearchCondition;
 import me.study.querydsl.dto.MemberTeamDto;
 import me.study.querydsl.dto.QMemberTeamDto;
 import me.study.querydsl.entity.Member;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
 import javax.persistence.EntityManager;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import static me.study.querydsl.entity.QMember.member;
 import static me.study.querydsl.entity.QTeam.team;
 
+// 조회 전용: flush mode MANUAL + 세션 기본 read-only 라 스냅샷과 auto flush 검사가 없다
+@Transactional(readOnly = true)
 public class MemberRepositoryImpl implements MemberRepositoryCustom {
 
+    private static final FactoryExpression<MemberTeamDto> MEMBER_TEAM = new QMemberTeamDto(
+            member.id.as("memberId"),
+            member.username,
+            member.age,
+            team.id.as("teamId"),
+            team.name.as("teamName"));
+
+    // team 조인 없이 읽는 검색 결과. teamName 은 TeamDictionary 가 채운다
+    private static final FactoryExpression<MemberTeamDto> MEMBER_TEAM_ID = DtoProjections.fields(MemberTeamDto.class,
+            member.id.as("memberId"), member.username, member.age, member.team.id.as("teamId"));
+
+    private final EntityManager em;
     private final JPAQueryFactory jpaQueryFactory;
+    // member.username-filter.enabled=false 면 null
+    private final UsernameFilter usernameFilter;
+    // member.team-dictionary.enabled=false 면 null
+    private final TeamDictionary teamDictionary;
 
-    public MemberRepositoryImpl(EntityManager em) {
+    public MemberRepositoryImpl(EntityManager em, ObjectProvider<UsernameFilter> usernameFilter,
+                                ObjectProvider<TeamDictionary> teamDictionary) {
+        this.em = em;
         this.jpaQueryFactory = new JPAQueryFactory(em);
+        this.usernameFilter = usernameFilter.getIfAvailable();
+        this.teamDictionary = teamDictionary.getIfAvailable();
     }
 
     @Override
-    public List<MemberTeamDto> search(MemberSearchCondition condition) {
-        return jpaQueryFactory
-                .select(new QMemberTeamDto(
-                        member.id.as("memberId"),
-                        member.username,
-                        member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")
-                )).from(member)
-                .leftJoin(member.team, team)
-                .where(
-                        usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                )
+    public List<Member> findByUsername(String username) {
+        Supplier<List<Member>> query = () -> jpaQueryFactory
+                .selectFrom(member)
+                .where(member.username.eq(username))
                 .fetch();
+        return usernameFilter != null ? usernameFilter.find(em, username, query) : query.get();
+    }
+
+    @Override
+    public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        TeamDictionary.Teams teams = teams(condition);
+        return fillTeamNames(teams, contentQuery(teams, condition).fetch());
     }
 
     @Override
     public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
-        QueryResults<MemberTeamDto> results = jpaQueryFactory
-                .select(new QMemberTeamDto(
-                        member.id.as("memberId"),
-                        member.username,
-                        member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")
-                )).from(member)
-                .leftJoin(member.team, team)
-                .where(
-                        usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                )
-                .orderBy(new OrderSpecifier(Order.DESC, member.age))
+        TeamDictionary.Teams teams = teams(condition);
+        QueryResults<MemberTeamDto> results = contentQuery(teams, condition)
+                .orderBy(orderBy(pageable))
                 .offset(pageable.getOffset())
                 .limit(pageable.getPageSize())
                 .fetchResults();
 
-        List<MemberTeamDto> contents = results.getResults();
+        List<MemberTeamDto> contents = fillTeamNames(teams, results.getResults());
         long total = results.getTotal();
 
         return new PageImpl<>(contents, pageable, total);
@@ -80,38 +98,145 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom {
 
     @Override
     public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
-        List<MemberTeamDto> contents = jpaQueryFactory
-                .select(new QMemberTeamDto(
-                        member.id.as("memberId"),
-                        member.username,
-                        member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")
-                )).from(member)
-                .leftJoin(member.team, team)
-                .where(
-                        usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                )
-                .orderBy(new OrderSpecifier(Order.DESC, member.age))
+        TeamDictionary.Teams teams = teams(condition);
+        List<MemberTeamDto> contents = contentQuery(teams, condition)
+                .orderBy(orderBy(pageable))
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .fetch();
+
+        JPAQuery<Long> countQuery = jpaQueryFactory
+                .select(member.count())
+                .from(member);
+        if (teams == null) {
+            countQuery.leftJoin(member.team, team);
+        }
+        countQuery.where(where(teams, condition));
+
+        return PageableExecutionUtils.getPage(fillTeamNames(teams, contents), pageable, countQuery::fetchOne);
+    }
+
+    @Override
+    public List<Map<String, Object>> searchFields(MemberSearchCondition condition, Set<MemberField> fields) {
+        return toMaps(fieldsQuery(condition, fields).fetch(), fields);
+    }
+
+    @Override
+    public Page<Map<String, Object>> searchPageFields(MemberSearchCondition condition, Set<MemberField> fields, Pageable pageable) {
+        List<Tuple> contents = fieldsQuery(condition, fields)
+                .orderBy(orderBy(pageable))
                 .offset(pageable.getOffset())
                 .limit(pageable.getPageSize())
                 .fetch();
 
-        JPAQuery<Member> countQuery = jpaQueryFactory
-                .select(member)
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(
-                        usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                );
+        JPAQuery<Long> countQuery = jpaQueryFactory
+                .select(member.count())
+                .from(member);
+        if (StringUtils.hasText(condition.getTeamName())) {
+            countQuery.leftJoin(member.team, team);
+        }
+        countQuery.where(where(null, condition));
 
-        return PageableExecutionUtils.getPage(contents, pageable, countQuery::fetchCount);
+        return PageableExecutionUtils.getPage(toMaps(contents, fields), pageable, countQuery::fetchOne);
+    }
+
+    @Override
+    public List<Member> findAllByIds(Collection<Long> ids) {
+        return MemberBatchLoader.findAllByIds(em, jpaQueryFactory, ids);
+    }
+
+    private OrderSpecifier<?>[] orderBy(Pageable pageable) {
+        return MemberSort.orderBy(MemberSort.resolve(pageable.getSort()), member.age, member.username, member.id);
+    }
+
+    private JPAQuery<Tuple> fieldsQuery(MemberSearchCondition condition, Set<MemberField> fields) {
+        JPAQuery<Tuple> query = jpaQueryFactory
+                .select(fields.stream().map(this::path).toArray(Expression[]::new))
+                .from(member);
+        if (MemberField.needsTeamJoin(fields, condition)) {
+            query.leftJoin(member.team, team);
+        }
+        return query.where(where(null, condition));
+    }
+
+    /**
+     * teams 가 있으면 member 만 읽어 teamId 까지 채우고, 없으면 team 을 조인해 teamName 까지 채운다.
+     */
+    private JPAQuery<MemberTeamDto> contentQuery(TeamDictionary.Teams teams, MemberSearchCondition condition) {
+        JPAQuery<MemberTeamDto> query = jpaQueryFactory
+                .select(teams != null ? MEMBER_TEAM_ID : MEMBER_TEAM)
+                .from(member);
+        if (teams == null) {
+            query.leftJoin(member.team, team);
+        }
+        return query.where(where(teams, condition));
+    }
+
+    // teams 가 있으면 teamName 조건을 team_id 조건으로 바꿔 조인을 없앤다
+    private Predicate[] where(TeamDictionary.Teams teams, MemberSearchCondition condition) {
+        return new Predicate[]{
+                usernameEq(condition.getUsername()),
+                teams != null ? teamIdIn(teams, condition.getTeamName()) : teamNameEq(condition.getTeamName()),
+                ageGoe(condition.getAgeGoe()),
+                ageLoe(condition.getAgeLoe())
+        };
+    }
+
+    private List<MemberTeamDto> fillTeamNames(TeamDictionary.Teams teams, List<MemberTeamDto> contents) {
+        return teams != null ? teams.fillTeamNames(contents, this::teamNames) : contents;
+    }
+
+    private Expression<?> path(MemberField field) {
+        switch (field) {
+            case MEMBER_ID:
+                return member.id;
+            case USERNAME:
+                return member.username;
+            case AGE:
+                return member.age;
+            case TEAM_ID:
+                // FK 컬럼으로 바로 번역되어 조인이 생기지 않는다
+                return member.team.id;
+            case TEAM_NAME:
+                return team.name;
+            default:
+                throw new IllegalArgumentException("지원하지 않는 필드입니다. field=" + field);
+        }
+    }
+
+    private List<Map<String, Object>> toMaps(List<Tuple> tuples, Set<MemberField> fields) {
+        return tuples.stream()
+                .map(tuple -> {
+                    Map<String, Object> row = new LinkedHashMap<>();
+                    int i = 0;
+                    for (MemberField field : fields) {
+                        row.put(field.getFieldName(), tuple.get(i++, Object.class));
+                    }
+                    return row;
+                })
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * team 사전을 쓸 수 있으면 사전을, 아니면 null 을 돌려준다.
+     * 사전이 팀 변경을 따라잡지 못했을 수 있거나(TeamDictionary.forSearch), teamName 조건이 사전에 없는 이름이면 조인으로 검색하도록 null.
+     */
+    private TeamDictionary.Teams teams(MemberSearchCondition condition) {
+        TeamDictionary.Teams teams = teamDictionary != null ? teamDictionary.forSearch() : null;
+        if (teams == null || (StringUtils.hasText(condition.getTeamName()) && teams.idsOf(condition.getTeamName()) == null)) {
+            return null;
+        }
+        return teams;
+    }
+
+    // 사전에 없는 팀은 이 트랜잭션에서 읽는다
+    private Map<Long, String> teamNames(Set<Long> teamIds) {
+        return jpaQueryFactory
+                .select(team.id, team.name)
+                .from(team)
+                .where(team.id.in(teamIds))
+                .fetch().stream()
+                .collect(HashMap::new, (names, row) -> names.put(row.get(team.id), row.get(team.name)), HashMap::putAll);
     }
 
     private BooleanExpression usernameEq(String username) {
@@ -122,6 +247,15 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom {
         return StringUtils.hasText(teamName) ? team.name.eq(teamName) : null;
     }
 
+    // FK 컬럼 조건이라 team 조인이 생기지 않는다
+    private BooleanExpression teamIdIn(TeamDictionary.Teams teams, String teamName) {
+        if (!StringUtils.hasText(teamName)) {
+            return null;
+        }
+        List<Long> teamIds = teams.idsOf(teamName);
+        return teamIds.size() == 1 ? member.team.id.eq(teamIds.get(0)) : member.team.id.in(teamIds);
+    }
+
     private BooleanExpression ageGoe(Integer ageGoe) {
         return ageGoe != null ? member.age.goe(ageGoe) : null;
     }
@@ -0,0 +1,21 @@
+package me.study.querydsl.repository;
+
+import me.study.querydsl.dto.MemberField;
+import me.study.querydsl.dto.MemberSearchCondition;
+import me.study.querydsl.dto.MemberTeamDto;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public interface MemberSearchRepository {
+    List<MemberTeamDto> search(MemberSearchCondition memberSearchCondition);
+    Page<MemberTeamDto> searchPageSimple(MemberSearchCondition memberSearchCondition, Pageable pageable);
+    Page<MemberTeamDto> searchPageComplex(MemberSearchCondition memberSearchCondition, Pageable pageable);
+
+    // 요청한 필드만 조회한다. 팀 필드나 팀 조건이 없으면 team 조인을 생략한다
+    List<Map<String, Object>> searchFields(MemberSearchCondition memberSearchCondition, Set<MemberField> fields);
+    Page<Map<String, Object>> searchPageFields(MemberSearchCondition memberSearchCondition, Set<MemberField> fields, Pageable pageable);
+}
@@ -0,0 +1,125 @@
+package me.study.querydsl.repository;
+
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.dsl.ComparableExpressionBase;
+import me.study.querydsl.dto.MemberTeamDto;
+import org.springframework.data.domain.Sort;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 페이징 검색의 Sort 를 검증하고 member.id tiebreaker 를 붙인다.
+ *
+ * 정렬 키는 (키, member_id) 복합 인덱스가 있는 age, username 과 PK 인 memberId 만 허용한다.
+ * tiebreaker 는 앞 키와 같은 방향으로 붙여 인덱스를 한 방향으로만 읽게 한다.
+ * 그 밖의 키, 여러 키 조합, 대소문자 무시 정렬은 전체 정렬이 필요하므로 거부한다.
+ */
+public final class MemberSort {
+
+    public static final String AGE = "age";
+    public static final String USERNAME = "username";
+    public static final String MEMBER_ID = "memberId";
+
+    private static final Set<String> INDEXED = Set.of(AGE, USERNAME, MEMBER_ID);
+
+    // 정렬 요청이 없을 때의 기존 순서 (age DESC)
+    private static final List<Sort.Order> DEFAULT = List.of(Sort.Order.desc(AGE), Sort.Order.desc(MEMBER_ID));
+
+    private MemberSort() {
+    }
+
+    /**
+     * 실제로 적용할 정렬 순서를 돌려준다. 마지막 항목은 항상 memberId 다.
+     */
+    public static List<Sort.Order> resolve(Sort sort) {
+        if (sort.isUnsorted()) {
+            return DEFAULT;
+        }
+
+        List<Sort.Order> orders = sort.toList();
+        Sort.Order first = orders.get(0);
+        validate(first);
+        if (first.getProperty().equals(MEMBER_ID)) {
+            if (orders.size() > 1) {
+                throw new UnsupportedSortException("memberId 뒤에는 정렬 키를 둘 수 없습니다. sort=" + sort);
+            }
+            return List.of(first);
+        }
+
+        Sort.Order tiebreaker = new Sort.Order(first.getDirection(), MEMBER_ID);
+        if (orders.size() > 2 || (orders.size() == 2 && !orders.get(1).equals(tiebreaker))) {
+            throw new UnsupportedSortException("정렬 키는 하나만 지정할 수 있습니다. sort=" + sort);
+        }
+        return List.of(first, tiebreaker);
+    }
+
+    /**
+     * resolve 한 순서를 각 정렬 키에 해당하는 열(엔티티 경로, 테이블 열, UNION 별칭 등)의 ORDER BY 로 바꾼다.
+     */
+    public static OrderSpecifier<?>[] orderBy(List<Sort.Order> orders, ComparableExpressionBase<?> age,
+                                              ComparableExpressionBase<?> username, ComparableExpressionBase<?> memberId) {
+        OrderSpecifier<?>[] result = new OrderSpecifier[orders.size()];
+        for (int i = 0; i < result.length; i++) {
+            Sort.Order order = orders.get(i);
+            ComparableExpressionBase<?> key;
+            switch (order.getProperty()) {
+                case AGE:
+                    key = age;
+                    break;
+                case USERNAME:
+                    key = username;
+                    break;
+                case MEMBER_ID:
+                    key = memberId;
+                    break;
+                default:
+                    throw new UnsupportedSortException("지원하지 않는 정렬 키입니다. property=" + order.getProperty());
+            }
+            result[i] = order.isAscending() ? key.asc() : key.desc();
+        }
+        return result;
+    }
+
+    /**
+     * 여러 곳에서 정렬된 결과를 병합할 때 쓰는 같은 순서의 Comparator
+     */
+    public static Comparator<MemberTeamDto> comparator(List<Sort.Order> orders) {
+        Comparator<MemberTeamDto> result = null;
+        for (Sort.Order order : orders) {
+            Comparator<MemberTeamDto> next = comparator(order.getProperty());
+            if (order.isDescending()) {
+                next = next.reversed();
+            }
+            result = result == null ? next : result.thenComparing(next);
+        }
+        return result;
+    }
+
+    private static Comparator<MemberTeamDto> comparator(String property) {
+        switch (property) {
+            case AGE:
+                return Comparator.comparingInt(MemberTeamDto::getAge);
+            case USERNAME:
+                return Comparator.comparing(MemberTeamDto::getUsername, Comparator.nullsFirst(Comparator.naturalOrder()));
+            case MEMBER_ID:
+                return Comparator.comparing(MemberTeamDto::getMemberId);
+            default:
+                throw new UnsupportedSortException("지원하지 않는 정렬 키입니다. property=" + property);
+        }
+    }
+
+    private static void validate(Sort.Order order) {
+        if (!INDEXED.contains(order.getProperty())) {
+            throw new UnsupportedSortException("인덱스가 없는 정렬 키입니다. property=" + order.getProperty()
+                    + ", 허용=" + INDEXED);
+        }
+        if (order.isIgnoreCase()) {
+            throw new UnsupportedSortException("대소문자 무시 정렬은 인덱스를 쓸 수 없습니다. property=" + order.getProperty());
+        }
+        if (order.getNullHandling() != Sort.NullHandling.NATIVE) {
+            throw new UnsupportedSortException("null 정렬 순서는 지정할 수 없습니다. property=" + order.getProperty());
+        }
+    }
+}
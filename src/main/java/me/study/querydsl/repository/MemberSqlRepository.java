@@ -0,0 +1,382 @@
+package me.study.querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.SubQueryExpression;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.core.types.dsl.PathBuilder;
+import com.querydsl.core.types.dsl.StringPath;
+import com.querydsl.sql.RelationalPath;
+import com.querydsl.sql.SQLExpressions;
+import com.querydsl.sql.SQLQuery;
+import com.querydsl.sql.SQLQueryFactory;
+import me.study.querydsl.dto.DtoProjections;
+import me.study.querydsl.dto.MemberField;
+import me.study.querydsl.dto.MemberSearchCondition;
+import me.study.querydsl.dto.MemberTeamDto;
+import me.study.querydsl.dto.QMemberTeamDto;
+import me.study.querydsl.sql.SMember;
+import me.study.querydsl.sql.SMemberArchive;
+import me.study.querydsl.sql.STeam;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * MemberRepositoryImpl 의 검색을 querydsl-sql 로 구현한다.
+ * 엔티티/HQL 변환 없이 SQL 을 바로 만들고 JDBC 결과를 DTO 로 옮긴다.
+ * SpringConnectionProvider 는 트랜잭션에 묶인 커넥션만 허용하므로 읽기 전용 트랜잭션 안에서 실행한다.
+ *
+ * includeArchived 검색은 member 와 member_archive 를 UNION ALL 한 한 문장으로 읽는다.
+ * 두 번 나눠 읽으면 그 사이 커밋된 보관 이동 때문에 같은 회원이 두 번 보이거나 빠질 수 있다.
+ * JPQL 에는 UNION 이 없으므로 MemberSearchService 는 엔진 설정과 관계없이 이 구현으로 보낸다.
+ *
+ * TeamDictionary 가 있으면 member 만 읽고 teamName 은 사전에서 채운다. includeArchived / fields 검색은 그대로 team 을 조인한다.
+ */
+@Repository
+@Transactional(readOnly = true)
+public class MemberSqlRepository implements MemberSearchRepository {
+
+    private static final SMember m = new SMember("m");
+    private static final STeam t = new STeam("t");
+    private static final SMemberArchive a = new SMemberArchive("a");
+
+    private static final Source HOT = new Source(m, m.memberId, m.username, m.age, m.teamId);
+    private static final Source ARCHIVED = new Source(a, a.memberId, a.username, a.age, a.teamId);
+
+    // UNION ALL 결과의 별칭과 열
+    private static final PathBuilder<Tuple> u = new PathBuilder<>(Tuple.class, "u");
+    private static final NumberPath<Long> uMemberId = u.getNumber("member_id", Long.class);
+    private static final StringPath uUsername = u.getString("username");
+    private static final NumberPath<Integer> uAge = u.getNumber("age", Integer.class);
+    private static final NumberPath<Long> uTeamId = u.getNumber("team_id", Long.class);
+    private static final StringPath uTeamName = u.getString("team_name");
+
+    private static final FactoryExpression<MemberTeamDto> MEMBER_TEAM = new QMemberTeamDto(
+            m.memberId, m.username, m.age, t.id, t.name);
+
+    // team 조인 없이 읽는 검색 결과. teamName 은 TeamDictionary 가 채운다
+    private static final FactoryExpression<MemberTeamDto> MEMBER_TEAM_ID = DtoProjections.fields(MemberTeamDto.class,
+            m.memberId.as("memberId"), m.username, m.age, m.teamId.as("teamId"));
+
+    private final SQLQueryFactory sqlQueryFactory;
+    // member.team-dictionary.enabled=false 면 null
+    private final TeamDictionary teamDictionary;
+
+    public MemberSqlRepository(SQLQueryFactory sqlQueryFactory, ObjectProvider<TeamDictionary> teamDictionary) {
+        this.sqlQueryFactory = sqlQueryFactory;
+        this.teamDictionary = teamDictionary.getIfAvailable();
+    }
+
+    @Override
+    public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        if (condition.isIncludeArchived()) {
+            return unionContentQuery(rows(HOT, condition), rows(ARCHIVED, condition)).fetch();
+        }
+
+        TeamDictionary.Teams teams = teams(condition);
+        return fillTeamNames(teams, contentQuery(teams, condition).fetch());
+    }
+
+    @Override
+    public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+        if (condition.isIncludeArchived()) {
+            return new PageImpl<>(unionContents(condition, pageable), pageable, unionCountQuery(condition).fetchOne());
+        }
+
+        TeamDictionary.Teams teams = teams(condition);
+        List<MemberTeamDto> contents = contentQuery(teams, condition)
+                .orderBy(orderBy(pageable))
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .fetch();
+        long total = countQuery(teams, condition).fetchOne();
+
+        return new PageImpl<>(fillTeamNames(teams, contents), pageable, total);
+    }
+
+    @Override
+    public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+        if (condition.isIncludeArchived()) {
+            SQLQuery<Long> countQuery = unionCountQuery(condition);
+            return PageableExecutionUtils.getPage(unionContents(condition, pageable), pageable, countQuery::fetchOne);
+        }
+
+        TeamDictionary.Teams teams = teams(condition);
+        List<MemberTeamDto> contents = contentQuery(teams, condition)
+                .orderBy(orderBy(pageable))
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .fetch();
+
+        SQLQuery<Long> countQuery = countQuery(teams, condition);
+
+        return PageableExecutionUtils.getPage(fillTeamNames(teams, contents), pageable, countQuery::fetchOne);
+    }
+
+    @Override
+    public List<Map<String, Object>> searchFields(MemberSearchCondition condition, Set<MemberField> fields) {
+        rejectArchived(condition);
+        return toMaps(fieldsQuery(condition, fields).fetch(), fields);
+    }
+
+    @Override
+    public Page<Map<String, Object>> searchPageFields(MemberSearchCondition condition, Set<MemberField> fields, Pageable pageable) {
+        rejectArchived(condition);
+        List<Tuple> contents = fieldsQuery(condition, fields)
+                .orderBy(orderBy(pageable))
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .fetch();
+
+        SQLQuery<Long> countQuery = sqlQueryFactory
+                .select(m.memberId.count())
+                .from(m);
+        if (StringUtils.hasText(condition.getTeamName())) {
+            countQuery.leftJoin(t).on(m.teamId.eq(t.id));
+        }
+        countQuery.where(where(condition));
+
+        return PageableExecutionUtils.getPage(toMaps(contents, fields), pageable, countQuery::fetchOne);
+    }
+
+    private OrderSpecifier<?>[] orderBy(Pageable pageable) {
+        return HOT.orderBy(MemberSort.resolve(pageable.getSort()));
+    }
+
+    private SQLQuery<Tuple> fieldsQuery(MemberSearchCondition condition, Set<MemberField> fields) {
+        SQLQuery<Tuple> query = sqlQueryFactory
+                .select(fields.stream().map(this::path).toArray(Expression[]::new))
+                .from(m);
+        if (MemberField.needsTeamJoin(fields, condition)) {
+            query.leftJoin(t).on(m.teamId.eq(t.id));
+        }
+        return query.where(where(condition));
+    }
+
+    private Expression<?> path(MemberField field) {
+        switch (field) {
+            case MEMBER_ID:
+                return m.memberId;
+            case USERNAME:
+                return m.username;
+            case AGE:
+                return m.age;
+            case TEAM_ID:
+                return m.teamId;
+            case TEAM_NAME:
+                return t.name;
+            default:
+                throw new IllegalArgumentException("지원하지 않는 필드입니다. field=" + field);
+        }
+    }
+
+    private List<Map<String, Object>> toMaps(List<Tuple> tuples, Set<MemberField> fields) {
+        return tuples.stream()
+                .map(tuple -> {
+                    Map<String, Object> row = new LinkedHashMap<>();
+                    int i = 0;
+                    for (MemberField field : fields) {
+                        row.put(field.getFieldName(), tuple.get(i++, Object.class));
+                    }
+                    return row;
+                })
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * teams 가 있으면 member 만 읽어 teamId 까지 채우고, 없으면 team 을 조인해 teamName 까지 채운다.
+     */
+    private SQLQuery<MemberTeamDto> contentQuery(TeamDictionary.Teams teams, MemberSearchCondition condition) {
+        SQLQuery<MemberTeamDto> query = sqlQueryFactory
+                .select(teams != null ? MEMBER_TEAM_ID : MEMBER_TEAM)
+                .from(m);
+        if (teams == null) {
+            query.leftJoin(t).on(m.teamId.eq(t.id));
+        }
+        return query.where(where(teams, condition));
+    }
+
+    private SQLQuery<Long> countQuery(TeamDictionary.Teams teams, MemberSearchCondition condition) {
+        SQLQuery<Long> query = sqlQueryFactory
+                .select(m.memberId.count())
+                .from(m);
+        if (teams == null) {
+            query.leftJoin(t).on(m.teamId.eq(t.id));
+        }
+        return query.where(where(teams, condition));
+    }
+
+    private List<MemberTeamDto> fillTeamNames(TeamDictionary.Teams teams, List<MemberTeamDto> contents) {
+        return teams != null ? teams.fillTeamNames(contents, this::teamNames) : contents;
+    }
+
+    /**
+     * team 사전을 쓸 수 있으면 사전을, 아니면 null 을 돌려준다.
+     * 사전이 팀 변경을 따라잡지 못했을 수 있거나(TeamDictionary.forSearch), teamName 조건이 사전에 없는 이름이면 조인으로 검색하도록 null.
+     */
+    private TeamDictionary.Teams teams(MemberSearchCondition condition) {
+        TeamDictionary.Teams teams = teamDictionary != null ? teamDictionary.forSearch() : null;
+        if (teams == null || (StringUtils.hasText(condition.getTeamName()) && teams.idsOf(condition.getTeamName()) == null)) {
+            return null;
+        }
+        return teams;
+    }
+
+    // 사전에 없는 팀은 이 트랜잭션에서 읽는다
+    private Map<Long, String> teamNames(Set<Long> teamIds) {
+        return sqlQueryFactory
+                .select(t.id, t.name)
+                .from(t)
+                .where(t.id.in(teamIds))
+                .fetch().stream()
+                .collect(HashMap::new, (names, row) -> names.put(row.get(t.id), row.get(t.name)), HashMap::putAll);
+    }
+
+    // teams 가 있으면 teamName 조건을 team_id 조건으로 바꿔 조인을 없앤다
+    private Predicate[] where(TeamDictionary.Teams teams, MemberSearchCondition condition) {
+        if (teams == null) {
+            return where(condition);
+        }
+        return new Predicate[]{
+                usernameEq(HOT, condition.getUsername()),
+                teamIdIn(teams, condition.getTeamName()),
+                ageGoe(HOT, condition.getAgeGoe()),
+                ageLoe(HOT, condition.getAgeLoe())
+        };
+    }
+
+    private Predicate[] where(MemberSearchCondition condition) {
+        return where(HOT, condition);
+    }
+
+    private Predicate[] where(Source source, MemberSearchCondition condition) {
+        return new Predicate[]{
+                usernameEq(source, condition.getUsername()),
+                teamNameEq(condition.getTeamName()),
+                ageGoe(source, condition.getAgeGoe()),
+                ageLoe(source, condition.getAgeLoe())
+        };
+    }
+
+    /**
+     * 각 테이블에서 정렬 키 인덱스로 앞쪽 offset + size 건만 읽어 합친 뒤 다시 정렬해 페이지를 자른다.
+     */
+    private List<MemberTeamDto> unionContents(MemberSearchCondition condition, Pageable pageable) {
+        List<Sort.Order> orders = MemberSort.resolve(pageable.getSort());
+        long window = pageable.getOffset() + pageable.getPageSize();
+        return unionContentQuery(
+                rows(HOT, condition).orderBy(HOT.orderBy(orders)).limit(window),
+                rows(ARCHIVED, condition).orderBy(ARCHIVED.orderBy(orders)).limit(window))
+                .orderBy(MemberSort.orderBy(orders, uAge, uUsername, uMemberId))
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .fetch();
+    }
+
+    private SQLQuery<MemberTeamDto> unionContentQuery(SubQueryExpression<Tuple> hot, SubQueryExpression<Tuple> archived) {
+        return sqlQueryFactory.query()
+                .unionAll(u, hot, archived)
+                .select(new QMemberTeamDto(uMemberId, uUsername, uAge, uTeamId, uTeamName));
+    }
+
+    private SQLQuery<Long> unionCountQuery(MemberSearchCondition condition) {
+        return sqlQueryFactory.query()
+                .unionAll(u, ids(HOT, condition), ids(ARCHIVED, condition))
+                .select(uMemberId.count());
+    }
+
+    // 두 쪽의 열 이름을 맞춰야 바깥 쿼리에서 u.member_id 처럼 읽을 수 있다
+    private SQLQuery<Tuple> rows(Source source, MemberSearchCondition condition) {
+        return SQLExpressions
+                .select(source.memberId.as("member_id"),
+                        source.username.as("username"),
+                        source.age.as("age"),
+                        t.id.as("team_id"),
+                        t.name.as("team_name"))
+                .from(source.table)
+                .leftJoin(t).on(source.teamId.eq(t.id))
+                .where(where(source, condition));
+    }
+
+    private SQLQuery<Long> ids(Source source, MemberSearchCondition condition) {
+        SQLQuery<Long> query = SQLExpressions
+                .select(source.memberId.as("member_id"))
+                .from(source.table);
+        if (StringUtils.hasText(condition.getTeamName())) {
+            query.leftJoin(t).on(source.teamId.eq(t.id));
+        }
+        return query.where(where(source, condition));
+    }
+
+    private void rejectArchived(MemberSearchCondition condition) {
+        if (condition.isIncludeArchived()) {
+            throw new IllegalArgumentException("fields 검색은 includeArchived 를 지원하지 않습니다.");
+        }
+    }
+
+    private BooleanExpression usernameEq(Source source, String username) {
+        return StringUtils.hasText(username) ? source.username.eq(username) : null;
+    }
+
+    private BooleanExpression teamNameEq(String teamName) {
+        return StringUtils.hasText(teamName) ? t.name.eq(teamName) : null;
+    }
+
+    // FK 컬럼 조건이라 team 조인이 생기지 않는다
+    private BooleanExpression teamIdIn(TeamDictionary.Teams teams, String teamName) {
+        if (!StringUtils.hasText(teamName)) {
+            return null;
+        }
+        List<Long> teamIds = teams.idsOf(teamName);
+        return teamIds.size() == 1 ? m.teamId.eq(teamIds.get(0)) : m.teamId.in(teamIds);
+    }
+
+    private BooleanExpression ageGoe(Source source, Integer ageGoe) {
+        return ageGoe != null ? source.age.goe(ageGoe) : null;
+    }
+
+    private BooleanExpression ageLoe(Source source, Integer ageLoe) {
+        return ageLoe != null ? source.age.loe(ageLoe) : null;
+    }
+
+    /**
+     * 검색 조건과 정렬에 쓰는 member / member_archive 한쪽의 열.
+     */
+    private static final class Source {
+        private final RelationalPath<?> table;
+        private final NumberPath<Long> memberId;
+        private final StringPath username;
+        private final NumberPath<Integer> age;
+        private final NumberPath<Long> teamId;
+
+        Source(RelationalPath<?> table, NumberPath<Long> memberId, StringPath username, NumberPath<Integer> age, NumberPath<Long> teamId) {
+            this.table = table;
+            this.memberId = memberId;
+            this.username = username;
+            this.age = age;
+            this.teamId = teamId;
+        }
+
+        OrderSpecifier<?>[] orderBy(List<Sort.Order> orders) {
+            return MemberSort.orderBy(orders, age, username, memberId);
+        }
+    }
+}
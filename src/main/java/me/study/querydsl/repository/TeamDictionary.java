@@ -0,0 +1,330 @@
+package me.study.querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import me.study.querydsl.change.BulkWriteListener;
+import me.study.querydsl.change.ChangeEvent;
+import me.study.querydsl.change.ChangeFeed;
+import me.study.querydsl.change.ChangeType;
+import me.study.querydsl.change.TableInvalidated;
+import me.study.querydsl.change.TeamChanged;
+import me.study.querydsl.dto.MemberTeamDto;
+import me.study.querydsl.entity.Team;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.Status;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static me.study.querydsl.entity.QTeam.team;
+
+/**
+ * team.id ↔ team.name 사전. 팀은 몇 개뿐이므로 회원 검색이 team 을 조인하지 않고
+ * teamName 조건은 member.team_id 조건으로 바꾸고, 결과의 teamName 은 조회 뒤 사전에서 채운다.
+ *
+ * 기동이 끝나면 한 번 읽고, ChangeFeed 의 TeamChanged 로 고친다. 이미 반영한 version 이하의 TeamChanged 는 버린다.
+ * bulk 연산(JDBC 대량 쓰기 포함)은 feed 의 TableInvalidated 를 받아 다시 읽는다.
+ *
+ * 팀 이름은 유일하지 않으므로 사전에 있는 이름이어도 사전이 뒤처져 있으면 다른 팀을 놓친다. 그래서 검색은 forSearch 로 사전을 받고,
+ * 다음 중 하나면 null 을 받아 team 을 조인한다.
+ * - 검색하는 트랜잭션에 아직 flush 되지 않은 Team insert / 변경이 있다
+ * - Team 을 flush 했거나 Team bulk 연산을 실행한 트랜잭션이 아직 끝나지 않았다
+ * - 그렇게 커밋된 변경을 이 사전이 feed 에서 아직 처리하지 않았다
+ * JDBC 로 팀을 만드는 쪽(TeamIdResolver)은 사전에 없는 이름만 만들므로 사전에 없는 이름은 항상 조인으로 검색한다.
+ * 결과의 teamName 은 조회 뒤 사전에서 채우고, 사전에 없는 team_id 는 검색하는 쪽의 트랜잭션에서 읽는다.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "member.team-dictionary", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(TeamDictionaryProperties.class)
+public class TeamDictionary {
+
+    private final ChangeFeed changeFeed;
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate transactionTemplate;
+    private final TeamDictionaryProperties properties;
+
+    // 아직 읽지 않았거나 팀이 maxTeams 보다 많으면 null. 바꿀 때는 새로 만들어 통째로 바꿔 끼운다
+    private volatile Teams current;
+    // 반영한 team version. 잠금 안에서만 쓴다
+    private final Map<Long, Long> versions = new HashMap<>();
+    private ChangeFeed.Subscription subscription;
+
+    @PersistenceContext
+    private EntityManager em;
+    private final EntityManagerFactory emf;
+    // Team 을 flush 했거나 Team bulk 연산을 실행하고 아직 끝나지 않은 트랜잭션 수
+    private final AtomicInteger openWrites = new AtomicInteger();
+    // 끝난 그 트랜잭션들의 변경이 모두 들어 있는 feed 위치. subscription 이 여기까지 처리해야 사전이 따라잡는다
+    private final AtomicLong staleUntil = new AtomicLong();
+    private final BulkWriteListener bulkWriteListener = this::beforeBulkWrite;
+
+    public TeamDictionary(ChangeFeed changeFeed, JPAQueryFactory queryFactory, EntityManagerFactory emf,
+                          PlatformTransactionManager transactionManager, TeamDictionaryProperties properties) {
+        this.changeFeed = changeFeed;
+        this.emf = emf;
+        this.queryFactory = queryFactory;
+        this.properties = properties;
+
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    @PostConstruct
+    void subscribe() {
+        EventListenerRegistry registry = emf.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        TeamDictionaryListener listener = new TeamDictionaryListener(this);
+        registry.appendListeners(EventType.POST_INSERT, listener);
+        registry.appendListeners(EventType.POST_UPDATE, listener);
+        registry.appendListeners(EventType.POST_DELETE, listener);
+        subscription = changeFeed.subscribe("team-dictionary", this::onChange);
+        changeFeed.addBulkWriteListener(bulkWriteListener);
+    }
+
+    @PreDestroy
+    void unsubscribe() {
+        changeFeed.removeBulkWriteListener(bulkWriteListener);
+        subscription.close();
+    }
+
+    // MemberWarmUp 보다 먼저 읽는다
+    @Order(0)
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        reload();
+    }
+
+    /**
+     * 아직 읽지 않았거나 쓸 수 없으면 null. 한 번의 검색 안에서는 같은 Teams 를 쓴다.
+     */
+    public Teams current() {
+        return current;
+    }
+
+    /**
+     * 검색에 쓸 사전. 사전이 팀 변경을 따라잡지 못했을 수 있으면 null 이고, 검색은 team 을 조인해야 한다.
+     */
+    public Teams forSearch() {
+        Teams teams = current;
+        if (teams == null || openWrites.get() > 0 || subscription.delivered() < staleUntil.get()
+                || unflushedTeamWrite()) {
+            return null;
+        }
+        return teams;
+    }
+
+    // TeamDictionaryListener 가 flush 시점에 부른다
+    void teamWritten() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            staleUntil.accumulateAndGet(changeFeed.published() + 1, Math::max);
+            return;
+        }
+        if (TransactionSynchronizationManager.hasResource(this)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+        trackUntilCompletion();
+    }
+
+    void beforeBulkWrite(Class<?> entityType) {
+        if (entityType != Team.class) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            // 실행 뒤 바로 발행되는 TableInvalidated 까지 기다린다
+            staleUntil.accumulateAndGet(changeFeed.published() + 1, Math::max);
+            return;
+        }
+        trackUntilCompletion();
+    }
+
+    // 커밋 후 발행은 afterCompletion 전에 끝나므로, 이때의 feed 위치까지 처리하면 이 트랜잭션의 변경이 사전에 들어 있다
+    private void trackUntilCompletion() {
+        openWrites.incrementAndGet();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(TeamDictionary.this);
+                staleUntil.accumulateAndGet(changeFeed.published(), Math::max);
+                openWrites.decrementAndGet();
+            }
+        });
+    }
+
+    // 검색하는 트랜잭션의 영속성 컨텍스트에 아직 DB 에 없는 Team 이나 고친 Team 이 있는지 본다
+    private boolean unflushedTeamWrite() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return false;
+        }
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        for (Map.Entry<Object, EntityEntry> entry : session.getPersistenceContextInternal().reentrantSafeEntityEntries()) {
+            if (!(entry.getKey() instanceof Team)) {
+                continue;
+            }
+            EntityEntry entityEntry = entry.getValue();
+            if (!entityEntry.isExistsInDatabase() || entityEntry.getStatus() == Status.DELETED) {
+                return true;
+            }
+            if (entityEntry.getLoadedState() == null) {
+                continue;
+            }
+            EntityPersister persister = entityEntry.getPersister();
+            Object[] state = persister.getPropertyValues(entry.getKey());
+            if (persister.findDirty(state, entityEntry.getLoadedState(), entry.getKey(), session) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void onChange(ChangeEvent event) {
+        if (event instanceof TeamChanged) {
+            TeamChanged changed = (TeamChanged) event;
+            if (changed.getType() == ChangeType.DELETE) {
+                remove(changed.getTeamId());
+            } else {
+                put(changed.getTeamId(), changed.getName(), changed.getVersion());
+            }
+        } else if (event instanceof TableInvalidated && ((TableInvalidated) event).covers(Team.class)) {
+            log.info("bulk 변경으로 team 사전을 다시 읽는다. source={}", ((TableInvalidated) event).getSource());
+            reload();
+        }
+    }
+
+    synchronized void put(Long teamId, String name, long version) {
+        Teams teams = current;
+        Long applied = versions.get(teamId);
+        if (applied != null && applied >= version) {
+            return;
+        }
+        versions.put(teamId, version);
+        if (teams != null) {
+            Map<Long, String> names = new HashMap<>(teams.namesById);
+            names.put(teamId, name);
+            current = names.size() > properties.getMaxTeams() ? null : new Teams(names);
+        }
+    }
+
+    synchronized void remove(Long teamId) {
+        // 삭제 뒤 늦게 온 변경이 되살리지 않게 한다
+        versions.put(teamId, Long.MAX_VALUE);
+        Teams teams = current;
+        if (teams != null && teams.namesById.containsKey(teamId)) {
+            Map<Long, String> names = new HashMap<>(teams.namesById);
+            names.remove(teamId);
+            current = new Teams(names);
+        }
+    }
+
+    /**
+     * 다 읽을 때까지 이전 사전을 그대로 쓴다.
+     */
+    public synchronized void reload() {
+        Long count = transactionTemplate.execute(status -> queryFactory.select(team.count()).from(team).fetchOne());
+        if (Objects.requireNonNull(count) > properties.getMaxTeams()) {
+            current = null;
+            log.warn("팀이 많아 team 사전을 쓰지 않는다. teams={}, maxTeams={}", count, properties.getMaxTeams());
+            return;
+        }
+
+        Map<Long, String> names = new HashMap<>();
+        versions.clear();
+        transactionTemplate.executeWithoutResult(status -> {
+            for (Tuple row : queryFactory.select(team.id, team.name, team.version).from(team).fetch()) {
+                names.put(row.get(team.id), row.get(team.name));
+                versions.put(row.get(team.id), row.get(team.version));
+            }
+        });
+        current = new Teams(names);
+        log.info("team 사전을 읽었다. teams={}", names.size());
+    }
+
+    /**
+     * 한 시점의 사전. 바뀌지 않는다.
+     */
+    public static final class Teams {
+
+        private final Map<Long, String> namesById;
+        private final Map<String, List<Long>> idsByName = new HashMap<>();
+
+        private Teams(Map<Long, String> namesById) {
+            this.namesById = namesById;
+            // 팀 이름은 유일하지 않다
+            namesById.forEach((id, name) -> {
+                if (name != null) {
+                    idsByName.computeIfAbsent(name, key -> new ArrayList<>()).add(id);
+                }
+            });
+        }
+
+        /**
+         * 이 이름의 팀 id. 사전에 없는 이름이면 null.
+         */
+        public List<Long> idsOf(String name) {
+            return idsByName.get(name);
+        }
+
+        /**
+         * 사전에 있는 아무 팀 이름. 팀이 없으면 empty.
+         */
+        public Optional<String> anyName() {
+            return idsByName.keySet().stream().findFirst();
+        }
+
+        /**
+         * team 조인 없이 조회한 행의 teamName 을 채운다. 사전에 없는 team_id 의 이름은 loadNames 로 한 번에 읽는다.
+         */
+        public List<MemberTeamDto> fillTeamNames(List<MemberTeamDto> rows, Function<Set<Long>, Map<Long, String>> loadNames) {
+            Set<Long> missing = new HashSet<>();
+            for (MemberTeamDto row : rows) {
+                Long teamId = row.getTeamId();
+                if (teamId != null && !namesById.containsKey(teamId)) {
+                    missing.add(teamId);
+                }
+            }
+            Map<Long, String> loaded = missing.isEmpty() ? Map.of() : loadNames.apply(missing);
+
+            for (MemberTeamDto row : rows) {
+                Long teamId = row.getTeamId();
+                if (teamId != null) {
+                    row.setTeamName(missing.contains(teamId) ? loaded.get(teamId) : namesById.get(teamId));
+                }
+            }
+            return rows;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package me.study.querydsl.repository;
+
+import me.study.querydsl.entity.Team;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+
+/**
+ * flush 시점에 Team 을 쓴 트랜잭션을 TeamDictionary 에 알린다.
+ * 그 트랜잭션이 끝나고 변경이 사전에 반영될 때까지 회원 검색은 사전 대신 team 을 조인한다.
+ */
+class TeamDictionaryListener implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private final TeamDictionary dictionary;
+
+    TeamDictionaryListener(TeamDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Team) {
+            dictionary.teamWritten();
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getEntity() instanceof Team) {
+            dictionary.teamWritten();
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Team) {
+            dictionary.teamWritten();
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+}
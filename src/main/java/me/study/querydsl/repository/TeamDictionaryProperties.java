@@ -0,0 +1,15 @@
+package me.study.querydsl.repository;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "member.team-dictionary")
+public class TeamDictionaryProperties {
+
+    private boolean enabled = false;
+    // 이보다 팀이 많으면 사전을 만들지 않고 team 조인으로 검색한다
+    private int maxTeams = 10_000;
+}
@@ -0,0 +1,15 @@
+package me.study.querydsl.repository;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * 인덱스로 처리할 수 없는 정렬 요청. 컨트롤러까지 올라가면 400 으로 응답한다.
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class UnsupportedSortException extends IllegalArgumentException {
+
+    public UnsupportedSortException(String message) {
+        super(message);
+    }
+}
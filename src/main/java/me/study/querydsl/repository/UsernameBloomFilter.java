@@ -0,0 +1,117 @@
+package me.study.querydsl.repository;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * username 용 Bloom filter. mightContain 이 false 면 그 username 은 넣은 적이 없다.
+ * 비트는 AtomicLongArray 에 CAS 로 세우므로 잠금 없이 여러 스레드가 넣고 읽는다. 지울 수는 없다.
+ */
+final class UsernameBloomFilter {
+
+    private static final double LN2 = Math.log(2);
+
+    private final AtomicLongArray words;
+    private final long bitSize;
+    private final int hashCount;
+    private final long expectedInsertions;
+    private final AtomicLong bitCount = new AtomicLong();
+    private final AtomicLong insertions = new AtomicLong();
+
+    /**
+     * expectedInsertions 개를 넣었을 때 false positive 비율이 fpp 가 되도록 크기와 해시 수를 정한다.
+     */
+    UsernameBloomFilter(long expectedInsertions, double fpp) {
+        if (expectedInsertions <= 0 || fpp <= 0 || fpp >= 1) {
+            throw new IllegalArgumentException("expectedInsertions > 0, 0 < fpp < 1 이어야 합니다. expectedInsertions="
+                    + expectedInsertions + ", fpp=" + fpp);
+        }
+        long bits = (long) Math.ceil(-expectedInsertions * Math.log(fpp) / (LN2 * LN2));
+        int wordCount = (int) Math.max(1, (bits + 63) / 64);
+        this.words = new AtomicLongArray(wordCount);
+        this.bitSize = wordCount * 64L;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitSize / expectedInsertions * LN2));
+        this.expectedInsertions = expectedInsertions;
+    }
+
+    void put(String username) {
+        long hash = hash(username);
+        long h1 = hash;
+        long h2 = mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+        boolean changed = false;
+        for (int i = 0; i < hashCount; i++) {
+            changed |= setBit(Math.floorMod(h1 + i * h2, bitSize));
+        }
+        // 이미 들어 있던(것으로 보이는) username 은 세지 않는다
+        if (changed) {
+            insertions.incrementAndGet();
+        }
+    }
+
+    boolean mightContain(String username) {
+        long hash = hash(username);
+        long h1 = hash;
+        long h2 = mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitSize);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 지금 세워진 비트 비율로 추정한 false positive 비율 (fill ^ k)
+     */
+    double expectedFpp() {
+        return Math.pow((double) bitCount.get() / bitSize, hashCount);
+    }
+
+    // 예상 개수보다 많이 넣으면 false positive 비율이 목표보다 커진다
+    boolean isSaturated() {
+        return insertions.get() > expectedInsertions;
+    }
+
+    long byteSize() {
+        return bitSize / 8;
+    }
+
+    int hashCount() {
+        return hashCount;
+    }
+
+    private boolean setBit(long bit) {
+        int index = (int) (bit >>> 6);
+        long mask = 1L << bit;
+        while (true) {
+            long word = words.get(index);
+            if ((word & mask) != 0) {
+                return false;
+            }
+            if (words.compareAndSet(index, word, word | mask)) {
+                bitCount.incrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    // 문자 단위 FNV-1a 64 를 murmur3 finalizer 로 섞는다
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb93fe1a85ec3L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
@@ -0,0 +1,364 @@
+package me.study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import me.study.querydsl.change.BulkWriteListener;
+import me.study.querydsl.change.ChangeEvent;
+import me.study.querydsl.change.ChangeFeed;
+import me.study.querydsl.change.TableInvalidated;
+import me.study.querydsl.entity.Member;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static me.study.querydsl.entity.QMember.member;
+
+/**
+ * username 으로 찾는 조회 중 DB 에 확실히 없는 username 을 Bloom filter 로 걸러 DB 왕복 없이 빈 결과를 돌려준다.
+ *
+ * filter 에는 DB 에 있는 username 과 flush 된 insert / username 변경이 들어간다.
+ * 아직 flush 되지 않은 현재 트랜잭션의 변경은 영속성 컨텍스트를 직접 확인한다.
+ * JDBC 로 회원을 넣는 쪽(csv import, upsert)은 chunk 마다 openWrites 로 연 Writes 에 커밋 전에 username 을 넣고, 커밋 / 롤백 후 닫는다.
+ * flush 되었지만 아직 커밋되지 않은 username 은 열린 Writes 에 남아 있으므로, 다시 만들 때 DB 에서 읽지 못해도 새 filter 에 옮겨 담는다.
+ * JPAQueryFactory 의 bulk 연산은 바뀐 username 을 알 수 없으므로 실행 직전부터 커밋 / 롤백 후 다시 만들 때까지 모두 있을 수 있다고 답한다.
+ * 기동 후, ChangeFeed 의 TableInvalidated 를 받았을 때, 예상 개수를 넘겨 false positive 가 늘었을 때 DB 에서 다시 만든다.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "member.username-filter", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(UsernameFilterProperties.class)
+public class UsernameFilter {
+
+    private final EntityManagerFactory emf;
+    private final ChangeFeed changeFeed;
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate transactionTemplate;
+    private final UsernameFilterProperties properties;
+
+    // 아직 만들지 않았으면 null 이고 모든 조회를 DB 로 보낸다
+    private volatile UsernameBloomFilter current;
+    // 다시 만드는 중인 filter. 그 사이 flush 된 username 도 여기에 넣는다
+    private volatile UsernameBloomFilter building;
+    // 커밋 / 롤백되지 않은 쓰기. 다시 만들 때 이 username 도 새 filter 에 넣는다
+    private final Set<Writes> openWrites = ConcurrentHashMap.newKeySet();
+
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+    // 실행되었지만 그 뒤로 아직 다시 만들지 않은 Member bulk 연산 수
+    private final AtomicInteger bulkWrites = new AtomicInteger();
+    private final BulkWriteListener bulkWriteListener = this::beforeBulkWrite;
+    private final ExecutorService rebuildExecutor;
+    private ChangeFeed.Subscription subscription;
+
+    private final Counter skipped;
+    private final Counter falsePositives;
+
+    public UsernameFilter(EntityManagerFactory emf, ChangeFeed changeFeed, JPAQueryFactory queryFactory,
+                          PlatformTransactionManager transactionManager, UsernameFilterProperties properties,
+                          MeterRegistry meterRegistry) {
+        this.emf = emf;
+        this.changeFeed = changeFeed;
+        this.queryFactory = queryFactory;
+        this.properties = properties;
+
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.transactionTemplate.setReadOnly(true);
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("username-filter-");
+        threadFactory.setDaemon(true);
+        this.rebuildExecutor = Executors.newSingleThreadExecutor(threadFactory);
+
+        this.skipped = Counter.builder("member.username.filter.lookups")
+                .tag("result", "skipped")
+                .description("filter 가 없다고 판단해 DB 조회를 건너뛴 수")
+                .register(meterRegistry);
+        this.falsePositives = Counter.builder("member.username.filter.lookups")
+                .tag("result", "false-positive")
+                .description("filter 는 있을 수 있다고 했지만 DB 에 없던 수")
+                .register(meterRegistry);
+        Gauge.builder("member.username.filter.fpp", this, UsernameFilter::observedFpp)
+                .description("관측한 false positive 비율 (false-positive / (false-positive + skipped))")
+                .register(meterRegistry);
+        Gauge.builder("member.username.filter.expected.fpp", this, filter -> filter.current == null ? 1 : filter.current.expectedFpp())
+                .description("세워진 비트 비율로 추정한 false positive 비율")
+                .register(meterRegistry);
+        Gauge.builder("member.username.filter.bytes", this, UsernameFilter::byteSize)
+                .baseUnit("bytes")
+                .description("filter 비트 배열 크기 (재생성 중이면 이전 / 새 filter 포함)")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void registerListener() {
+        EventListenerRegistry registry = emf.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        UsernameFilterListener listener = new UsernameFilterListener(this);
+        registry.appendListeners(EventType.POST_INSERT, listener);
+        registry.appendListeners(EventType.POST_UPDATE, listener);
+        subscription = changeFeed.subscribe("username-filter", this::onChange);
+        changeFeed.addBulkWriteListener(bulkWriteListener);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        changeFeed.removeBulkWriteListener(bulkWriteListener);
+        subscription.close();
+        rebuildExecutor.shutdownNow();
+    }
+
+    // MemberWarmUp 보다 먼저 읽는다
+    @Order(0)
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        rebuild();
+    }
+
+    // 엔티티 이벤트는 flush 시점에 UsernameFilterListener 가 이미 넣었으므로 bulk 변경만 본다
+    void onChange(ChangeEvent event) {
+        if (event instanceof TableInvalidated && ((TableInvalidated) event).covers(Member.class)) {
+            log.info("bulk 변경으로 username filter 를 다시 만든다. source={}", ((TableInvalidated) event).getSource());
+            rebuild();
+        }
+    }
+
+    // 트랜잭션이 끝난 뒤 다시 만들고 나서야 bulkWrites 를 내린다
+    void beforeBulkWrite(Class<?> entityType) {
+        if (entityType != Member.class) {
+            return;
+        }
+        bulkWrites.incrementAndGet();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            rebuildAfterBulkWrite();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                rebuildAfterBulkWrite();
+            }
+        });
+    }
+
+    /**
+     * username 으로 찾는 query 를 filter 를 거쳐 실행한다. 없는 username 이면 query 없이 빈 목록을 돌려준다.
+     */
+    public <T> List<T> find(EntityManager em, String username, Supplier<List<T>> query) {
+        if (username != null && !mightExist(em, username)) {
+            return new ArrayList<>();
+        }
+        List<T> result = query.get();
+        if (username != null && result.isEmpty() && current != null) {
+            falsePositives.increment();
+        }
+        return result;
+    }
+
+    /**
+     * false 면 username 이 DB 에도, 현재 영속성 컨텍스트에도 없다.
+     */
+    public boolean mightExist(EntityManager em, String username) {
+        UsernameBloomFilter filter = current;
+        if (filter == null || bulkWrites.get() > 0 || filter.mightContain(username)) {
+            return true;
+        }
+        if (inPersistenceContext(em, username)) {
+            return true;
+        }
+        skipped.increment();
+        return false;
+    }
+
+    /**
+     * 엔티티 이벤트 없이 회원을 쓰는 쪽이 트랜잭션마다 연다. 커밋 / 롤백한 뒤에 닫아야 한다.
+     */
+    public Writes openWrites() {
+        Writes writes = new Writes();
+        openWrites.add(writes);
+        return writes;
+    }
+
+    // UsernameFilterListener 가 flush 시점에 부른다. 트랜잭션이 끝날 때 닫히는 Writes 에 모은다
+    void flushed(String username) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            add(username);
+            return;
+        }
+        Writes writes = (Writes) TransactionSynchronizationManager.getResource(this);
+        if (writes == null) {
+            Writes opened = openWrites();
+            TransactionSynchronizationManager.bindResource(this, opened);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(UsernameFilter.this);
+                    opened.close();
+                }
+            });
+            writes = opened;
+        }
+        writes.put(username);
+    }
+
+    /**
+     * 회원 수의 2배를 담을 크기로 새로 만들어 바꿔 끼운다.
+     * 새 filter 를 채우는 동안 flush 된 username 은 building 에도 들어간다.
+     * 그 전에 flush 되어 아직 커밋되지 않은 username 은 DB 를 읽기 전에 열린 Writes 에서 옮겨 담는다.
+     */
+    public synchronized void rebuild() {
+        Long count = transactionTemplate.execute(status -> queryFactory.select(member.count()).from(member).fetchOne());
+        long expected = Math.max(properties.getMinExpectedInsertions(), Objects.requireNonNull(count) * 2);
+        UsernameBloomFilter next = new UsernameBloomFilter(expected, properties.getFpp());
+        building = next;
+        try {
+            // 여기서 닫혀 있는 쓰기는 아래 조회보다 먼저 커밋되었거나 롤백되었다
+            for (Writes writes : openWrites) {
+                writes.usernames.forEach(next::put);
+            }
+            List<String> usernames = transactionTemplate.execute(status ->
+                    queryFactory.select(member.username).from(member).where(member.username.isNotNull()).fetch());
+            Objects.requireNonNull(usernames).forEach(next::put);
+
+            current = next;
+        } finally {
+            building = null;
+        }
+        log.info("username filter 를 만들었다. members={}, expectedInsertions={}, bytes={}, hashes={}",
+                count, expected, next.byteSize(), next.hashCount());
+    }
+
+    // building 을 먼저 읽는다. current 를 먼저 읽으면 그 사이 끝난 재생성의 이전 filter 에만 넣을 수 있다
+    private void add(String username) {
+        if (username == null) {
+            return;
+        }
+        UsernameBloomFilter next = building;
+        if (next != null) {
+            next.put(username);
+        }
+        UsernameBloomFilter filter = current;
+        if (filter != null) {
+            filter.put(username);
+            if (filter.isSaturated()) {
+                scheduleRebuild();
+            }
+        }
+    }
+
+    private void rebuildAfterBulkWrite() {
+        try {
+            rebuildExecutor.execute(() -> {
+                try {
+                    rebuild();
+                } catch (RuntimeException e) {
+                    log.warn("username filter 재생성에 실패했다.", e);
+                } finally {
+                    bulkWrites.decrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 종료 중
+            bulkWrites.decrementAndGet();
+        }
+    }
+
+    private void scheduleRebuild() {
+        if (rebuildScheduled.compareAndSet(false, true)) {
+            rebuildExecutor.execute(() -> {
+                try {
+                    rebuild();
+                } catch (RuntimeException e) {
+                    log.warn("username filter 재생성에 실패했다.", e);
+                } finally {
+                    rebuildScheduled.set(false);
+                }
+            });
+        }
+    }
+
+    private boolean inPersistenceContext(EntityManager em, String username) {
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        for (Map.Entry<Object, EntityEntry> entry : session.getPersistenceContextInternal().reentrantSafeEntityEntries()) {
+            if (entry.getKey() instanceof Member && username.equals(((Member) entry.getKey()).getUsername())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private double observedFpp() {
+        double negatives = skipped.count() + falsePositives.count();
+        return negatives == 0 ? 0 : falsePositives.count() / negatives;
+    }
+
+    private double byteSize() {
+        long bytes = 0;
+        for (UsernameBloomFilter filter : new UsernameBloomFilter[]{current, building}) {
+            if (filter != null) {
+                bytes += filter.byteSize();
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * 한 트랜잭션에서 커밋 전에 쓴 username. 닫기 전까지는 filter 를 다시 만들어도 새 filter 에 남는다.
+     */
+    public final class Writes implements AutoCloseable {
+
+        private final Queue<String> usernames = new ConcurrentLinkedQueue<>();
+
+        private Writes() {
+        }
+
+        public void put(String username) {
+            if (username == null) {
+                return;
+            }
+            // 재생성이 옮겨 담을 수 있도록 filter 보다 먼저 넣는다
+            usernames.add(username);
+            add(username);
+        }
+
+        @Override
+        public void close() {
+            openWrites.remove(this);
+        }
+    }
+}
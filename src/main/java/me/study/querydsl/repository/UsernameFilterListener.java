@@ -0,0 +1,55 @@
+package me.study.querydsl.repository;
+
+import me.study.querydsl.entity.Member;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+
+/**
+ * 커밋이 아니라 flush 시점에 username 을 넣는다.
+ * 커밋되기 전에 넣어 두어야 다른 스레드가 커밋 직후에 찾아도 놓치지 않는다. 롤백되면 false positive 가 하나 늘 뿐이다.
+ */
+class UsernameFilterListener implements PostInsertEventListener, PostUpdateEventListener {
+
+    private final UsernameFilter filter;
+
+    UsernameFilterListener(UsernameFilter filter) {
+        this.filter = filter;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Member) {
+            filter.flushed(((Member) event.getEntity()).getUsername());
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getEntity() instanceof Member && usernameChanged(event)) {
+            filter.flushed(((Member) event.getEntity()).getUsername());
+        }
+    }
+
+    // dirty 속성을 모르는 경우(merge 등)는 바뀐 것으로 본다
+    private boolean usernameChanged(PostUpdateEvent event) {
+        int[] dirtyProperties = event.getDirtyProperties();
+        if (dirtyProperties == null) {
+            return true;
+        }
+        String[] propertyNames = event.getPersister().getPropertyNames();
+        for (int index : dirtyProperties) {
+            if ("username".equals(propertyNames[index])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+}
@@ -0,0 +1,17 @@
+package me.study.querydsl.repository;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "member.username-filter")
+public class UsernameFilterProperties {
+
+    private boolean enabled = false;
+    // 목표 false positive 비율
+    private double fpp = 0.01;
+    // 회원 수가 적어도 이만큼은 담을 수 있는 크기로 만든다 (다시 만들 때는 회원 수의 2배)
+    private long minExpectedInsertions = 10_000;
+}
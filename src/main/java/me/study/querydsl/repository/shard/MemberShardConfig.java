@@ -0,0 +1,22 @@
+package me.study.querydsl.repository.shard;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(prefix = "member.shard", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(MemberShardProperties.class)
+public class MemberShardConfig {
+
+    @Bean
+    MemberShards memberShards(MemberShardProperties properties) {
+        return new MemberShards(properties);
+    }
+
+    @Bean
+    ShardedMemberRepository shardedMemberRepository(MemberShards memberShards) {
+        return new ShardedMemberRepository(memberShards);
+    }
+}
@@ -0,0 +1,22 @@
+package me.study.querydsl.repository.shard;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "member.shard")
+public class MemberShardProperties {
+
+    private boolean enabled;
+
+    // shard 순서가 곧 라우팅 번호이므로 운영 중에 순서를 바꾸면 안 된다
+    private List<String> urls = new ArrayList<>();
+    private String username = "sa";
+    private String password = "";
+    private String ddlAuto = "create";
+}
@@ -0,0 +1,122 @@
+package me.study.querydsl.repository.shard;
+
+import me.study.querydsl.entity.Member;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.util.StringUtils;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * shard 별 DataSource / EntityManagerFactory 묶음.
+ * Member 는 소속 Team 기준으로 한 shard 에만 저장되고, 팀이 없는 Member 는 0번 shard 에 저장된다.
+ */
+public class MemberShards implements Closeable {
+
+    private final List<Shard> shards;
+
+    public MemberShards(MemberShardProperties properties) {
+        if (properties.getUrls().isEmpty()) {
+            throw new IllegalArgumentException("member.shard.urls 가 비어 있습니다.");
+        }
+
+        List<Shard> shards = new ArrayList<>();
+        for (int i = 0; i < properties.getUrls().size(); i++) {
+            shards.add(createShard(i, properties.getUrls().get(i), properties));
+        }
+        this.shards = Collections.unmodifiableList(shards);
+    }
+
+    public int size() {
+        return shards.size();
+    }
+
+    public List<Shard> all() {
+        return shards;
+    }
+
+    public Shard get(int index) {
+        return shards.get(index);
+    }
+
+    /**
+     * team_id 는 shard 마다 따로 채번되므로 전역적으로 유일한 팀 이름을 해시해 shard 를 고른다.
+     * 덕분에 teamName 조건만으로 shard 하나를 바로 찾을 수 있다.
+     */
+    public Shard forTeamName(String teamName) {
+        if (!StringUtils.hasText(teamName)) {
+            return shards.get(0);
+        }
+        return shards.get(Math.floorMod(teamName.hashCode(), shards.size()));
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Shard shard : shards) {
+            shard.close();
+        }
+    }
+
+    private Shard createShard(int index, String url, MemberShardProperties properties) {
+        DataSource dataSource = DataSourceBuilder.create()
+                .url(url)
+                .username(properties.getUsername())
+                .password(properties.getPassword())
+                .build();
+
+        Map<String, Object> jpaProperties = new HashMap<>();
+        jpaProperties.put("hibernate.hbm2ddl.auto", properties.getDdlAuto());
+        jpaProperties.put("hibernate.physical_naming_strategy",
+                "org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy");
+        jpaProperties.put("hibernate.implicit_naming_strategy",
+                "org.springframework.boot.orm.jpa.hibernate.SpringImplicitNamingStrategy");
+
+        LocalContainerEntityManagerFactoryBean factoryBean = new LocalContainerEntityManagerFactoryBean();
+        factoryBean.setPersistenceUnitName("member-shard-" + index);
+        factoryBean.setDataSource(dataSource);
+        factoryBean.setPackagesToScan(Member.class.getPackage().getName());
+        factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factoryBean.setJpaPropertyMap(jpaProperties);
+        factoryBean.afterPropertiesSet();
+
+        return new Shard(index, dataSource, factoryBean.getObject());
+    }
+
+    public static class Shard implements Closeable {
+
+        private final int index;
+        private final DataSource dataSource;
+        private final EntityManagerFactory emf;
+
+        Shard(int index, DataSource dataSource, EntityManagerFactory emf) {
+            this.index = index;
+            this.dataSource = dataSource;
+            this.emf = emf;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public EntityManagerFactory getEntityManagerFactory() {
+            return emf;
+        }
+
+        @Override
+        public void close() throws IOException {
+            emf.close();
+            if (dataSource instanceof Closeable) {
+                ((Closeable) dataSource).close();
+            }
+        }
+    }
+}
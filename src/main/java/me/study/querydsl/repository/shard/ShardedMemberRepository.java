@@ -0,0 +1,218 @@
+package me.study.querydsl.repository.shard;
+
+import com.querydsl.core.QueryModifiers;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import me.study.querydsl.dto.MemberSearchCondition;
+import me.study.querydsl.dto.MemberTeamDto;
+import me.study.querydsl.dto.QMemberTeamDto;
+import me.study.querydsl.entity.Member;
+import me.study.querydsl.entity.Team;
+import me.study.querydsl.repository.KWayMerge;
+import me.study.querydsl.repository.MemberSort;
+import me.study.querydsl.repository.shard.MemberShards.Shard;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.StringUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityTransaction;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static java.util.stream.Collectors.toList;
+import static me.study.querydsl.entity.QMember.member;
+import static me.study.querydsl.entity.QTeam.team;
+
+/**
+ * 여러 shard 에 나뉘어 저장된 Member 를 MemberRepositoryCustom 과 같은 의미로 검색한다.
+ * teamName 조건이 있으면 shard 하나만 조회하고, 없으면 모든 shard 를 병렬로 조회해 합친다.
+ */
+public class ShardedMemberRepository implements Closeable {
+
+    private final MemberShards shards;
+    private final ExecutorService executor;
+
+    public ShardedMemberRepository(MemberShards shards) {
+        this.shards = shards;
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("member-shard-");
+        threadFactory.setDaemon(true);
+        this.executor = Executors.newFixedThreadPool(shards.size(), threadFactory);
+    }
+
+    public void saveTeam(Team team) {
+        inTransaction(shards.forTeamName(team.getName()), em -> em.persist(team));
+    }
+
+    public void save(Member member) {
+        Team memberTeam = member.getTeam();
+        Shard shard = shards.forTeamName(memberTeam != null ? memberTeam.getName() : null);
+        inTransaction(shard, em -> em.persist(member));
+    }
+
+    public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        if (StringUtils.hasText(condition.getTeamName())) {
+            return fetchContent(shards.forTeamName(condition.getTeamName()), condition, Sort.unsorted(), 0, null);
+        }
+
+        List<MemberTeamDto> results = new ArrayList<>();
+        for (List<MemberTeamDto> shardResults : scatter(shard -> fetchContent(shard, condition, Sort.unsorted(), 0, null))) {
+            results.addAll(shardResults);
+        }
+        return results;
+    }
+
+    public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+        if (StringUtils.hasText(condition.getTeamName())) {
+            Shard shard = shards.forTeamName(condition.getTeamName());
+            List<MemberTeamDto> contents = fetchContent(shard, condition, pageable.getSort(), pageable.getOffset(), (long) pageable.getPageSize());
+            return new PageImpl<>(contents, pageable, fetchCount(shard, condition));
+        }
+
+        // 각 shard 에서 앞쪽 offset + size 건과 count 를 함께 가져온 뒤 같은 정렬 순서로 병합한다
+        long window = pageable.getOffset() + pageable.getPageSize();
+        List<ShardPage> shardPages = scatter(shard -> new ShardPage(
+                fetchContent(shard, condition, pageable.getSort(), 0, window),
+                fetchCount(shard, condition)));
+
+        List<List<MemberTeamDto>> sources = shardPages.stream().map(p -> p.contents).collect(toList());
+        long total = shardPages.stream().mapToLong(p -> p.total).sum();
+        List<MemberTeamDto> contents = KWayMerge.merge(sources, MemberSort.comparator(MemberSort.resolve(pageable.getSort())), pageable.getOffset(), pageable.getPageSize());
+
+        return new PageImpl<>(contents, pageable, total);
+    }
+
+    public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+        if (StringUtils.hasText(condition.getTeamName())) {
+            Shard shard = shards.forTeamName(condition.getTeamName());
+            List<MemberTeamDto> contents = fetchContent(shard, condition, pageable.getSort(), pageable.getOffset(), (long) pageable.getPageSize());
+            return PageableExecutionUtils.getPage(contents, pageable, () -> fetchCount(shard, condition));
+        }
+
+        long window = pageable.getOffset() + pageable.getPageSize();
+        List<List<MemberTeamDto>> sources = scatter(shard -> fetchContent(shard, condition, pageable.getSort(), 0, window));
+        List<MemberTeamDto> contents = KWayMerge.merge(sources, MemberSort.comparator(MemberSort.resolve(pageable.getSort())), pageable.getOffset(), pageable.getPageSize());
+
+        // 마지막 페이지처럼 content 만으로 전체 건수를 알 수 있으면 count 쿼리를 fan-out 하지 않는다
+        return PageableExecutionUtils.getPage(contents, pageable,
+                () -> scatter(shard -> fetchCount(shard, condition)).stream().mapToLong(Long::longValue).sum());
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private <R> List<R> scatter(Function<Shard, R> task) {
+        List<CompletableFuture<R>> futures = shards.all().stream()
+                .map(shard -> CompletableFuture.supplyAsync(() -> task.apply(shard), executor))
+                .collect(toList());
+
+        return futures.stream()
+                .map(CompletableFuture::join)
+                .collect(toList());
+    }
+
+    private List<MemberTeamDto> fetchContent(Shard shard, MemberSearchCondition condition, Sort sort, long offset, Long limit) {
+        return query(shard, jpaQueryFactory -> jpaQueryFactory
+                .select(new QMemberTeamDto(
+                        member.id.as("memberId"),
+                        member.username,
+                        member.age,
+                        team.id.as("teamId"),
+                        team.name.as("teamName")
+                )).from(member)
+                .leftJoin(member.team, team)
+                .where(
+                        usernameEq(condition.getUsername()),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe())
+                )
+                .orderBy(orderBy(sort))
+                .restrict(new QueryModifiers(limit, offset))
+                .fetch());
+    }
+
+    private OrderSpecifier<?>[] orderBy(Sort sort) {
+        return MemberSort.orderBy(MemberSort.resolve(sort), member.age, member.username, member.id);
+    }
+
+    private long fetchCount(Shard shard, MemberSearchCondition condition) {
+        return query(shard, jpaQueryFactory -> jpaQueryFactory
+                .select(member.count())
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(
+                        usernameEq(condition.getUsername()),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe())
+                )
+                .fetchOne());
+    }
+
+    private <R> R query(Shard shard, Function<JPAQueryFactory, R> work) {
+        EntityManager em = shard.getEntityManagerFactory().createEntityManager();
+        try {
+            return work.apply(new JPAQueryFactory(em));
+        } finally {
+            em.close();
+        }
+    }
+
+    private void inTransaction(Shard shard, Consumer<EntityManager> work) {
+        EntityManager em = shard.getEntityManagerFactory().createEntityManager();
+        EntityTransaction tx = em.getTransaction();
+        try {
+            tx.begin();
+            work.accept(em);
+            tx.commit();
+        } catch (RuntimeException e) {
+            if (tx.isActive()) {
+                tx.rollback();
+            }
+            throw e;
+        } finally {
+            em.close();
+        }
+    }
+
+    private BooleanExpression usernameEq(String username) {
+        return StringUtils.hasText(username) ? member.username.eq(username) : null;
+    }
+
+    private BooleanExpression teamNameEq(String teamName) {
+        return StringUtils.hasText(teamName) ? team.name.eq(teamName) : null;
+    }
+
+    private BooleanExpression ageGoe(Integer ageGoe) {
+        return ageGoe != null ? member.age.goe(ageGoe) : null;
+    }
+
+    private BooleanExpression ageLoe(Integer ageLoe) {
+        return ageLoe != null ? member.age.loe(ageLoe) : null;
+    }
+
+    private static class ShardPage {
+        private final List<MemberTeamDto> contents;
+        private final long total;
+
+        ShardPage(List<MemberTeamDto> contents, long total) {
+            this.contents = contents;
+            this.total = total;
+        }
+    }
+}
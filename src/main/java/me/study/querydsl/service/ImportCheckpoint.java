@@ -0,0 +1,64 @@
+package me.study.querydsl.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.List;
+
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.SYNC;
+
+/**
+ * 커밋이 끝난 chunk 번호를 파일에 한 줄씩 남긴다.
+ * 같은 입력 파일과 chunk 크기로 다시 실행하면 남아 있는 chunk 부터 이어서 적재한다.
+ */
+class ImportCheckpoint {
+
+    private final Path path;
+    private final BitSet done = new BitSet();
+
+    private ImportCheckpoint(Path path) {
+        this.path = path;
+    }
+
+    static ImportCheckpoint open(Path path, long fileSize, long chunkBytes) throws IOException {
+        ImportCheckpoint checkpoint = new ImportCheckpoint(path);
+        String signature = "size=" + fileSize + ",chunk=" + chunkBytes;
+
+        if (!Files.exists(path)) {
+            Files.write(path, List.of(signature), StandardCharsets.UTF_8, CREATE, SYNC);
+            return checkpoint;
+        }
+
+        List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+        if (lines.isEmpty() || !lines.get(0).equals(signature)) {
+            throw new IllegalStateException("checkpoint 가 다른 입력으로 만들어졌습니다. path=" + path);
+        }
+        for (String line : lines.subList(1, lines.size())) {
+            if (!line.isEmpty()) {
+                checkpoint.done.set(Integer.parseInt(line));
+            }
+        }
+        return checkpoint;
+    }
+
+    synchronized boolean isDone(int chunk) {
+        return done.get(chunk);
+    }
+
+    synchronized int doneCount() {
+        return done.cardinality();
+    }
+
+    synchronized void markDone(int chunk) throws IOException {
+        Files.write(path, List.of(String.valueOf(chunk)), StandardCharsets.UTF_8, APPEND, SYNC);
+        done.set(chunk);
+    }
+
+    void delete() throws IOException {
+        Files.deleteIfExists(path);
+    }
+}
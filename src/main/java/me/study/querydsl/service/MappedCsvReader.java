@@ -0,0 +1,153 @@
+package me.study.querydsl.service;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 메모리 매핑된 CSV 구간을 byte 단위로 읽는다.
+ * 숫자는 byte 에서 바로 파싱하고, 문자열이 꼭 필요한 필드만 String 으로 만든다.
+ */
+class MappedCsvReader {
+
+    private final ByteBuffer buffer;
+    private final int limit;
+    private int position;
+
+    // 마지막으로 읽은 따옴표 없는 필드의 구간
+    private int sliceStart;
+    private int sliceEnd;
+
+    MappedCsvReader(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.limit = buffer.limit();
+    }
+
+    boolean hasNextLine() {
+        while (position < limit && (buffer.get(position) == '\n' || buffer.get(position) == '\r')) {
+            position++;
+        }
+        return position < limit;
+    }
+
+    boolean startsWith(String prefix) {
+        byte[] bytes = prefix.getBytes(StandardCharsets.US_ASCII);
+        if (limit - position < bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if (buffer.get(position + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void skipField() {
+        if (isQuoted()) {
+            readString();
+            return;
+        }
+        nextSlice();
+    }
+
+    int readInt() {
+        nextSlice();
+        int value = 0;
+        boolean negative = false;
+        for (int i = sliceStart; i < sliceEnd; i++) {
+            byte b = buffer.get(i);
+            if (b == '-' && i == sliceStart) {
+                negative = true;
+            } else if (b >= '0' && b <= '9') {
+                value = value * 10 + (b - '0');
+            } else if (b != ' ') {
+                throw new IllegalArgumentException("숫자가 아닌 값이 있습니다. offset=" + i);
+            }
+        }
+        return negative ? -value : value;
+    }
+
+    String readString() {
+        if (!isQuoted()) {
+            nextSlice();
+            return sliceStart == sliceEnd ? null : decode(sliceStart, sliceEnd);
+        }
+
+        ByteArrayOutputStream value = new ByteArrayOutputStream();
+        position++;
+        while (position < limit) {
+            byte b = buffer.get(position++);
+            if (b == '"') {
+                if (position < limit && buffer.get(position) == '"') {
+                    value.write('"');
+                    position++;
+                    continue;
+                }
+                break;
+            }
+            value.write(b);
+        }
+        skipDelimiter();
+        return new String(value.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 따옴표 없는 필드면 true 를 돌려주고 구간은 sliceStart()/sliceEnd() 로 얻는다.
+     */
+    boolean nextRawField() {
+        if (isQuoted()) {
+            return false;
+        }
+        nextSlice();
+        return true;
+    }
+
+    int sliceStart() {
+        return sliceStart;
+    }
+
+    int sliceEnd() {
+        return sliceEnd;
+    }
+
+    void endLine() {
+        while (position < limit && buffer.get(position) != '\n') {
+            position++;
+        }
+        if (position < limit) {
+            position++;
+        }
+    }
+
+    private boolean isQuoted() {
+        return position < limit && buffer.get(position) == '"';
+    }
+
+    private void nextSlice() {
+        sliceStart = position;
+        while (position < limit) {
+            byte b = buffer.get(position);
+            if (b == ',' || b == '\n' || b == '\r') {
+                break;
+            }
+            position++;
+        }
+        sliceEnd = position;
+        skipDelimiter();
+    }
+
+    private void skipDelimiter() {
+        if (position < limit && buffer.get(position) == ',') {
+            position++;
+        }
+    }
+
+    private String decode(int start, int end) {
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
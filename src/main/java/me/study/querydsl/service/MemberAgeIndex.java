@@ -0,0 +1,517 @@
+package me.study.querydsl.service;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import me.study.querydsl.change.ChangeEvent;
+import me.study.querydsl.change.ChangeFeed;
+import me.study.querydsl.change.ChangeType;
+import me.study.querydsl.change.MemberChanged;
+import me.study.querydsl.change.TableInvalidated;
+import me.study.querydsl.change.TeamChanged;
+import me.study.querydsl.dto.MemberSearchCondition;
+import me.study.querydsl.dto.MemberTeamDto;
+import me.study.querydsl.dto.QMemberTeamDto;
+import me.study.querydsl.entity.Member;
+import me.study.querydsl.entity.Team;
+import me.study.querydsl.repository.MemberSort;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static me.study.querydsl.entity.QMember.member;
+import static me.study.querydsl.entity.QTeam.team;
+
+/**
+ * 나이 많은 순(age DESC, 동률이면 member_id DESC) 회원 검색의 앞쪽 페이지를 메모리에서 응답한다.
+ * 조건이 없거나 teamName 만 있고, 정렬이 age DESC 이고, offset + pageSize 가 maxRows 이하인 페이지만 맡는다.
+ * 그 밖의 요청은 Optional.empty() 를 돌려 DB 검색으로 넘긴다.
+ *
+ * key(전체, teamName)마다 앞쪽 maxRows * 2 건까지만 concurrent skip list 에 둔다 (Window).
+ * 전체 key 는 기동이 끝나면, teamName key 는 처음 요청될 때 DB 에서 앞쪽만 읽는다.
+ * teamName key 는 요청 스레드가 window 자리만 잡고 age-index 스레드가 잠금 밖에서 읽은 뒤 잠금 안에서 합친다.
+ * 그동안의 요청은 Optional.empty() 로 DB 검색으로 넘긴다. 요청 스레드는 잠금을 잡지 않으므로 reload 나 변경 반영을 기다리지 않는다.
+ * 이후로는 ChangeFeed 로 받은 커밋된 Member / Team 변경으로 갱신하고, 삭제나 이동으로 maxRows 보다 줄면 DB 에서 다시 채운다.
+ * 회원이 window 보다 많은 key 의 total 은 DB count 를 다음 변경이 올 때까지 캐시한다.
+ *
+ * feed 는 비동기로 전달하므로 커밋 직후 잠깐은 이전 내용을 돌려줄 수 있다.
+ * 같은 회원의 변경이 커밋 순서와 다르게 올 수 있으므로 이미 반영한 version 이하의 변경은 버린다.
+ * version 은 window 밖의 회원까지 최근 MAX_VERSIONS 명만 기억한다.
+ * 쓰기는 한 스레드씩 반영하고 읽기는 잠금 없이 한다. 그래서 반영 중인 변경 한 건은 페이지 내용과 total 에 어긋나 보일 수 있다.
+ * bulk 연산(JDBC 대량 쓰기 포함)은 feed 의 TableInvalidated 를 받아 다시 읽는다.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "member.age-index", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(MemberAgeIndexProperties.class)
+public class MemberAgeIndex {
+
+    private static final Comparator<MemberTeamDto> AGE_DESC = MemberSort.comparator(MemberSort.resolve(Sort.unsorted()));
+    private static final QMemberTeamDto MEMBER_TEAM = new QMemberTeamDto(member.id, member.username, member.age, team.id, team.name);
+    // feed capacity 보다 충분히 크게 잡는다. 이보다 늦게 발행된 이전 변경은 거르지 못한다
+    private static final int MAX_VERSIONS = 65_536;
+    private static final long DELETED = Long.MAX_VALUE;
+    // 채우기를 기다리는 teamName window 수. 넘치면 자리를 돌려주고 다음 요청에서 다시 잡는다
+    private static final int MAX_PENDING_WINDOWS = 64;
+
+    private final ChangeFeed changeFeed;
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate transactionTemplate;
+    private final MemberAgeIndexProperties properties;
+    private final ExecutorService windowExecutor;
+
+    // 아직 읽지 않았으면 null
+    private volatile State current;
+    private ChangeFeed.Subscription subscription;
+
+    public MemberAgeIndex(ChangeFeed changeFeed, JPAQueryFactory queryFactory,
+                          PlatformTransactionManager transactionManager, MemberAgeIndexProperties properties) {
+        this.changeFeed = changeFeed;
+        this.queryFactory = queryFactory;
+        this.properties = properties;
+
+        // 커밋 후 이벤트 안에서도 다시 읽을 수 있도록 끝나 가는 트랜잭션에 참여하지 않는다
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.transactionTemplate.setReadOnly(true);
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("age-index-");
+        threadFactory.setDaemon(true);
+        this.windowExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(MAX_PENDING_WINDOWS), threadFactory);
+    }
+
+    @PostConstruct
+    void subscribe() {
+        subscription = changeFeed.subscribe("age-index", this::onChange);
+    }
+
+    @PreDestroy
+    void unsubscribe() {
+        subscription.close();
+        windowExecutor.shutdownNow();
+    }
+
+    // MemberWarmUp 보다 먼저 읽는다
+    @Order(0)
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        reload();
+    }
+
+    /**
+     * 이 인덱스가 맡을 수 없는 요청이면 Optional.empty() 를 돌려준다.
+     */
+    public Optional<Page<MemberTeamDto>> findPage(MemberSearchCondition condition, Pageable pageable) {
+        State state = current;
+        if (state == null || !covers(condition, pageable)) {
+            return Optional.empty();
+        }
+
+        Window window = state.all;
+        if (StringUtils.hasText(condition.getTeamName())) {
+            window = state.byTeamName.get(condition.getTeamName());
+            if (window == null) {
+                buildTeamWindow(state, condition.getTeamName());
+                return Optional.empty();
+            }
+            if (window.building) {
+                return Optional.empty();
+            }
+        }
+        // 삭제가 몰려 다시 채우기 전이면 DB 로 넘긴다
+        if (!window.complete && window.size.get() < pageable.getOffset() + pageable.getPageSize()) {
+            return Optional.empty();
+        }
+
+        Iterator<MemberTeamDto> iterator = window.rows.iterator();
+        for (long skip = pageable.getOffset(); skip > 0 && iterator.hasNext(); skip--) {
+            iterator.next();
+        }
+
+        // 인덱스 안의 DTO 는 정렬 키이므로 호출자가 바꾸지 못하게 복사해서 내준다
+        List<MemberTeamDto> content = new ArrayList<>(pageable.getPageSize());
+        while (content.size() < pageable.getPageSize() && iterator.hasNext()) {
+            content.add(copy(iterator.next()));
+        }
+        return Optional.of(new PageImpl<>(content, pageable, total(state, window)));
+    }
+
+    private boolean covers(MemberSearchCondition condition, Pageable pageable) {
+        return pageable.isPaged()
+                && !condition.isIncludeArchived()
+                && !StringUtils.hasText(condition.getUsername())
+                && condition.getAgeGoe() == null
+                && condition.getAgeLoe() == null
+                && pageable.getOffset() + pageable.getPageSize() <= properties.getMaxRows()
+                && MemberSort.resolve(pageable.getSort()).get(0).equals(Sort.Order.desc(MemberSort.AGE));
+    }
+
+    /**
+     * feed 구독자 스레드에서 발행된 순서대로 불린다. 발행 순서는 커밋 순서와 다를 수 있다.
+     */
+    void onChange(ChangeEvent event) {
+        if (event instanceof MemberChanged) {
+            memberChanged((MemberChanged) event);
+        } else if (event instanceof TeamChanged) {
+            teamChanged((TeamChanged) event);
+        } else if (event instanceof TableInvalidated) {
+            TableInvalidated invalidated = (TableInvalidated) event;
+            if (invalidated.covers(Member.class) || invalidated.covers(Team.class)) {
+                log.info("bulk 변경으로 age index 를 다시 읽는다. source={}", invalidated.getSource());
+                reload();
+            }
+        }
+    }
+
+    synchronized void memberChanged(MemberChanged changed) {
+        State state = current;
+        long version = changed.getType() == ChangeType.DELETE ? DELETED : changed.getVersion();
+        if (state == null || !state.advance(changed.getMemberId(), version)) {
+            return;
+        }
+
+        MemberTeamDto row = null;
+        if (changed.getType() != ChangeType.DELETE) {
+            row = new MemberTeamDto(changed.getMemberId(), changed.getUsername(), changed.getAge(),
+                    changed.getTeamId(), teamName(state, changed.getTeamId()));
+        }
+        apply(state, changed.getMemberId(), row);
+        refillShortWindows(state);
+    }
+
+    synchronized void teamChanged(TeamChanged changed) {
+        State state = current;
+        if (state == null) {
+            return;
+        }
+        if (changed.getType() == ChangeType.DELETE) {
+            state.teamVersions.put(changed.getTeamId(), DELETED);
+            state.teamNames.remove(changed.getTeamId());
+            return;
+        }
+
+        Long applied = state.teamVersions.get(changed.getTeamId());
+        if (applied != null && applied >= changed.getVersion()) {
+            return;
+        }
+        state.teamVersions.put(changed.getTeamId(), changed.getVersion());
+        boolean known = state.teamNames.containsKey(changed.getTeamId());
+        String oldName = state.teamNames.put(changed.getTeamId(), changed.getName());
+        // 이름이 바뀌면 그 팀 회원의 teamName 과 teamName window 를 모두 고쳐야 하므로 다시 읽는다
+        if (known && !Objects.equals(oldName, changed.getName())) {
+            log.info("team 이름이 바뀌어 age index 를 다시 읽는다. teamId={}", changed.getTeamId());
+            reload();
+        }
+    }
+
+    /**
+     * 전체 key 의 앞쪽만 읽는다. teamName key 는 다시 요청될 때 읽는다.
+     * 읽는 동안 다른 커밋의 이벤트는 잠금에서 기다렸다가 새 state 에 반영된다. 이미 읽힌 변경은 version 으로 걸러진다.
+     * 잠금을 기다리는 것은 구독자 스레드와 age-index 스레드뿐이고 검색 요청은 이전 state 로 응답한다.
+     */
+    public synchronized void reload() {
+        State state = new State();
+        transactionTemplate.executeWithoutResult(status -> {
+            for (Tuple row : queryFactory.select(team.id, team.name, team.version).from(team).fetch()) {
+                state.teamNames.put(row.get(team.id), row.get(team.name));
+                state.teamVersions.put(row.get(team.id), row.get(team.version));
+            }
+        });
+        fill(state, state.all);
+        refillShortWindows(state);
+        current = state;
+        log.info("age index 를 읽었다. rows={}, complete={}, teams={}", state.all.size.get(), state.all.complete, state.teamNames.size());
+    }
+
+    /**
+     * teamName window 자리를 잡고 age-index 스레드에서 채운다. 이미 누가 잡았으면 아무것도 하지 않는다.
+     * 자리를 먼저 등록하므로 DB 를 읽는 동안 반영된 변경도 이 window 에 들어간다 (building 이면 offer 가 모두 받는다).
+     */
+    private void buildTeamWindow(State state, String teamName) {
+        Window window = new Window(teamName);
+        window.building = true;
+        window.filling = true;
+        if (state.byTeamName.putIfAbsent(teamName, window) != null) {
+            return;
+        }
+        try {
+            windowExecutor.execute(() -> {
+                try {
+                    fillTeamWindow(state, window);
+                } catch (RuntimeException e) {
+                    state.byTeamName.remove(teamName, window);
+                    log.warn("age index 의 team window 를 채우지 못했다. teamName={}", teamName, e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 밀려 있거나 종료 중
+            state.byTeamName.remove(teamName, window);
+        }
+    }
+
+    private void fillTeamWindow(State state, Window window) {
+        synchronized (this) {
+            if (state != current || !state.teamNames.containsValue(window.teamName)) {
+                state.byTeamName.remove(window.teamName, window);
+                return;
+            }
+        }
+        List<Tuple> loaded = load(window);
+        synchronized (this) {
+            merge(state, window, loaded);
+            window.building = false;
+            refillShortWindows(state);
+        }
+    }
+
+    /**
+     * 회원 한 명의 새 상태를 모든 window 에 반영한다. row 가 null 이면 삭제.
+     */
+    private void apply(State state, Long memberId, MemberTeamDto row) {
+        state.generation.incrementAndGet();
+        MemberTeamDto old = state.rows.remove(memberId);
+        if (old != null) {
+            state.all.remove(old);
+            Window oldTeam = state.window(old.getTeamName());
+            if (oldTeam != null) {
+                oldTeam.remove(old);
+            }
+        }
+        if (row == null) {
+            return;
+        }
+
+        boolean kept = offer(state, state.all, row);
+        Window newTeam = state.window(row.getTeamName());
+        kept |= newTeam != null && offer(state, newTeam, row);
+        if (kept) {
+            state.rows.put(memberId, row);
+        }
+    }
+
+    // window 앞쪽에 들어가면 넣고, capacity 를 넘으면 맨 뒤를 뺀다
+    private boolean offer(State state, Window window, MemberTeamDto row) {
+        if (!window.complete && !window.filling && (window.rows.isEmpty() || AGE_DESC.compare(row, window.rows.last()) > 0)) {
+            return false;
+        }
+        window.add(row);
+        if (window.size.get() > capacity()) {
+            MemberTeamDto evicted = window.rows.last();
+            window.remove(evicted);
+            window.complete = false;
+            if (evicted != row && !state.contains(evicted)) {
+                state.rows.remove(evicted.getMemberId());
+            }
+        }
+        return window.rows.contains(row);
+    }
+
+    /**
+     * window 를 DB 의 앞쪽 capacity 건으로 다시 채운다. DB 가 더 새로우면 다른 window 에도 반영한다.
+     */
+    private void fill(State state, Window window) {
+        List<Tuple> loaded = load(window);
+
+        // 채우는 동안 읽는 쪽은 앞쪽 일부만 보거나 DB 로 넘어간다
+        window.complete = false;
+        window.filling = true;
+        for (MemberTeamDto row : new ArrayList<>(window.rows)) {
+            window.remove(row);
+            if (!state.contains(row)) {
+                state.rows.remove(row.getMemberId());
+            }
+        }
+        merge(state, window, loaded);
+    }
+
+    private List<Tuple> load(Window window) {
+        BooleanExpression teamNameEq = window.teamName != null ? team.name.eq(window.teamName) : null;
+        return Objects.requireNonNull(transactionTemplate.execute(status -> queryFactory
+                .select(MEMBER_TEAM, member.version)
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(teamNameEq)
+                .orderBy(member.age.desc(), member.id.desc())
+                .limit(capacity())
+                .fetch()));
+    }
+
+    /**
+     * 읽은 행을 version 으로 걸러 window 에 넣는다. 읽은 뒤에 반영한 더 새 변경은 이미 window 에 들어 있다.
+     */
+    private void merge(State state, Window window, List<Tuple> loaded) {
+        for (Tuple tuple : loaded) {
+            MemberTeamDto row = tuple.get(MEMBER_TEAM);
+            Long memberId = row.getMemberId();
+            long version = Objects.requireNonNull(tuple.get(member.version));
+            Long applied = state.memberVersions.get(memberId);
+            if (state.advance(memberId, version)) {
+                apply(state, memberId, row);
+            } else if (applied == version) {
+                // 반영한 변경과 같은 상태다
+                MemberTeamDto known = state.rows.get(memberId);
+                window.add(known != null ? known : row);
+                state.rows.putIfAbsent(memberId, row);
+            }
+        }
+        window.total = null;
+        window.complete = loaded.size() < capacity();
+        window.filling = false;
+    }
+
+    private void refillShortWindows(State state) {
+        List<Window> windows = new ArrayList<>(state.byTeamName.values());
+        windows.add(state.all);
+        for (Window window : windows) {
+            // 처음 채우는 중인 window 는 age-index 스레드가 합칠 때 채운다
+            if (!window.building && !window.complete && window.size.get() < properties.getMaxRows()) {
+                fill(state, window);
+            }
+        }
+    }
+
+    private long total(State state, Window window) {
+        if (window.complete) {
+            return window.size.get();
+        }
+        long generation = state.generation.get();
+        long[] cached = window.total;
+        if (cached != null && cached[0] == generation) {
+            return cached[1];
+        }
+
+        Long count = transactionTemplate.execute(status -> window.teamName == null
+                ? queryFactory.select(member.count()).from(member).fetchOne()
+                : queryFactory.select(member.count()).from(member).join(member.team, team).where(team.name.eq(window.teamName)).fetchOne());
+        window.total = new long[]{generation, Objects.requireNonNull(count)};
+        return count;
+    }
+
+    // 같은 트랜잭션에서 만든 팀은 TeamChanged 가 먼저 온다. 그래도 모르는 팀이면 DB 에서 읽는다
+    private String teamName(State state, Long teamId) {
+        if (teamId == null) {
+            return null;
+        }
+        if (!state.teamNames.containsKey(teamId)) {
+            String name = transactionTemplate.execute(status ->
+                    queryFactory.select(team.name).from(team).where(team.id.eq(teamId)).fetchOne());
+            state.teamNames.put(teamId, name);
+        }
+        return state.teamNames.get(teamId);
+    }
+
+    private int capacity() {
+        return properties.getMaxRows() * 2;
+    }
+
+    private static MemberTeamDto copy(MemberTeamDto row) {
+        return new MemberTeamDto(row.getMemberId(), row.getUsername(), row.getAge(), row.getTeamId(), row.getTeamName());
+    }
+
+    private static class State {
+        final Window all = new Window(null);
+        final Map<String, Window> byTeamName = new ConcurrentHashMap<>();
+        // 변경이 오면 올려서 캐시한 total 을 버린다
+        final AtomicLong generation = new AtomicLong();
+
+        // 이하는 잠금 안에서만 쓴다
+        // 팀 이름은 null 일 수 있다
+        final Map<Long, String> teamNames = new HashMap<>();
+        final Map<Long, Long> teamVersions = new HashMap<>();
+        // window 에 들어 있는 회원의 현재 상태
+        final Map<Long, MemberTeamDto> rows = new HashMap<>();
+        // 최근 반영한 회원 version. 삭제된 회원은 DELETED
+        final Map<Long, Long> memberVersions = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+                return size() > MAX_VERSIONS;
+            }
+        };
+
+        // 이미 반영한 version 이하면 false
+        boolean advance(Long memberId, long version) {
+            Long applied = memberVersions.get(memberId);
+            if (applied != null && applied >= version) {
+                return false;
+            }
+            memberVersions.put(memberId, version);
+            return true;
+        }
+
+        Window window(String teamName) {
+            return teamName != null ? byTeamName.get(teamName) : null;
+        }
+
+        boolean contains(MemberTeamDto row) {
+            Window teamWindow = window(row.getTeamName());
+            return all.rows.contains(row) || (teamWindow != null && teamWindow.rows.contains(row));
+        }
+    }
+
+    // ConcurrentSkipListSet.size() 는 전체를 세므로 크기는 따로 센다
+    private static class Window {
+        // null 이면 전체 회원
+        final String teamName;
+        final ConcurrentSkipListSet<MemberTeamDto> rows = new ConcurrentSkipListSet<>(AGE_DESC);
+        final AtomicInteger size = new AtomicInteger();
+        // key 의 회원이 모두 들어 있으면 true. 이때 total 은 size 다
+        volatile boolean complete;
+        // DB 에서 채우는 중이면 true. 이때는 offer 가 모두 받는다
+        volatile boolean filling;
+        // 처음 채우기가 끝나지 않았으면 true. 이때 읽는 쪽은 DB 로 넘어간다
+        volatile boolean building;
+        // 캐시한 DB count {generation, total}
+        volatile long[] total;
+
+        Window(String teamName) {
+            this.teamName = teamName;
+        }
+
+        void add(MemberTeamDto row) {
+            if (rows.add(row)) {
+                size.incrementAndGet();
+            }
+        }
+
+        void remove(MemberTeamDto row) {
+            if (rows.remove(row)) {
+                size.decrementAndGet();
+            }
+        }
+    }
+}
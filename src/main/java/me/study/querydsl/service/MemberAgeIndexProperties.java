@@ -0,0 +1,16 @@
+package me.study.querydsl.service;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "member.age-index")
+public class MemberAgeIndexProperties {
+
+    private boolean enabled = false;
+    // offset + pageSize 가 이 값 이하인 앞쪽 페이지만 메모리에서 응답한다 (skip list 는 offset 까지 순서대로 건너뛴다)
+    // key 마다 이 값의 2배까지 담고, 이 값보다 줄면 DB 에서 다시 채운다
+    private int maxRows = 1_000;
+}
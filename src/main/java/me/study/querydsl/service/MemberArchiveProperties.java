@@ -0,0 +1,21 @@
+package me.study.querydsl.service;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "member.archive")
+public class MemberArchiveProperties {
+
+    // 한 트랜잭션에서 잠그고 옮기는 회원 수
+    private int chunkSize = 1_000;
+    // 초당 옮기는 회원 수 상한. 0 이하면 쉬지 않는다
+    private int maxRowsPerSecond = 5_000;
+    // archiveOverflow 는 member 가 이 수를 넘는 만큼만 옮긴다
+    private long hotRowLimit = 1_000_000;
+    private Duration progressInterval = Duration.ofSeconds(10);
+}
@@ -0,0 +1,29 @@
+package me.study.querydsl.service;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Duration;
+
+@Getter
+@ToString
+public class MemberArchiveResult {
+
+    private final long rows;
+    private final int chunks;
+    private final Duration elapsed;
+    // 중단되어 남은 회원이 있을 수 있으면 false
+    private final boolean completed;
+
+    public MemberArchiveResult(long rows, int chunks, Duration elapsed, boolean completed) {
+        this.rows = rows;
+        this.chunks = chunks;
+        this.elapsed = elapsed;
+        this.completed = completed;
+    }
+
+    public long getRowsPerSecond() {
+        long nanos = Math.max(1, elapsed.toNanos());
+        return rows * 1_000_000_000L / nanos;
+    }
+}
@@ -0,0 +1,192 @@
+package me.study.querydsl.service;
+
+import com.querydsl.core.types.Predicate;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceContext;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static me.study.querydsl.entity.QMember.member;
+
+/**
+ * 보관 조건(retention)에 맞는 회원을 member 에서 member_archive 로 옮긴다.
+ *
+ * member_id 순으로 chunkSize 건씩 잘라 chunk 마다 한 트랜잭션에서 행 잠금 → insert-select → delete 후 커밋한다.
+ * 실패하거나 중단되어도 커밋된 chunk 는 옮겨진 채로 남고, 다시 실행하면 남은 회원부터 이어서 옮긴다.
+ * 운영 중인 검색 / 쓰기와 잠금, IO 를 덜 다투도록 maxRowsPerSecond 를 넘지 않게 chunk 사이에 쉰다.
+ * 진행 상황은 progressInterval 마다 로그로 남기고 옮긴 건수는 member.archive.rows 로 센다.
+ * 캐시가 옮긴 회원을 계속 보여 주지 않도록 chunk 가 커밋될 때마다 MemberBulkChangedEvent 를 발행한다.
+ */
+@Slf4j
+@Service
+@EnableConfigurationProperties(MemberArchiveProperties.class)
+public class MemberArchiveService {
+
+    private static final String INSERT_ARCHIVE =
+            "insert into member_archive (member_id, username, age, team_id, archived_at) "
+                    + "select member_id, username, age, team_id, :archivedAt from member where member_id in (:ids)";
+    private static final String DELETE_MEMBER = "delete from member where member_id in (:ids)";
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate transactionTemplate;
+    private final MemberArchiveProperties properties;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final Counter archivedRows;
+
+    public MemberArchiveService(JPAQueryFactory queryFactory, PlatformTransactionManager transactionManager,
+                                MemberArchiveProperties properties, ApplicationEventPublisher eventPublisher,
+                                MeterRegistry meterRegistry) {
+        this.queryFactory = queryFactory;
+        this.properties = properties;
+        this.eventPublisher = eventPublisher;
+
+        // chunk 마다 따로 커밋한다
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        this.archivedRows = Counter.builder("member.archive.rows")
+                .description("member_archive 로 옮긴 회원 수")
+                .register(meterRegistry);
+    }
+
+    /**
+     * retention 에 맞는 회원을 모두 옮긴다. retention 은 QMember 기준 조건이다.
+     */
+    public MemberArchiveResult archive(Predicate retention) {
+        return archive(retention, Long.MAX_VALUE);
+    }
+
+    /**
+     * member 가 hotRowLimit 를 넘는 만큼만 retention 에 맞는 회원을 member_id 가 작은 것부터 옮긴다.
+     */
+    public MemberArchiveResult archiveOverflow(Predicate retention) {
+        Long count = transactionTemplate.execute(status -> queryFactory.select(member.count()).from(member).fetchOne());
+        long overflow = Objects.requireNonNull(count) - properties.getHotRowLimit();
+        if (overflow <= 0) {
+            return new MemberArchiveResult(0, 0, Duration.ZERO, true);
+        }
+        return archive(retention, overflow);
+    }
+
+    private MemberArchiveResult archive(Predicate retention, long maxRows) {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("member archive 가 이미 실행 중입니다.");
+        }
+
+        long start = System.nanoTime();
+        long nextReport = start + properties.getProgressInterval().toNanos();
+        long rows = 0;
+        int chunks = 0;
+        long lastId = 0;
+        boolean completed = false;
+        try {
+            while (rows < maxRows) {
+                int limit = (int) Math.min(properties.getChunkSize(), maxRows - rows);
+                List<Long> ids = moveChunk(retention, lastId, limit);
+                if (ids.isEmpty()) {
+                    completed = true;
+                    break;
+                }
+                rows += ids.size();
+                chunks++;
+                lastId = ids.get(ids.size() - 1);
+                archivedRows.increment(ids.size());
+
+                long now = System.nanoTime();
+                if (now - nextReport >= 0) {
+                    log.info("member archive 진행 중. rows={}, chunks={}, lastId={}, rows/s={}",
+                            rows, chunks, lastId, rows * 1_000_000_000L / Math.max(1, now - start));
+                    nextReport = now + properties.getProgressInterval().toNanos();
+                }
+                if (ids.size() < limit) {
+                    completed = true;
+                    break;
+                }
+                if (!throttle(start, rows)) {
+                    break;
+                }
+            }
+            // maxRows 만큼 옮기고 멈췄으면 남은 회원이 있어도 요청한 만큼은 끝났다
+            completed |= rows >= maxRows;
+        } finally {
+            running.set(false);
+        }
+
+        MemberArchiveResult result = new MemberArchiveResult(rows, chunks, Duration.ofNanos(System.nanoTime() - start), completed);
+        log.info("member archive {}. rows={}, chunks={}, elapsed={}ms, rows/s={}",
+                completed ? "완료" : "중단", result.getRows(), result.getChunks(),
+                result.getElapsed().toMillis(), result.getRowsPerSecond());
+        return result;
+    }
+
+    /**
+     * lastId 다음부터 retention 에 맞는 회원을 limit 건까지 잠그고 옮긴다.
+     * 잠근 뒤 복사하므로 복사와 삭제 사이에 다른 트랜잭션이 회원을 바꾸지 못한다.
+     */
+    private List<Long> moveChunk(Predicate retention, long lastId, int limit) {
+        return Objects.requireNonNull(transactionTemplate.execute(status -> {
+            List<Long> ids = queryFactory
+                    .select(member.id)
+                    .from(member)
+                    .where(retention, member.id.gt(lastId))
+                    .orderBy(member.id.asc())
+                    .limit(limit)
+                    .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                    .fetch();
+            if (ids.isEmpty()) {
+                return ids;
+            }
+
+            em.createNativeQuery(INSERT_ARCHIVE)
+                    .setParameter("archivedAt", new Timestamp(System.currentTimeMillis()))
+                    .setParameter("ids", ids)
+                    .executeUpdate();
+            em.createNativeQuery(DELETE_MEMBER)
+                    .setParameter("ids", ids)
+                    .executeUpdate();
+            // ChangeFeed 로는 이 chunk 가 커밋된 뒤에 나간다
+            eventPublisher.publishEvent(new MemberBulkChangedEvent("archive"));
+            return ids;
+        }));
+    }
+
+    // rows 건을 옮긴 시점이 maxRowsPerSecond 기준보다 빠르면 그만큼 쉰다. 인터럽트되면 false
+    private boolean throttle(long start, long rows) {
+        if (properties.getMaxRowsPerSecond() <= 0) {
+            return true;
+        }
+        long due = start + rows * 1_000_000_000L / properties.getMaxRowsPerSecond();
+        long wait = due - System.nanoTime();
+        if (wait <= 0) {
+            return true;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(wait);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package me.study.querydsl.service;
+
+import lombok.RequiredArgsConstructor;
+import me.study.querydsl.dto.MemberTeamDto;
+import me.study.querydsl.entity.Member;
+import me.study.querydsl.entity.Team;
+import me.study.querydsl.repository.MemberRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * id 목록으로 회원을 한 번에 조회한다. findById 를 id 마다 호출하는 대신 IN 쿼리 몇 번으로 끝낸다.
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class MemberBatchService {
+
+    public static final int MAX_IDS = 1_000;
+
+    private final MemberRepository memberRepository;
+
+    public List<MemberTeamDto> findAllByIds(Collection<Long> ids) {
+        if (ids.size() > MAX_IDS) {
+            throw new IllegalArgumentException("한 번에 조회할 수 있는 id 는 " + MAX_IDS + "개까지입니다. size=" + ids.size());
+        }
+
+        return memberRepository.findAllByIds(ids).stream()
+                .map(this::toDto)
+                .collect(toList());
+    }
+
+    private MemberTeamDto toDto(Member member) {
+        Team team = member.getTeam();
+        return new MemberTeamDto(
+                member.getId(),
+                member.getUsername(),
+                member.getAge(),
+                team != null ? team.getId() : null,
+                team != null ? team.getName() : null);
+    }
+}
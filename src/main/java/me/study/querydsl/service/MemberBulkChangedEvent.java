@@ -0,0 +1,23 @@
+package me.study.querydsl.service;
+
+import lombok.Value;
+
+/**
+ * JDBC 로 엔티티 이벤트 없이 member 테이블을 바꾼 쪽이 커밋 후 발행한다.
+ * MemberBulkChangedBridge 가 ChangeFeed 의 TableInvalidated 로 옮기고, 메모리에 member 를 들고 있는 쪽은 feed 에서 받아 다시 읽는다.
+ */
+@Value
+public class MemberBulkChangedEvent {
+    String source;
+    // TeamIdResolver 가 team 을 새로 넣었으면 true
+    boolean teamsCreated;
+
+    public MemberBulkChangedEvent(String source) {
+        this(source, false);
+    }
+
+    public MemberBulkChangedEvent(String source, boolean teamsCreated) {
+        this.source = source;
+        this.teamsCreated = teamsCreated;
+    }
+}
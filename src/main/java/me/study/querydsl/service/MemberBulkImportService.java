@@ -0,0 +1,225 @@
+package me.study.querydsl.service;
+
+import lombok.extern.slf4j.Slf4j;
+import me.study.querydsl.repository.UsernameFilter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * MemberExportService 가 만든 형식(member_id,username,age,team_name)의 CSV 를 대량 적재한다.
+ * member_id 는 무시하고 새로 채번한다.
+ *
+ * 파일을 줄 경계에 맞춘 chunk 로 나눠 chunk 마다 메모리 매핑 → JDBC batch insert → 커밋 → checkpoint 기록 순으로 처리한다.
+ * 커밋과 checkpoint 기록 사이에 중단되면 그 chunk 는 재실행 시 한 번 더 적재된다.
+ * 커밋 직후 findByUsername 이 놓치지 않도록 username 은 커밋 전에 UsernameFilter 에 넣고, 커밋 / 롤백할 때까지 Writes 를 열어 둔다.
+ */
+@Slf4j
+@Service
+public class MemberBulkImportService {
+
+    public static final long DEFAULT_CHUNK_BYTES = 8 * 1024 * 1024;
+
+    private static final String INSERT_MEMBER =
+            "insert into member (member_id, username, age, team_id, version) values (next value for hibernate_sequence, ?, ?, ?, 0)";
+    private static final int BATCH_SIZE = 1_000;
+    private static final int BOUNDARY_SCAN_SIZE = 64 * 1024;
+
+    private final DataSource dataSource;
+    private final ApplicationEventPublisher eventPublisher;
+    // member.username-filter.enabled=false 면 null
+    private final UsernameFilter usernameFilter;
+
+    public MemberBulkImportService(DataSource dataSource, ApplicationEventPublisher eventPublisher,
+                                   ObjectProvider<UsernameFilter> usernameFilter) {
+        this.dataSource = dataSource;
+        this.eventPublisher = eventPublisher;
+        this.usernameFilter = usernameFilter.getIfAvailable();
+    }
+
+    public MemberImportResult importCsv(Path source) throws IOException, SQLException {
+        return importCsv(source, Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_BYTES);
+    }
+
+    public MemberImportResult importCsv(Path source, int parallelism, long chunkBytes) throws IOException, SQLException {
+        if (chunkBytes <= 0 || chunkBytes > Integer.MAX_VALUE / 2) {
+            throw new IllegalArgumentException("chunkBytes 범위를 벗어났습니다. chunkBytes=" + chunkBytes);
+        }
+
+        long start = System.nanoTime();
+        Path checkpointPath = source.resolveSibling(source.getFileName() + ".checkpoint");
+
+        try (FileChannel channel = FileChannel.open(source, READ)) {
+            long[] boundaries = boundaries(channel, chunkBytes);
+            int chunks = boundaries.length - 1;
+            ImportCheckpoint checkpoint = ImportCheckpoint.open(checkpointPath, channel.size(), chunkBytes);
+            int resumedChunks = checkpoint.doneCount();
+            TeamIdResolver teams = TeamIdResolver.load(dataSource);
+
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("member-import-");
+            threadFactory.setDaemon(true);
+            ExecutorService executor = Executors.newFixedThreadPool(parallelism, threadFactory);
+
+            long rows = 0;
+            try {
+                List<Future<Long>> futures = new ArrayList<>();
+                for (int i = 0; i < chunks; i++) {
+                    if (checkpoint.isDone(i)) {
+                        continue;
+                    }
+                    int chunk = i;
+                    futures.add(executor.submit(() -> {
+                        long imported = importChunk(channel, boundaries[chunk], boundaries[chunk + 1], teams);
+                        checkpoint.markDone(chunk);
+                        return imported;
+                    }));
+                }
+
+                for (Future<Long> future : futures) {
+                    rows += future.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("member import 가 중단되었습니다.", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof SQLException) {
+                    throw (SQLException) e.getCause();
+                }
+                throw new IOException("member import 에 실패했습니다. checkpoint=" + checkpointPath, e.getCause());
+            } finally {
+                executor.shutdownNow();
+                // 실패했더라도 커밋된 chunk 가 있을 수 있다
+                eventPublisher.publishEvent(new MemberBulkChangedEvent("csv-import", teams.hasCreated()));
+            }
+
+            // 모든 chunk 가 커밋되었으므로 다음 실행은 처음부터 시작한다
+            checkpoint.delete();
+
+            MemberImportResult result = new MemberImportResult(rows, chunks, resumedChunks, Duration.ofNanos(System.nanoTime() - start));
+            log.info("member import 완료. rows={}, chunks={}, resumed={}, elapsed={}ms, rows/s={}",
+                    result.getRows(), result.getChunks(), result.getResumedChunks(),
+                    result.getElapsed().toMillis(), result.getRowsPerSecond());
+            return result;
+        }
+    }
+
+    private long importChunk(FileChannel channel, long from, long to, TeamIdResolver teams) throws IOException, SQLException {
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+        MappedCsvReader reader = new MappedCsvReader(mapped);
+        if (from == 0 && reader.hasNextLine() && reader.startsWith("member_id,")) {
+            reader.endLine();
+        }
+
+        UsernameFilter.Writes filterWrites = usernameFilter != null ? usernameFilter.openWrites() : null;
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_MEMBER)) {
+                long rows = 0;
+                int batched = 0;
+                while (reader.hasNextLine()) {
+                    reader.skipField();
+                    String username = reader.readString();
+                    int age = reader.readInt();
+                    long teamId = reader.nextRawField()
+                            ? teams.resolve(mapped, reader.sliceStart(), reader.sliceEnd())
+                            : teams.resolve(reader.readString());
+                    reader.endLine();
+
+                    if (filterWrites != null) {
+                        filterWrites.put(username);
+                    }
+                    statement.setString(1, username);
+                    statement.setInt(2, age);
+                    if (teamId == TeamIdResolver.NONE) {
+                        statement.setNull(3, Types.BIGINT);
+                    } else {
+                        statement.setLong(3, teamId);
+                    }
+                    statement.addBatch();
+                    rows++;
+
+                    if (++batched == BATCH_SIZE) {
+                        statement.executeBatch();
+                        batched = 0;
+                    }
+                }
+                if (batched > 0) {
+                    statement.executeBatch();
+                }
+
+                connection.commit();
+                return rows;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+        } finally {
+            if (filterWrites != null) {
+                filterWrites.close();
+            }
+        }
+    }
+
+    /**
+     * chunkBytes 간격의 위치를 다음 줄의 시작으로 밀어 chunk 경계를 만든다. 마지막 값은 파일 크기다.
+     *
+     * 따옴표로 감싼 필드에는 줄바꿈이 들어갈 수 있으므로 (MemberExportService 가 그렇게 쓴다) 파일을 처음부터 읽으며
+     * 따옴표 안인지 따라가고 따옴표 밖의 줄바꿈만 경계로 쓴다. 이스케이프된 "" 는 두 번 뒤집혀 상태가 그대로다.
+     */
+    private long[] boundaries(FileChannel channel, long chunkBytes) throws IOException {
+        long size = channel.size();
+        List<Long> boundaries = new ArrayList<>();
+        boundaries.add(0L);
+
+        ByteBuffer scan = ByteBuffer.allocate(BOUNDARY_SCAN_SIZE);
+        boolean quoted = false;
+        long nominal = chunkBytes;
+        long offset = 0;
+        while (offset < size && nominal < size) {
+            scan.clear();
+            int read = channel.read(scan, offset);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                byte b = scan.get(i);
+                if (b == '"') {
+                    quoted = !quoted;
+                } else if (b == '\n' && !quoted) {
+                    long lineStart = offset + i + 1;
+                    if (lineStart >= nominal && lineStart < size) {
+                        boundaries.add(lineStart);
+                        while (nominal <= lineStart) {
+                            nominal += chunkBytes;
+                        }
+                    }
+                }
+            }
+            offset += read;
+        }
+        boundaries.add(size);
+
+        return boundaries.stream().mapToLong(Long::longValue).toArray();
+    }
+}
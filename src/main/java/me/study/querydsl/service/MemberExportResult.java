@@ -0,0 +1,26 @@
+package me.study.querydsl.service;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Duration;
+
+@Getter
+@ToString
+public class MemberExportResult {
+
+    private final long rows;
+    private final int partitions;
+    private final Duration elapsed;
+
+    public MemberExportResult(long rows, int partitions, Duration elapsed) {
+        this.rows = rows;
+        this.partitions = partitions;
+        this.elapsed = elapsed;
+    }
+
+    public long getRowsPerSecond() {
+        long nanos = Math.max(1, elapsed.toNanos());
+        return rows * 1_000_000_000L / nanos;
+    }
+}
@@ -0,0 +1,223 @@
+package me.study.querydsl.service;
+
+import com.mysema.commons.lang.CloseableIterator;
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.hibernate.HibernateQuery;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import javax.persistence.EntityManagerFactory;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static me.study.querydsl.entity.QMember.member;
+import static me.study.querydsl.entity.QTeam.team;
+
+/**
+ * member 테이블을 id 구간으로 나눠 병렬로 읽고 CSV 로 내보낸다.
+ * 구간마다 전용 StatelessSession 에서 커서로 읽어 바로 파일에 쓰므로 메모리 사용량이 전체 건수와 무관하다.
+ * StatelessSession 은 영속성 컨텍스트, 스냅샷, flush 가 없어 대량 읽기에서 행마다 드는 비용이 가장 적다.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MemberExportService {
+
+    public static final String HEADER = "member_id,username,age,team_name\n";
+
+    private static final int FETCH_SIZE = 1_000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // 구간별 데이터 편차가 있어도 worker 가 놀지 않도록 스레드 수보다 잘게 나눈다
+    private static final int PARTITIONS_PER_THREAD = 4;
+
+    private final EntityManagerFactory emf;
+
+    public MemberExportResult exportCsv(Path target) throws IOException {
+        return exportCsv(target, Runtime.getRuntime().availableProcessors());
+    }
+
+    public MemberExportResult exportCsv(Path target, int parallelism) throws IOException {
+        long start = System.nanoTime();
+        List<IdRange> ranges = split(parallelism * PARTITIONS_PER_THREAD);
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("member-export-");
+        threadFactory.setDaemon(true);
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, threadFactory);
+
+        List<Path> parts = new ArrayList<>();
+        long rows = 0;
+        try {
+            List<Future<Long>> futures = new ArrayList<>();
+            for (int i = 0; i < ranges.size(); i++) {
+                Path part = target.resolveSibling(target.getFileName() + ".part" + i);
+                IdRange range = ranges.get(i);
+                parts.add(part);
+                futures.add(executor.submit(() -> exportRange(range, part)));
+            }
+
+            for (Future<Long> future : futures) {
+                rows += future.get();
+            }
+            combine(parts, target);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("member export 가 중단되었습니다.", e);
+        } catch (ExecutionException e) {
+            throw new IOException("member export 에 실패했습니다.", e.getCause());
+        } finally {
+            executor.shutdownNow();
+            for (Path part : parts) {
+                Files.deleteIfExists(part);
+            }
+        }
+
+        MemberExportResult result = new MemberExportResult(rows, ranges.size(), Duration.ofNanos(System.nanoTime() - start));
+        log.info("member export 완료. rows={}, partitions={}, elapsed={}ms, rows/s={}",
+                result.getRows(), result.getPartitions(), result.getElapsed().toMillis(), result.getRowsPerSecond());
+        return result;
+    }
+
+    private List<IdRange> split(int partitions) {
+        Tuple bounds = read(session -> new HibernateQuery<Void>(session)
+                .select(member.id.min(), member.id.max())
+                .from(member)
+                .fetchOne());
+
+        List<IdRange> ranges = new ArrayList<>();
+        Long min = bounds != null ? bounds.get(0, Long.class) : null;
+        Long max = bounds != null ? bounds.get(1, Long.class) : null;
+        if (min == null || max == null) {
+            return ranges;
+        }
+
+        long step = Math.max(1, (max - min + partitions) / partitions);
+        for (long from = min; from <= max; from += step) {
+            ranges.add(new IdRange(from, Math.min(max, from + step - 1)));
+        }
+        return ranges;
+    }
+
+    private long exportRange(IdRange range, Path part) {
+        return read(session -> {
+            long rows = 0;
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            StringBuilder line = new StringBuilder(128);
+
+            try (FileChannel channel = FileChannel.open(part, CREATE, TRUNCATE_EXISTING, WRITE);
+                 CloseableIterator<Tuple> rowIterator = new HibernateQuery<Void>(session)
+                         .select(member.id, member.username, member.age, team.name)
+                         .from(member)
+                         .leftJoin(member.team, team)
+                         .where(member.id.between(range.from, range.to))
+                         .orderBy(member.id.asc())
+                         .setFetchSize(FETCH_SIZE)
+                         .iterate()) {
+
+                while (rowIterator.hasNext()) {
+                    Tuple tuple = rowIterator.next();
+                    line.setLength(0);
+                    line.append(tuple.get(member.id)).append(',');
+                    appendCsv(line, tuple.get(member.username)).append(',');
+                    line.append(tuple.get(member.age)).append(',');
+                    appendCsv(line, tuple.get(team.name)).append('\n');
+
+                    byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+                    if (buffer.remaining() < bytes.length) {
+                        drain(channel, buffer);
+                    }
+                    if (bytes.length > buffer.capacity()) {
+                        channel.write(ByteBuffer.wrap(bytes));
+                    } else {
+                        buffer.put(bytes);
+                    }
+                    rows++;
+                }
+                drain(channel, buffer);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return rows;
+        });
+    }
+
+    private <R> R read(Function<StatelessSession, R> work) {
+        StatelessSession session = emf.unwrap(SessionFactory.class).openStatelessSession();
+        Transaction tx = session.beginTransaction();
+        try {
+            return work.apply(session);
+        } finally {
+            if (tx.isActive()) {
+                tx.rollback();
+            }
+            session.close();
+        }
+    }
+
+    private void combine(List<Path> parts, Path target) throws IOException {
+        try (FileChannel out = FileChannel.open(target, CREATE, TRUNCATE_EXISTING, WRITE)) {
+            ByteBuffer header = ByteBuffer.wrap(HEADER.getBytes(StandardCharsets.UTF_8));
+            while (header.hasRemaining()) {
+                out.write(header);
+            }
+
+            for (Path part : parts) {
+                try (FileChannel in = FileChannel.open(part)) {
+                    long position = 0;
+                    long size = in.size();
+                    while (position < size) {
+                        position += in.transferTo(position, size - position, out);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static StringBuilder appendCsv(StringBuilder line, String value) {
+        if (value == null) {
+            return line;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return line.append(value);
+        }
+        return line.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+
+    private static class IdRange {
+        private final long from;
+        private final long to;
+
+        IdRange(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+    }
+}
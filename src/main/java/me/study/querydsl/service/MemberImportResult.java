@@ -0,0 +1,29 @@
+package me.study.querydsl.service;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Duration;
+
+@Getter
+@ToString
+public class MemberImportResult {
+
+    private final long rows;
+    private final int chunks;
+    // 이전 실행에서 이미 커밋되어 건너뛴 chunk 수
+    private final int resumedChunks;
+    private final Duration elapsed;
+
+    public MemberImportResult(long rows, int chunks, int resumedChunks, Duration elapsed) {
+        this.rows = rows;
+        this.chunks = chunks;
+        this.resumedChunks = resumedChunks;
+        this.elapsed = elapsed;
+    }
+
+    public long getRowsPerSecond() {
+        long nanos = Math.max(1, elapsed.toNanos());
+        return rows * 1_000_000_000L / nanos;
+    }
+}
@@ -0,0 +1,22 @@
+package me.study.querydsl.service;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "member.ingest")
+public class MemberIngestProperties {
+
+    private boolean enabled;
+
+    // 아직 커밋되지 않은 write 의 최대 개수, 가득 차면 호출자가 offerTimeout 만큼 기다린다
+    private int queueCapacity = 10_000;
+    private int batchSize = 500;
+    private Duration flushInterval = Duration.ofMillis(50);
+    private Duration offerTimeout = Duration.ofSeconds(1);
+    private Duration shutdownTimeout = Duration.ofSeconds(30);
+}
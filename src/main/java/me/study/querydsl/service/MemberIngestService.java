@@ -0,0 +1,180 @@
+package me.study.querydsl.service;
+
+import lombok.extern.slf4j.Slf4j;
+import me.study.querydsl.entity.Member;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Member 저장을 큐에 모아 두었다가 batchSize 나 flushInterval 단위로 한 트랜잭션에 묶어 커밋한다 (write-behind).
+ * 호출자는 커밋 결과를 CompletableFuture 로 받는다.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "member.ingest", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(MemberIngestProperties.class)
+public class MemberIngestService {
+
+    private static final long BACKOFF_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private final TransactionTemplate transactionTemplate;
+    private final MemberIngestProperties properties;
+
+    private final ConcurrentLinkedQueue<PendingWrite> queue = new ConcurrentLinkedQueue<>();
+    // queue.size() 는 O(n) 이므로 용량은 별도 카운터로 관리한다
+    private final AtomicInteger pending = new AtomicInteger();
+    private volatile boolean running;
+    private Thread flusher;
+
+    public MemberIngestService(TransactionTemplate transactionTemplate, MemberIngestProperties properties) {
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        flusher = new Thread(this::runFlusher, "member-ingest-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * 큐가 가득 차 있으면 offerTimeout 동안 자리가 나기를 기다리고, 그래도 없으면 RejectedExecutionException 을 던진다.
+     */
+    public CompletableFuture<Long> submit(Member member) {
+        if (!running) {
+            throw new RejectedExecutionException("member ingest 가 종료되었습니다.");
+        }
+        reserve();
+
+        PendingWrite write = new PendingWrite(member);
+        queue.offer(write);
+        // shutdown 이 마지막으로 큐를 비운 뒤에 넣었을 수 있다. 다시 꺼냈다면 아무도 처리하지 않을 write 다
+        if (!running && queue.remove(write)) {
+            pending.decrementAndGet();
+            write.future.completeExceptionally(new RejectedExecutionException("member ingest 가 종료되었습니다."));
+            return write.future;
+        }
+        if (pending.get() >= properties.getBatchSize()) {
+            LockSupport.unpark(flusher);
+        }
+        return write.future;
+    }
+
+    public int getPendingCount() {
+        return pending.get();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(flusher);
+        flusher.join(properties.getShutdownTimeout().toMillis());
+        if (flusher.isAlive()) {
+            // 아직 batch 를 커밋 중이다. 여기서도 비우면 두 스레드가 동시에 flush 하므로 남은 write 는 flusher 에 맡긴다
+            log.warn("member ingest flusher 가 shutdownTimeout 안에 끝나지 않았습니다. pending={}", pending.get());
+            return;
+        }
+
+        // flusher 가 내려간 뒤에 들어온 write 까지 비운다
+        while (!queue.isEmpty()) {
+            flushQuietly();
+        }
+    }
+
+    private void reserve() {
+        long deadline = System.nanoTime() + properties.getOfferTimeout().toNanos();
+        while (true) {
+            int current = pending.get();
+            if (current < properties.getQueueCapacity()) {
+                if (pending.compareAndSet(current, current + 1)) {
+                    return;
+                }
+                continue;
+            }
+
+            if (System.nanoTime() >= deadline) {
+                throw new RejectedExecutionException("member ingest 큐가 가득 찼습니다. capacity=" + properties.getQueueCapacity());
+            }
+            LockSupport.unpark(flusher);
+            LockSupport.parkNanos(this, BACKOFF_NANOS);
+        }
+    }
+
+    private void runFlusher() {
+        long intervalNanos = properties.getFlushInterval().toNanos();
+        while (running || !queue.isEmpty()) {
+            long deadline = System.nanoTime() + intervalNanos;
+            long remaining;
+            while (running && pending.get() < properties.getBatchSize()
+                    && (remaining = deadline - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(this, remaining);
+            }
+
+            flushQuietly();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flushBatch();
+        } catch (RuntimeException e) {
+            // 실패한 batch 의 future 는 flushBatch 에서 이미 예외로 완료되었다
+            log.warn("member ingest batch 커밋 실패", e);
+        }
+    }
+
+    private void flushBatch() {
+        List<PendingWrite> batch = new ArrayList<>(properties.getBatchSize());
+        PendingWrite write;
+        while (batch.size() < properties.getBatchSize() && (write = queue.poll()) != null) {
+            batch.add(write);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (PendingWrite each : batch) {
+                    em.persist(each.member);
+                }
+            });
+        } catch (RuntimeException e) {
+            pending.addAndGet(-batch.size());
+            batch.forEach(each -> each.future.completeExceptionally(e));
+            throw e;
+        }
+
+        pending.addAndGet(-batch.size());
+        batch.forEach(each -> each.future.complete(each.member.getId()));
+    }
+
+    private static class PendingWrite {
+        private final Member member;
+        private final CompletableFuture<Long> future = new CompletableFuture<>();
+
+        PendingWrite(Member member) {
+            this.member = member;
+        }
+    }
+}
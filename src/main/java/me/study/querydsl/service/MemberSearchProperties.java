@@ -0,0 +1,23 @@
+package me.study.querydsl.service;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "member.search")
+public class MemberSearchProperties {
+
+    private Engine engine = Engine.JPA;
+
+    // 같은 조건·페이지의 동시 페이징 검색을 DB 실행 한 번으로 합친다
+    private boolean coalesce = true;
+
+    public enum Engine {
+        // JPQL → Hibernate → DTO
+        JPA,
+        // querydsl-sql → JDBC → DTO
+        SQL
+    }
+}
@@ -0,0 +1,173 @@
+package me.study.querydsl.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Value;
+import me.study.querydsl.dto.MemberField;
+import me.study.querydsl.dto.MemberSearchCondition;
+import me.study.querydsl.dto.MemberTeamDto;
+import me.study.querydsl.repository.MemberRepository;
+import me.study.querydsl.repository.MemberSearchRepository;
+import me.study.querydsl.repository.MemberSort;
+import me.study.querydsl.repository.MemberSqlRepository;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * member.search.engine 설정에 따라 JPA / querydsl-sql 검색 구현 중 하나로 위임한다.
+ *
+ * 페이징 검색은 같은 조건·페이지의 동시 요청을 SingleFlight 로 합쳐 DB 실행 한 번의 결과를 나눠 쓴다.
+ * 호출자의 트랜잭션 안에서는 아직 커밋되지 않은 변경이 보일 수 있으므로 합치지 않는다.
+ *
+ * member.age-index 가 켜져 있으면 age 순 앞쪽 페이지는 DB 대신 MemberAgeIndex 가 응답한다.
+ * 커밋된 변경만 반영된 인덱스이므로 이 역시 호출자의 트랜잭션 안에서는 쓰지 않는다.
+ *
+ * includeArchived 검색은 member_archive 와 UNION ALL 해야 하므로 엔진 설정과 관계없이 querydsl-sql 구현을 쓴다.
+ *
+ * 정렬은 리포지토리를 부르기 전에 MemberSort 로 검증한다. @Repository 안에서 던진 UnsupportedSortException 은
+ * InvalidDataAccessApiUsageException 으로 감싸져 나가므로, 400 응답이 예외 변환에 기대지 않도록 여기서 먼저 거절한다.
+ */
+@Service
+@EnableConfigurationProperties(MemberSearchProperties.class)
+public class MemberSearchService {
+
+    private final MemberRepository memberRepository;
+    private final MemberSqlRepository memberSqlRepository;
+    private final MemberSearchProperties properties;
+    // member.age-index.enabled=false 면 null
+    private final MemberAgeIndex ageIndex;
+
+    private final SingleFlight<SearchKey, Page<MemberTeamDto>> pageFlight = new SingleFlight<>();
+    private final Counter executed;
+    private final Counter coalesced;
+
+    public MemberSearchService(MemberRepository memberRepository, MemberSqlRepository memberSqlRepository,
+                               MemberSearchProperties properties, ObjectProvider<MemberAgeIndex> ageIndex,
+                               MeterRegistry meterRegistry) {
+        this.memberRepository = memberRepository;
+        this.memberSqlRepository = memberSqlRepository;
+        this.properties = properties;
+        this.ageIndex = ageIndex.getIfAvailable();
+
+        this.executed = Counter.builder("member.search.requests")
+                .tag("coalesced", "false")
+                .description("DB 에서 직접 실행한 페이징 검색 수")
+                .register(meterRegistry);
+        this.coalesced = Counter.builder("member.search.requests")
+                .tag("coalesced", "true")
+                .description("실행 중인 같은 검색의 결과를 받아간 페이징 검색 수")
+                .register(meterRegistry);
+        Gauge.builder("member.search.coalesced.ratio", this, MemberSearchService::coalescedRatio)
+                .description("합쳐진 요청 / 전체 페이징 검색 요청")
+                .register(meterRegistry);
+        Gauge.builder("member.search.inflight", pageFlight, SingleFlight::inFlightCount)
+                .description("실행 중인 서로 다른 페이징 검색 수")
+                .register(meterRegistry);
+    }
+
+    public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        return repository(condition).search(condition);
+    }
+
+    public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+        MemberSort.resolve(pageable.getSort());
+        Optional<Page<MemberTeamDto>> indexed = fromAgeIndex(condition, pageable);
+        if (indexed.isPresent()) {
+            return indexed.get();
+        }
+        return coalesce(SearchKey.of("simple", engine(condition), condition, pageable),
+                () -> repository(condition).searchPageSimple(condition, pageable));
+    }
+
+    public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+        MemberSort.resolve(pageable.getSort());
+        Optional<Page<MemberTeamDto>> indexed = fromAgeIndex(condition, pageable);
+        if (indexed.isPresent()) {
+            return indexed.get();
+        }
+        return coalesce(SearchKey.of("complex", engine(condition), condition, pageable),
+                () -> repository(condition).searchPageComplex(condition, pageable));
+    }
+
+    public List<Map<String, Object>> searchFields(MemberSearchCondition condition, Set<MemberField> fields) {
+        return repository(condition).searchFields(condition, fields);
+    }
+
+    public Page<Map<String, Object>> searchPageFields(MemberSearchCondition condition, Set<MemberField> fields, Pageable pageable) {
+        MemberSort.resolve(pageable.getSort());
+        return repository(condition).searchPageFields(condition, fields, pageable);
+    }
+
+    private Optional<Page<MemberTeamDto>> fromAgeIndex(MemberSearchCondition condition, Pageable pageable) {
+        if (ageIndex == null || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return Optional.empty();
+        }
+        return ageIndex.findPage(condition, pageable);
+    }
+
+    private Page<MemberTeamDto> coalesce(SearchKey key, Supplier<Page<MemberTeamDto>> search) {
+        if (!properties.isCoalesce() || TransactionSynchronizationManager.isActualTransactionActive()) {
+            executed.increment();
+            return search.get();
+        }
+        return pageFlight.execute(key, search, joined -> (joined ? coalesced : executed).increment());
+    }
+
+    private double coalescedRatio() {
+        double total = executed.count() + coalesced.count();
+        return total == 0 ? 0 : coalesced.count() / total;
+    }
+
+    private MemberSearchRepository repository(MemberSearchCondition condition) {
+        return engine(condition) == MemberSearchProperties.Engine.SQL ? memberSqlRepository : memberRepository;
+    }
+
+    private MemberSearchProperties.Engine engine(MemberSearchCondition condition) {
+        return condition.isIncludeArchived() ? MemberSearchProperties.Engine.SQL : properties.getEngine();
+    }
+
+    /**
+     * 결과가 같은 요청이면 같은 key 가 되도록 정규화한다.
+     * 빈 문자열은 조건 없음과 같고, 정렬은 MemberSort 가 실제로 적용하는 순서로 비교한다.
+     */
+    @Value
+    static class SearchKey {
+        String query;
+        MemberSearchProperties.Engine engine;
+        String username;
+        String teamName;
+        Integer ageGoe;
+        Integer ageLoe;
+        boolean includeArchived;
+        long offset;
+        int pageSize;
+        List<Sort.Order> orders;
+
+        static SearchKey of(String query, MemberSearchProperties.Engine engine, MemberSearchCondition condition, Pageable pageable) {
+            return new SearchKey(
+                    query,
+                    engine,
+                    StringUtils.hasText(condition.getUsername()) ? condition.getUsername() : null,
+                    StringUtils.hasText(condition.getTeamName()) ? condition.getTeamName() : null,
+                    condition.getAgeGoe(),
+                    condition.getAgeLoe(),
+                    condition.isIncludeArchived(),
+                    pageable.getOffset(),
+                    pageable.getPageSize(),
+                    MemberSort.resolve(pageable.getSort()));
+        }
+    }
+}
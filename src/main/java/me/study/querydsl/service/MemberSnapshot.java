@@ -0,0 +1,14 @@
+package me.study.querydsl.service;
+
+import lombok.Value;
+
+/**
+ * 외부 피드에서 받은 회원 한 건. MemberUpsertService 는 username 으로 기존 회원을 찾는다.
+ * teamName 이 비어 있으면 팀이 없는 회원이다.
+ */
+@Value
+public class MemberSnapshot {
+    String username;
+    int age;
+    String teamName;
+}
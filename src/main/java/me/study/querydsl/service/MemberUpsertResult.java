@@ -0,0 +1,35 @@
+package me.study.querydsl.service;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Duration;
+
+@Getter
+@ToString
+public class MemberUpsertResult {
+
+    private final long inserted;
+    private final long updated;
+    // 내용이 같아 쓰지 않고 건너뛴 건수
+    private final long unchanged;
+    private final int chunks;
+    private final Duration elapsed;
+
+    public MemberUpsertResult(long inserted, long updated, long unchanged, int chunks, Duration elapsed) {
+        this.inserted = inserted;
+        this.updated = updated;
+        this.unchanged = unchanged;
+        this.chunks = chunks;
+        this.elapsed = elapsed;
+    }
+
+    public long getRows() {
+        return inserted + updated + unchanged;
+    }
+
+    public long getRowsPerSecond() {
+        long nanos = Math.max(1, elapsed.toNanos());
+        return getRows() * 1_000_000_000L / nanos;
+    }
+}
@@ -0,0 +1,367 @@
+package me.study.querydsl.service;
+
+import lombok.extern.slf4j.Slf4j;
+import me.study.querydsl.change.ChangeFeed;
+import me.study.querydsl.change.ChangeType;
+import me.study.querydsl.change.MemberChanged;
+import me.study.querydsl.change.TeamChanged;
+import me.study.querydsl.repository.UsernameFilter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 외부 피드의 회원을 username 기준으로 대량 upsert 한다. 같은 피드를 다시 넣어도 결과가 같다.
+ *
+ * chunkSize 건씩 잘라 chunk 마다 한 트랜잭션에서 기존 행 조회 → 내용 비교 → 바뀐 행만 MERGE batch → 커밋한다.
+ * 대부분 그대로인 피드에서는 비교에서 걸러져 쓰기가 거의 없다.
+ * 같은 username 의 회원이 여럿이면 모두 같은 값으로 맞춘다.
+ *
+ * username 은 unique 가 아니므로 조회 전에 member_username_lock 의 username 행을 잠가 같은 username 의 upsert 끼리 줄 세운다.
+ * 잠금은 username 순으로 잡아 chunk 끼리 교착되지 않게 하고, 잠근 뒤 조회하므로 먼저 커밋된 upsert 의 insert 를 본다.
+ * 잠금은 JPA 쓰기와는 줄 세우지 않으므로, 기존 행은 읽은 version 을 조건으로 update 한다 (JPA 의 @Version 과 같은 낙관적 잠금).
+ * 조회 뒤에 다른 트랜잭션이 커밋해 고친 행이 0 건이면 chunk 를 롤백하고 다시 읽어 비교한다. maxAttempts 번 모두 밀리면
+ * OptimisticLockingFailureException 을 던진다.
+ * 커밋한 chunk 의 회원과 새 팀은 한 건씩 ChangeFeed 로 발행해 캐시가 테이블을 통째로 다시 읽지 않게 한다.
+ * 새 username 은 커밋 전에 UsernameFilter 에 넣고, 커밋 / 롤백할 때까지 Writes 를 열어 둔다.
+ */
+@Slf4j
+@Service
+public class MemberUpsertService {
+
+    public static final int DEFAULT_CHUNK_SIZE = 1_000;
+
+    static final int MAX_ATTEMPTS = 3;
+
+    // 새 회원은 id 를 미리 받아 둔다. 바꾼 행은 JPA 처럼 읽은 version 이 그대로일 때만 고치고 version 을 올린다
+    private static final String INSERT_MEMBER =
+            "insert into member (member_id, username, age, team_id, version) values (?, ?, ?, ?, 0)";
+    private static final String UPDATE_MEMBER =
+            "update member set age = ?, team_id = ?, version = ? where member_id = ? and version = ?";
+    private static final String NEXT_IDS = "select next value for hibernate_sequence from system_range(1, ?)";
+    // 없던 username 이면 넣고, 있으면 같은 값으로 고쳐 행 잠금만 잡는다
+    private static final String LOCK_USERNAME = "merge into member_username_lock (username) key (username) values (?)";
+
+    private final DataSource dataSource;
+    private final ChangeFeed changeFeed;
+    // member.username-filter.enabled=false 면 null
+    private final UsernameFilter usernameFilter;
+
+    public MemberUpsertService(DataSource dataSource, ChangeFeed changeFeed, ObjectProvider<UsernameFilter> usernameFilter) {
+        this.dataSource = dataSource;
+        this.changeFeed = changeFeed;
+        this.usernameFilter = usernameFilter.getIfAvailable();
+    }
+
+    public MemberUpsertResult upsert(Iterable<MemberSnapshot> snapshots) throws SQLException {
+        return upsert(snapshots, DEFAULT_CHUNK_SIZE);
+    }
+
+    public MemberUpsertResult upsert(Iterable<MemberSnapshot> snapshots, int chunkSize) throws SQLException {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize 는 1 이상이어야 합니다. chunkSize=" + chunkSize);
+        }
+
+        long start = System.nanoTime();
+        TeamIdResolver teams = TeamIdResolver.load(dataSource);
+        Counts counts = new Counts();
+        int chunks = 0;
+
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            Iterator<MemberSnapshot> iterator = snapshots.iterator();
+            List<MemberSnapshot> chunk = new ArrayList<>(chunkSize);
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == chunkSize || !iterator.hasNext()) {
+                    upsertChunk(connection, chunk, teams, counts);
+                    chunks++;
+                    chunk.clear();
+                }
+            }
+        } finally {
+            // 실패한 chunk 에서 만든 팀도 이미 커밋되었다
+            publishTeams(teams);
+        }
+
+        MemberUpsertResult result = new MemberUpsertResult(counts.inserted, counts.updated, counts.unchanged,
+                chunks, Duration.ofNanos(System.nanoTime() - start));
+        log.info("member upsert 완료. inserted={}, updated={}, unchanged={}, chunks={}, elapsed={}ms, rows/s={}",
+                result.getInserted(), result.getUpdated(), result.getUnchanged(), result.getChunks(),
+                result.getElapsed().toMillis(), result.getRowsPerSecond());
+        return result;
+    }
+
+    private void upsertChunk(Connection connection, List<MemberSnapshot> chunk, TeamIdResolver teams,
+                             Counts total) throws SQLException {
+        for (int attempt = 1; ; attempt++) {
+            Set<Row> writes = new LinkedHashSet<>();
+            Counts counts = new Counts();
+            boolean written;
+            UsernameFilter.Writes filterWrites = usernameFilter != null ? usernameFilter.openWrites() : null;
+            try {
+                written = writeChunk(connection, chunk, teams, writes, counts, filterWrites);
+                if (written) {
+                    connection.commit();
+                } else {
+                    connection.rollback();
+                }
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                if (filterWrites != null) {
+                    filterWrites.close();
+                }
+            }
+
+            if (written) {
+                total.add(counts);
+                publishTeams(teams);
+                for (Row row : writes) {
+                    changeFeed.publish(new MemberChanged(row.inserted ? ChangeType.INSERT : ChangeType.UPDATE, row.id, row.username,
+                            row.age, row.teamId == TeamIdResolver.NONE ? null : row.teamId, row.version));
+                }
+                return;
+            }
+            if (attempt == MAX_ATTEMPTS) {
+                throw new OptimisticLockingFailureException("member upsert chunk 가 동시 수정에 " + MAX_ATTEMPTS + "번 밀렸습니다.");
+            }
+            log.debug("member upsert chunk 를 다시 읽습니다. 조회 뒤에 고쳐진 회원이 있습니다. attempt={}", attempt);
+        }
+    }
+
+    /**
+     * @return 조회 뒤에 다른 트랜잭션이 고친 행이 있어 다시 해야 하면 false
+     */
+    private boolean writeChunk(Connection connection, List<MemberSnapshot> chunk, TeamIdResolver teams,
+                               Set<Row> writes, Counts counts, UsernameFilter.Writes filterWrites) throws SQLException {
+        Map<String, List<Row>> current = load(connection, chunk);
+
+        // 같은 username 이 chunk 안에 다시 나오면 앞에서 바꾼 값과 비교한다
+        for (MemberSnapshot snapshot : chunk) {
+            long teamId = teams.resolve(snapshot.getTeamName());
+            List<Row> rows = current.get(snapshot.getUsername());
+            if (rows == null) {
+                Row row = new Row(null, snapshot.getUsername(), snapshot.getAge(), teamId, 0);
+                row.inserted = true;
+                current.put(snapshot.getUsername(), new ArrayList<>(List.of(row)));
+                writes.add(row);
+                counts.inserted++;
+                continue;
+            }
+
+            boolean changed = false;
+            for (Row row : rows) {
+                if (row.age != snapshot.getAge() || row.teamId != teamId) {
+                    row.age = snapshot.getAge();
+                    row.teamId = teamId;
+                    // chunk 안에서 여러 번 바뀌어도 한 번만 쓰므로 version 도 한 번만 올린다. 이번 chunk 에서 넣는 행은 0 그대로
+                    if (writes.add(row) && !row.inserted) {
+                        row.version++;
+                    }
+                    changed = true;
+                }
+            }
+            if (changed) {
+                counts.updated++;
+            } else {
+                counts.unchanged++;
+            }
+        }
+
+        if (writes.isEmpty()) {
+            return true;
+        }
+        assignIds(connection, writes);
+        insert(connection, writes);
+        if (!update(connection, writes)) {
+            return false;
+        }
+        if (filterWrites != null) {
+            for (Row row : writes) {
+                if (row.inserted) {
+                    filterWrites.put(row.username);
+                }
+            }
+        }
+        return true;
+    }
+
+    // 회원보다 먼저 발행해 구독자가 새 팀 이름을 알고 있게 한다
+    private void publishTeams(TeamIdResolver teams) {
+        teams.takeCreated().forEach((id, name) -> changeFeed.publish(new TeamChanged(ChangeType.INSERT, id, name, 0)));
+    }
+
+    // 정렬해서 잡아 두 chunk 가 서로의 잠금을 기다리지 않게 한다
+    private void lock(Connection connection, List<String> usernames) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(LOCK_USERNAME)) {
+            for (String username : new TreeSet<>(usernames)) {
+                statement.setString(1, username);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    private Map<String, List<Row>> load(Connection connection, List<MemberSnapshot> chunk) throws SQLException {
+        List<String> usernames = new ArrayList<>(chunk.size());
+        for (MemberSnapshot snapshot : chunk) {
+            if (snapshot.getUsername() == null || snapshot.getUsername().isEmpty()) {
+                throw new IllegalArgumentException("username 이 없는 회원은 upsert 할 수 없습니다. snapshot=" + snapshot);
+            }
+            usernames.add(snapshot.getUsername());
+        }
+        lock(connection, usernames);
+
+        String sql = "select member_id, username, age, team_id, version from member where username in ("
+                + String.join(", ", Collections.nCopies(usernames.size(), "?")) + ")";
+        Map<String, List<Row>> rows = new HashMap<>();
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < usernames.size(); i++) {
+                statement.setString(i + 1, usernames.get(i));
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    long id = resultSet.getLong(1);
+                    String username = resultSet.getString(2);
+                    int age = resultSet.getInt(3);
+                    long teamId = resultSet.getLong(4);
+                    boolean noTeam = resultSet.wasNull();
+                    long version = resultSet.getLong(5);
+                    Row row = new Row(id, username, age, noTeam ? TeamIdResolver.NONE : teamId, version);
+                    rows.computeIfAbsent(row.username, key -> new ArrayList<>()).add(row);
+                }
+            }
+        }
+        return rows;
+    }
+
+    // 새 회원 수만큼 sequence 를 한 번에 받는다
+    private void assignIds(Connection connection, Set<Row> writes) throws SQLException {
+        List<Row> inserts = new ArrayList<>();
+        for (Row row : writes) {
+            if (row.id == null) {
+                inserts.add(row);
+            }
+        }
+        if (inserts.isEmpty()) {
+            return;
+        }
+
+        try (PreparedStatement statement = connection.prepareStatement(NEXT_IDS)) {
+            statement.setInt(1, inserts.size());
+            try (ResultSet resultSet = statement.executeQuery()) {
+                for (Row row : inserts) {
+                    resultSet.next();
+                    row.id = resultSet.getLong(1);
+                }
+            }
+        }
+    }
+
+    private void insert(Connection connection, Set<Row> writes) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_MEMBER)) {
+            int batched = 0;
+            for (Row row : writes) {
+                if (!row.inserted) {
+                    continue;
+                }
+                statement.setLong(1, row.id);
+                statement.setString(2, row.username);
+                statement.setInt(3, row.age);
+                setTeamId(statement, 4, row.teamId);
+                statement.addBatch();
+                batched++;
+            }
+            if (batched > 0) {
+                statement.executeBatch();
+            }
+        }
+    }
+
+    /**
+     * @return 읽은 version 이 그대로여서 모든 행을 고쳤으면 true
+     */
+    private boolean update(Connection connection, Set<Row> writes) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(UPDATE_MEMBER)) {
+            int batched = 0;
+            for (Row row : writes) {
+                if (row.inserted) {
+                    continue;
+                }
+                statement.setInt(1, row.age);
+                setTeamId(statement, 2, row.teamId);
+                statement.setLong(3, row.version);
+                statement.setLong(4, row.id);
+                statement.setLong(5, row.version - 1);
+                statement.addBatch();
+                batched++;
+            }
+            if (batched == 0) {
+                return true;
+            }
+            for (int count : statement.executeBatch()) {
+                if (count == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static void setTeamId(PreparedStatement statement, int index, long teamId) throws SQLException {
+        if (teamId == TeamIdResolver.NONE) {
+            statement.setNull(index, Types.BIGINT);
+        } else {
+            statement.setLong(index, teamId);
+        }
+    }
+
+    private static class Row {
+        private Long id;
+        private final String username;
+        private int age;
+        private long teamId;
+        private long version;
+        // 이번 chunk 에서 새로 넣는 행
+        private boolean inserted;
+
+        Row(Long id, String username, int age, long teamId, long version) {
+            this.id = id;
+            this.username = username;
+            this.age = age;
+            this.teamId = teamId;
+            this.version = version;
+        }
+    }
+
+    private static class Counts {
+        private long inserted;
+        private long updated;
+        private long unchanged;
+
+        void add(Counts chunk) {
+            inserted += chunk.inserted;
+            updated += chunk.updated;
+            unchanged += chunk.unchanged;
+        }
+    }
+}
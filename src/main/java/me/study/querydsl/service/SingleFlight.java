@@ -0,0 +1,119 @@
+package me.study.querydsl.service;
+
+import me.study.querydsl.deadline.Deadline;
+import me.study.querydsl.deadline.DeadlineExceededException;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * 같은 key 로 동시에 들어온 호출을 하나의 실행으로 합친다.
+ *
+ * 먼저 온 호출(leader)만 work 를 실행하고, 실행 중에 들어온 호출(follower)은 그 결과를 기다려 함께 받는다.
+ * 실행이 끝나면 key 를 바로 지우므로 완료 이후의 호출은 항상 새로 실행한다. 즉 결과를 캐시하지 않는다.
+ *
+ * follower 는 자기 Deadline 까지만 기다린다. leader 의 QueryTimeoutException 은 leader 의 (더 짧은) 마감 때문일 수 있으므로
+ * 나눠 받지 않고, 마감이 남은 follower 는 다시 실행한다.
+ */
+class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * @param onJoin 실행 중인 호출을 기다리기 시작하면 true, 직접 실행하면 false 로 호출된다.
+     *               leader 의 timeout 으로 다시 실행하는 follower 는 두 번 이상 호출될 수 있다
+     */
+    V execute(K key, Supplier<V> work, Consumer<Boolean> onJoin) {
+        while (true) {
+            CompletableFuture<V> call = new CompletableFuture<>();
+            CompletableFuture<V> existing = inFlight.putIfAbsent(key, call);
+            if (existing == null) {
+                onJoin.accept(false);
+                return run(key, call, work);
+            }
+
+            onJoin.accept(true);
+            try {
+                return await(existing);
+            } catch (QueryTimeoutException e) {
+                Deadline deadline = Deadline.current();
+                if (deadline == null || deadline.isExpired() || e.getCause() instanceof FollowerTimeout) {
+                    throw e;
+                }
+                // leader 의 timeout 이다. 내 마감으로 다시 실행한다
+            }
+        }
+    }
+
+    int inFlightCount() {
+        return inFlight.size();
+    }
+
+    private V run(K key, CompletableFuture<V> call, Supplier<V> work) {
+        try {
+            V result = work.get();
+            call.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    private V await(CompletableFuture<V> call) {
+        Deadline deadline = Deadline.current();
+        if (deadline == null) {
+            try {
+                return call.join();
+            } catch (CompletionException e) {
+                throw unwrap(e.getCause());
+            }
+        }
+
+        long remaining = deadline.remainingMillis();
+        try {
+            if (remaining <= 0) {
+                throw new TimeoutException();
+            }
+            return call.get(remaining, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new QueryTimeoutException("request deadline 안에 실행 중인 같은 검색이 끝나지 않았습니다.",
+                    new FollowerTimeout(-deadline.remainingMillis()));
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("실행 중인 같은 검색을 기다리다 인터럽트되었습니다.", e);
+        }
+    }
+
+    private static RuntimeException unwrap(Throwable cause) {
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new CompletionException(cause);
+    }
+
+    /**
+     * follower 가 자기 마감까지 기다리다 포기했다. statement 를 보내지 않았으므로 DeadlineExceededException 이다.
+     */
+    private static class FollowerTimeout extends DeadlineExceededException {
+
+        FollowerTimeout(long overdueMillis) {
+            super(Math.max(0, overdueMillis));
+        }
+    }
+}
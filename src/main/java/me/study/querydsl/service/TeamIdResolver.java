@@ -0,0 +1,178 @@
+package me.study.querydsl.service;
+
+import javax.sql.DataSource;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 팀 이름 → team.id 사전. 대량 적재에서 행마다 team 을 조회하지 않도록 한 번 읽어 메모리에 둔다.
+ * 조회는 lock 없이 byte 구간 그대로 비교하고, 처음 보는 팀만 synchronized 로 insert 한다.
+ */
+public class TeamIdResolver {
+
+    public static final long NONE = -1L;
+
+    private final DataSource dataSource;
+    private final Map<String, Long> idsByName = new HashMap<>();
+    private volatile Entry[] table = new Entry[16];
+    private volatile boolean created;
+    // takeCreated 로 아직 가져가지 않은 새 팀 (id → name)
+    private final Map<Long, String> newTeams = new LinkedHashMap<>();
+
+    private TeamIdResolver(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    public static TeamIdResolver load(DataSource dataSource) throws SQLException {
+        TeamIdResolver resolver = new TeamIdResolver(dataSource);
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("select id, name from team");
+             ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                if (resultSet.getString(2) != null) {
+                    resolver.idsByName.put(resultSet.getString(2), resultSet.getLong(1));
+                }
+            }
+        }
+        resolver.table = rebuild(resolver.idsByName);
+        return resolver;
+    }
+
+    /**
+     * buffer[start, end) 의 UTF-8 팀 이름을 id 로 바꾼다. 빈 구간이면 NONE.
+     */
+    public long resolve(ByteBuffer buffer, int start, int end) throws SQLException {
+        if (start == end) {
+            return NONE;
+        }
+
+        int hash = hash(buffer, start, end);
+        Entry[] current = table;
+        int mask = current.length - 1;
+        for (int i = hash & mask; current[i] != null; i = (i + 1) & mask) {
+            if (current[i].hash == hash && current[i].matches(buffer, start, end)) {
+                return current[i].id;
+            }
+        }
+
+        byte[] name = new byte[end - start];
+        for (int i = 0; i < name.length; i++) {
+            name[i] = buffer.get(start + i);
+        }
+        return create(new String(name, StandardCharsets.UTF_8));
+    }
+
+    public long resolve(String name) throws SQLException {
+        if (name == null || name.isEmpty()) {
+            return NONE;
+        }
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        return resolve(ByteBuffer.wrap(bytes), 0, bytes.length);
+    }
+
+    /**
+     * 이 resolver 가 team 을 하나라도 새로 넣었으면 true.
+     */
+    public boolean hasCreated() {
+        return created;
+    }
+
+    /**
+     * 지난 호출 이후 새로 넣어 커밋한 팀을 돌려준다.
+     */
+    public synchronized Map<Long, String> takeCreated() {
+        Map<Long, String> result = new LinkedHashMap<>(newTeams);
+        newTeams.clear();
+        return result;
+    }
+
+    private synchronized long create(String name) throws SQLException {
+        Long id = idsByName.get(name);
+        if (id != null) {
+            return id;
+        }
+
+        try (Connection connection = dataSource.getConnection()) {
+            try (PreparedStatement statement = connection.prepareStatement("select next value for hibernate_sequence");
+                 ResultSet resultSet = statement.executeQuery()) {
+                resultSet.next();
+                id = resultSet.getLong(1);
+            }
+            try (PreparedStatement statement = connection.prepareStatement("insert into team (id, name, version) values (?, ?, 0)")) {
+                statement.setLong(1, id);
+                statement.setString(2, name);
+                statement.executeUpdate();
+            }
+            if (!connection.getAutoCommit()) {
+                connection.commit();
+            }
+        }
+
+        idsByName.put(name, id);
+        table = rebuild(idsByName);
+        newTeams.put(id, name);
+        created = true;
+        return id;
+    }
+
+    private static Entry[] rebuild(Map<String, Long> idsByName) {
+        int capacity = 16;
+        while (capacity < idsByName.size() * 2) {
+            capacity <<= 1;
+        }
+
+        Entry[] rebuilt = new Entry[capacity];
+        int mask = capacity - 1;
+        idsByName.forEach((name, id) -> {
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            int hash = hash(ByteBuffer.wrap(bytes), 0, bytes.length);
+            int i = hash & mask;
+            while (rebuilt[i] != null) {
+                i = (i + 1) & mask;
+            }
+            rebuilt[i] = new Entry(bytes, hash, id);
+        });
+        return rebuilt;
+    }
+
+    // FNV-1a
+    private static int hash(ByteBuffer buffer, int start, int end) {
+        int hash = 0x811c9dc5;
+        for (int i = start; i < end; i++) {
+            hash ^= buffer.get(i);
+            hash *= 0x01000193;
+        }
+        return hash;
+    }
+
+    private static class Entry {
+        private final byte[] name;
+        private final int hash;
+        private final long id;
+
+        Entry(byte[] name, int hash, long id) {
+            this.name = name;
+            this.hash = hash;
+            this.id = id;
+        }
+
+        boolean matches(ByteBuffer buffer, int start, int end) {
+            if (end - start != name.length) {
+                return false;
+            }
+            for (int i = 0; i < name.length; i++) {
+                if (buffer.get(start + i) != name[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
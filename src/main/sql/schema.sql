@@ -0,0 +1,45 @@
+-- querydsl-sql 코드 생성용 스키마 (build.gradle 의 generateQuerydslSql)
+-- Hibernate(ddl-auto) 가 엔티티로 만드는 테이블과 같게 유지한다
+create sequence hibernate_sequence start with 1 increment by 1;
+
+create table team (
+    id bigint not null,
+    name varchar(255),
+    version bigint not null,
+    primary key (id)
+);
+
+create table member (
+    member_id bigint not null,
+    age integer not null,
+    username varchar(255),
+    version bigint not null,
+    team_id bigint,
+    primary key (member_id)
+);
+
+create index idx_member_age on member (age, member_id);
+create index idx_member_username on member (username, member_id);
+
+alter table member add constraint fk_member_team foreign key (team_id) references team;
+
+-- MemberArchiveService 가 보관 조건에 맞는 회원을 옮겨 두는 cold 테이블 (member_id 는 member 의 값을 그대로 쓴다)
+create table member_archive (
+    member_id bigint not null,
+    age integer not null,
+    archived_at timestamp not null,
+    username varchar(255),
+    team_id bigint,
+    primary key (member_id)
+);
+
+create index idx_member_archive_age on member_archive (age, member_id);
+create index idx_member_archive_username on member_archive (username, member_id);
+
+alter table member_archive add constraint fk_member_archive_team foreign key (team_id) references team;
+
+-- MemberUpsertService 가 같은 username 의 upsert 를 줄 세우는 advisory lock 행
+create table member_username_lock (
+    username varchar(255) not null,
+    primary key (username)
+);
@@ -11,6 +11,7 @@ import com.querydsl.core.types.dsl.CaseBuilder;
 import com.querydsl.core.types.dsl.Expressions;
 import com.querydsl.jpa.JPAExpressions;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import me.study.querydsl.dto.DtoProjections;
 import me.study.querydsl.dto.MemberDto;
 import me.study.querydsl.dto.QMemberDto;
 import me.study.querydsl.dto.UserDto;
@@ -36,6 +37,7 @@ import static me.study.querydsl.entity.QMember.member;
 import static me.study.querydsl.entity.QTeam.team;
 import static org.assertj.core.api.Assertions.anyOf;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 
 @SpringBootTest
 @Transactional
@@ -612,6 +614,48 @@ public class QuerydslBasicTest {
         }
     }
 
+    @DisplayName("DtoProjections 는 Projections 와 같은 DTO 를 만든다")
+    @Test
+    void findDtoByDtoProjections() {
+        QMember subMember = new QMember("subMember");
+
+        List<MemberDto> byFields = queryFactory
+                .select(DtoProjections.fields(MemberDto.class,
+                        member.username.as("userName"),
+                        member.age))
+                .from(member)
+                .orderBy(member.age.asc())
+                .fetch();
+        List<UserDto> bySetter = queryFactory
+                .select(DtoProjections.bean(UserDto.class,
+                        member.username.as("name"),
+                        ExpressionUtils.as(JPAExpressions.select(subMember.age.max())
+                                .from(subMember), "age")))
+                .from(member)
+                .orderBy(member.age.asc())
+                .fetch();
+        List<MemberDto> byConstructor = queryFactory
+                .select(DtoProjections.constructor(MemberDto.class,
+                        member.username,
+                        member.age))
+                .from(member)
+                .orderBy(member.age.asc())
+                .fetch();
+
+        assertThat(byFields).usingRecursiveFieldByFieldElementComparator().isEqualTo(queryFactory
+                .select(Projections.fields(MemberDto.class,
+                        member.username.as("userName"),
+                        member.age))
+                .from(member)
+                .orderBy(member.age.asc())
+                .fetch());
+        assertThat(byFields).extracting("userName", "age")
+                .containsExactly(tuple("Member1", 10), tuple("Member2", 20), tuple("Member3", 30), tuple("Member4", 40));
+        assertThat(bySetter).extracting("name", "age")
+                .containsExactly(tuple("Member1", 40), tuple("Member2", 40), tuple("Member3", 40), tuple("Member4", 40));
+        assertThat(byConstructor).usingRecursiveFieldByFieldElementComparator().isEqualTo(byFields);
+    }
+
     @DisplayName("동적쿼리 - BooleanBuilder 사용")
     @Test
     void dynamicQuery_booleanBuilder() {
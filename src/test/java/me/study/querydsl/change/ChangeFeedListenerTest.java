@@ -0,0 +1,135 @@
+package me.study.querydsl.change;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import me.study.querydsl.entity.Member;
+import me.study.querydsl.entity.Team;
+import me.study.querydsl.service.MemberBulkChangedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static me.study.querydsl.entity.QMember.member;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class ChangeFeedListenerTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    ChangeFeed changeFeed;
+
+    @Autowired
+    ApplicationEventPublisher eventPublisher;
+
+    List<ChangeEvent> events = new CopyOnWriteArrayList<>();
+    ChangeFeed.Subscription subscription;
+
+    @BeforeEach
+    void setUp() {
+        subscription = changeFeed.subscribe("test", events::add);
+    }
+
+    @AfterEach
+    void tearDown() {
+        subscription.close();
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+    }
+
+    @DisplayName("커밋된 Member / Team 변경만 실행 순서대로 값을 복사한 이벤트로 받는다")
+    @Test
+    void entityChanges() {
+        // when
+        Team[] teams = transactionTemplate.execute(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            em.persist(new Member("member1", 10, teamA));
+            return new Team[]{teamA, teamB};
+        });
+        Long teamAId = teams[0].getId();
+        Long teamBId = teams[1].getId();
+        Long memberId = em.createQuery("select m.id from Member m", Long.class).getSingleResult();
+
+        // team 프록시로 팀 변경
+        transactionTemplate.executeWithoutResult(status ->
+                em.find(Member.class, memberId).changeTeam(em.getReference(Team.class, teamBId)));
+        // 롤백
+        transactionTemplate.executeWithoutResult(status -> {
+            em.remove(em.find(Member.class, memberId));
+            status.setRollbackOnly();
+        });
+        transactionTemplate.executeWithoutResult(status -> em.remove(em.find(Member.class, memberId)));
+
+        // then
+        assertThat(changeFeed.awaitDelivered(Duration.ofSeconds(5))).isTrue();
+        assertThat(events).containsExactly(
+                new TeamChanged(ChangeType.INSERT, teamAId, "teamA", 0),
+                new TeamChanged(ChangeType.INSERT, teamBId, "teamB", 0),
+                new MemberChanged(ChangeType.INSERT, memberId, "member1", 10, teamAId, 0),
+                new MemberChanged(ChangeType.UPDATE, memberId, "member1", 10, teamBId, 1),
+                new MemberChanged(ChangeType.DELETE, memberId, "member1", 10, teamBId, 1));
+    }
+
+    @DisplayName("JPAQueryFactory 의 bulk 연산은 바꾼 행이 있을 때 커밋 후 TableInvalidated 로 받는다")
+    @Test
+    void bulkChanges() {
+        // given
+        transactionTemplate.executeWithoutResult(status -> em.persist(new Member("member1", 10)));
+        assertThat(changeFeed.awaitDelivered(Duration.ofSeconds(5))).isTrue();
+        events.clear();
+
+        // when
+        transactionTemplate.executeWithoutResult(status -> {
+            queryFactory.update(member).set(member.age, member.age.add(1)).execute();
+            status.setRollbackOnly();
+        });
+        transactionTemplate.executeWithoutResult(status ->
+                queryFactory.update(member).set(member.age, 0).where(member.age.gt(100)).execute());
+        transactionTemplate.executeWithoutResult(status ->
+                queryFactory.update(member).set(member.username, "비회원").where(member.age.lt(28)).execute());
+        transactionTemplate.executeWithoutResult(status -> queryFactory.delete(member).execute());
+
+        // then
+        assertThat(changeFeed.awaitDelivered(Duration.ofSeconds(5))).isTrue();
+        assertThat(events).containsExactly(
+                new TableInvalidated(Member.class, "update Member"),
+                new TableInvalidated(Member.class, "delete Member"));
+    }
+
+    @DisplayName("JDBC 대량 쓰기의 MemberBulkChangedEvent 도 feed 의 TableInvalidated 로 받는다")
+    @Test
+    void jdbcBulkChanges() {
+        // when
+        eventPublisher.publishEvent(new MemberBulkChangedEvent("csv-import", true));
+        eventPublisher.publishEvent(new MemberBulkChangedEvent("archive"));
+
+        // then
+        assertThat(changeFeed.awaitDelivered(Duration.ofSeconds(5))).isTrue();
+        assertThat(events).containsExactly(
+                new TableInvalidated(Team.class, "csv-import"),
+                new TableInvalidated(Member.class, "csv-import"),
+                new TableInvalidated(Member.class, "archive"));
+    }
+}
@@ -0,0 +1,170 @@
+package me.study.querydsl.change;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ChangeFeedTest {
+
+    ChangeFeed feed;
+
+    @AfterEach
+    void tearDown() {
+        if (feed != null) {
+            feed.shutdown();
+        }
+    }
+
+    @DisplayName("여러 스레드가 발행해도 구독자는 모두 같은 순서로 받고 한 스레드의 발행 순서는 지켜진다")
+    @Test
+    void ordering() throws Exception {
+        // given
+        feed = new ChangeFeed(1024, Duration.ofMillis(1));
+        List<ChangeEvent> first = new CopyOnWriteArrayList<>();
+        List<ChangeEvent> second = new CopyOnWriteArrayList<>();
+        feed.subscribe("first", first::add);
+        feed.subscribe("second", second::add);
+
+        // when (구독자가 따라오도록 스레드마다 천천히 발행한다)
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int producer = 0; producer < 4; producer++) {
+            long teamId = producer;
+            futures.add(executor.submit(() -> {
+                for (int age = 0; age < 200; age++) {
+                    feed.publish(new MemberChanged(ChangeType.UPDATE, 1L, "member", age, teamId, age));
+                    if (age % 50 == 0) {
+                        Thread.yield();
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // then
+        assertThat(feed.awaitDelivered(Duration.ofSeconds(5))).isTrue();
+        assertThat(first).hasSize(800).isEqualTo(second);
+        for (long teamId = 0; teamId < 4; teamId++) {
+            long producer = teamId;
+            assertThat(first.stream()
+                    .map(MemberChanged.class::cast)
+                    .filter(event -> event.getTeamId() == producer)
+                    .map(MemberChanged::getAge))
+                    .isSorted()
+                    .hasSize(200);
+        }
+    }
+
+    @DisplayName("capacity 보다 뒤처진 구독자는 잃은 이벤트 대신 TableInvalidated.all 을 받고 이어서 새 이벤트를 받는다")
+    @Test
+    void overrun() throws Exception {
+        // given
+        feed = new ChangeFeed(8, Duration.ofMillis(1));
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<ChangeEvent> events = new CopyOnWriteArrayList<>();
+        feed.subscribe("slow", event -> {
+            events.add(event);
+            if (events.size() == 1) {
+                blocked.countDown();
+                await(release);
+            }
+        });
+
+        // when
+        feed.publish(new TeamChanged(ChangeType.INSERT, 0L, "team0", 0));
+        assertThat(blocked.await(5, TimeUnit.SECONDS)).isTrue();
+        for (long i = 1; i <= 20; i++) {
+            feed.publish(new TeamChanged(ChangeType.INSERT, i, "team" + i, 0));
+        }
+        release.countDown();
+        assertThat(feed.awaitDelivered(Duration.ofSeconds(5))).isTrue();
+        feed.publish(new TeamChanged(ChangeType.INSERT, 21L, "team21", 0));
+
+        // then
+        assertThat(feed.awaitDelivered(Duration.ofSeconds(5))).isTrue();
+        assertThat(events).containsExactly(
+                new TeamChanged(ChangeType.INSERT, 0L, "team0", 0),
+                TableInvalidated.all("change-feed-overrun"),
+                new TeamChanged(ChangeType.INSERT, 21L, "team21", 0));
+    }
+
+    @DisplayName("구독자의 예외는 다음 이벤트 전달을 막지 않는다")
+    @Test
+    void listenerFailure() {
+        // given
+        feed = new ChangeFeed(16, Duration.ofMillis(1));
+        List<ChangeEvent> events = new CopyOnWriteArrayList<>();
+        feed.subscribe("failing", event -> {
+            events.add(event);
+            throw new IllegalStateException("test");
+        });
+
+        // when
+        feed.publish(TableInvalidated.all("first"));
+        feed.publish(TableInvalidated.all("second"));
+
+        // then
+        assertThat(feed.awaitDelivered(Duration.ofSeconds(5))).isTrue();
+        assertThat(events).extracting("source").containsExactly("first", "second");
+    }
+
+    @DisplayName("잠든 구독자는 idleWait 를 기다리지 않고 발행되면 바로 깨어난다")
+    @Test
+    void wakesSleepingSubscriber() throws Exception {
+        // given
+        feed = new ChangeFeed(16, Duration.ofSeconds(30));
+        CountDownLatch delivered = new CountDownLatch(1);
+        ChangeFeed.Subscription subscription = feed.subscribe("sleeping", event -> delivered.countDown());
+        Thread thread = subscriberThread("change-feed-sleeping");
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (thread.getState() != Thread.State.TIMED_WAITING && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+
+        // when
+        feed.publish(TableInvalidated.all("wake"));
+
+        // then
+        assertThat(delivered.await(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(subscription.delivered()).isEqualTo(1);
+    }
+
+    @DisplayName("capacity 는 2의 거듭제곱이어야 한다")
+    @Test
+    void capacity() {
+        assertThatThrownBy(() -> new ChangeFeed(1000, Duration.ofMillis(1)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static Thread subscriberThread(String name) {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().equals(name))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package me.study.querydsl.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles({"test", "startup"})
+class StartupConfigTest {
+
+    @Autowired
+    ConfigurableApplicationContext context;
+
+    @DisplayName("startup 프로필은 검색 요청 경로만 기동 시 만들고 나머지 빈은 지연 생성한다")
+    @Test
+    void lazyExceptRequestPath() {
+        assertThat(context.getBeanFactory().containsSingleton("memberController")).isTrue();
+        assertThat(context.getBeanFactory().containsSingleton("memberSearchService")).isTrue();
+        assertThat(context.getBeanFactory().containsSingleton("memberExportService")).isFalse();
+        assertThat(context.getBeanFactory().containsSingleton("memberBulkImportService")).isFalse();
+    }
+}
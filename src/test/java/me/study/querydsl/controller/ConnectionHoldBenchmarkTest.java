@@ -0,0 +1,130 @@
+package me.study.querydsl.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import me.study.querydsl.dto.MemberSearchCondition;
+import me.study.querydsl.entity.Member;
+import me.study.querydsl.entity.Team;
+import me.study.querydsl.service.MemberSearchService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.orm.jpa.support.OpenEntityManagerInViewInterceptor;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ./gradlew benchmark 로 실행한다.
+ * open-in-view 를 켰을 때와 끈 때, 검색 + JSON 직렬화 한 번 동안 커넥션을 잡고 있는 시간(hikaricp.connections.usage)을 비교한다.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {
+        "logging.level.org.hibernate.SQL=warn",
+        "logging.level.org.hibernate.type=warn",
+        "decorator.datasource.p6spy.enable-logging=false",
+        "member.search.coalesce=false"
+})
+class ConnectionHoldBenchmarkTest {
+
+    static final int MEMBERS = 10_000;
+    static final int WARMUP = 200;
+    static final int ITERATIONS = 1_000;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    EntityManagerFactory emf;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    MemberSearchService memberSearchService;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("TeamA");
+            em.persist(teamA);
+            for (int i = 0; i < MEMBERS; i++) {
+                em.persist(new Member("member" + i, i % 100, teamA));
+            }
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+    }
+
+    @DisplayName("open-in-view 유무에 따른 요청당 커넥션 점유 시간")
+    @Test
+    void connectionHoldTime() throws Exception {
+        measure("open-in-view on", true);
+        measure("open-in-view off", false);
+    }
+
+    private void measure(String name, boolean openInView) throws Exception {
+        for (int i = 0; i < WARMUP; i++) {
+            request(openInView);
+        }
+
+        Timer usage = meterRegistry.get("hikaricp.connections.usage").timer();
+        long countBefore = usage.count();
+        double totalBefore = usage.totalTime(TimeUnit.MICROSECONDS);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            request(openInView);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        long borrows = usage.count() - countBefore;
+        double held = usage.totalTime(TimeUnit.MICROSECONDS) - totalBefore;
+        System.out.printf("%-18s request %8.1f us, connection held %8.1f us/request (%d borrows)%n",
+                name, elapsed / 1_000.0 / ITERATIONS, held / ITERATIONS, borrows);
+    }
+
+    /**
+     * 컨트롤러가 하는 일(검색 후 응답 직렬화)을 open-in-view 인터셉터 안팎에서 실행한다.
+     */
+    private void request(boolean openInView) throws Exception {
+        OpenEntityManagerInViewInterceptor interceptor = new OpenEntityManagerInViewInterceptor();
+        interceptor.setEntityManagerFactory(emf);
+        ServletWebRequest webRequest = new ServletWebRequest(new MockHttpServletRequest());
+
+        if (openInView) {
+            interceptor.preHandle(webRequest);
+        }
+        try {
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setAgeGoe(10);
+            objectMapper.writeValueAsBytes(memberSearchService.searchPageComplex(condition, PageRequest.of(0, 500)));
+        } finally {
+            if (openInView) {
+                interceptor.afterCompletion(webRequest, null);
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package me.study.querydsl.controller;
+
+import me.study.querydsl.entity.Member;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@AutoConfigureMockMvc
+@SpringBootTest
+class MemberControllerTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.persist(new Member("member1", 10));
+            em.persist(new Member("member2", 20));
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+    }
+
+    @DisplayName("인덱스가 없는 정렬 요청은 어느 검색 경로에서든 400 으로 거절한다")
+    @Test
+    void rejectUnsupportedSort() throws Exception {
+        // when / then
+        mockMvc.perform(get("/v2/members").param("sort", "teamName"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/v3/members").param("sort", "age").param("sort", "username"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/v3/members").param("fields", "username,age").param("sort", "teamName"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/v2/members").param("includeArchived", "true").param("sort", "memberId").param("sort", "age"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @DisplayName("지원하는 정렬은 그대로 검색한다")
+    @Test
+    void supportedSort() throws Exception {
+        mockMvc.perform(get("/v3/members").param("includeArchived", "true").param("sort", "username,desc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].username").value("member2"));
+    }
+
+    @DisplayName("fields 검색은 /v1, /v2, /v3 모두 요청한 필드만 내려준다")
+    @Test
+    void fields() throws Exception {
+        mockMvc.perform(get("/v1/members").param("fields", "username"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].age").doesNotExist());
+        mockMvc.perform(get("/v2/members").param("fields", "username,age").param("sort", "age,desc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].username").value("member2"))
+                .andExpect(jsonPath("$.content[0].age").value(20))
+                .andExpect(jsonPath("$.content[0].teamName").doesNotExist())
+                .andExpect(jsonPath("$.totalElements").value(2));
+        mockMvc.perform(get("/v3/members").param("fields", "username").param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.totalElements").value(2));
+        mockMvc.perform(get("/v2/members").param("fields", "username").param("includeArchived", "true"))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,36 @@
+package me.study.querydsl.controller;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "member.warmup.enabled=true",
+        "member.warmup.iterations=1"
+})
+class MemberWarmUpTest {
+
+    @Autowired
+    MemberWarmUp memberWarmUp;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    ApplicationAvailability applicationAvailability;
+
+    @DisplayName("기동 시 모든 검색 조건 조합과 페이지/정렬을 실행한 뒤 트래픽을 받는다")
+    @Test
+    void warmUpBeforeReadiness() {
+        // 16가지 조건 x 정렬 7가지 x 페이지 2개 x simple/complex + 빈 결과를 만들 수 있는 14가지 조건 x search 2번
+        assertThat(memberWarmUp.getExecutedQueries()).isEqualTo(16 * 7 * 2 * 2 + 14 * 2);
+        assertThat(meterRegistry.get("member.warmup").timer().count()).isEqualTo(1);
+        assertThat(applicationAvailability.getReadinessState()).isEqualTo(ReadinessState.ACCEPTING_TRAFFIC);
+    }
+}
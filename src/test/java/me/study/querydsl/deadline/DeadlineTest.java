@@ -0,0 +1,99 @@
+package me.study.querydsl.deadline;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import me.study.querydsl.entity.Member;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@AutoConfigureMockMvc
+@SpringBootTest(properties = "member.deadline.enabled=true")
+class DeadlineTest {
+
+    // H2 가 한 행씩 더하므로 수 초 이상 걸린다
+    static final String SLOW_QUERY = "select sum(x) from system_range(1, 2000000000)";
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate.executeWithoutResult(status -> em.persist(new Member("member1", 10)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+    }
+
+    @DisplayName("남은 시간을 넘긴 statement 는 DB 에서 취소되고 QueryTimeoutException 이 된다")
+    @Test
+    void cancelSlowStatement() {
+        // when
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> Deadline.within(Duration.ofSeconds(1), () -> jdbcTemplate.queryForObject(SLOW_QUERY, Long.class)))
+                .isInstanceOf(QueryTimeoutException.class);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        // then
+        assertThat(elapsedMillis).isLessThan(3_000);
+        assertThat(Deadline.current()).isNull();
+        // 풀에 돌아간 커넥션에는 timeout 이 남지 않는다
+        assertThat(jdbcTemplate.queryForObject("select value from information_schema.settings where name = 'QUERY_TIMEOUT'", String.class))
+                .isEqualTo("0");
+    }
+
+    @DisplayName("마감이 지난 요청은 statement 를 보내지 않고 504 로 응답하며 취소 수를 센다")
+    @Test
+    void expiredRequest() throws Exception {
+        // when
+        mockMvc.perform(get("/v2/members").header(DeadlineInterceptor.TIMEOUT_HEADER, "0"))
+                .andExpect(status().isGatewayTimeout());
+
+        // then
+        assertThat(meterRegistry.get("member.deadline.exceeded")
+                .tag("endpoint", "MemberController.searchMemberV2")
+                .tag("cause", "rejected")
+                .counter().count()).isEqualTo(1);
+    }
+
+    @DisplayName("예산 안에 끝난 요청은 그대로 응답한다")
+    @Test
+    void withinDeadline() throws Exception {
+        mockMvc.perform(get("/v2/members"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/v1/members").header(DeadlineInterceptor.TIMEOUT_HEADER, "5000"))
+                .andExpect(status().isOk());
+    }
+}
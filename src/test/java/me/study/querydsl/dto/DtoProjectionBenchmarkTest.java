@@ -0,0 +1,74 @@
+package me.study.querydsl.dto;
+
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.Projections;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static me.study.querydsl.entity.QMember.member;
+import static me.study.querydsl.entity.QTeam.team;
+
+/**
+ * ./gradlew benchmark 로 실행한다.
+ * DB 조회 비용은 프로젝션 방식과 관계없이 같으므로 결과 행 하나를 MemberTeamDto 로 만드는 비용(newInstance)만 잰다.
+ */
+@Tag("benchmark")
+class DtoProjectionBenchmarkTest {
+
+    static final int ROWS = 1_000;
+    static final int ITERATIONS = 2_000;
+    static final int ROUNDS = 5;
+
+    @DisplayName("프로젝션 방식별 행 하나를 DTO 로 만드는 비용")
+    @Test
+    void newInstancePerRow() {
+        Map<String, FactoryExpression<MemberTeamDto>> projections = new LinkedHashMap<>();
+        projections.put("QMemberTeamDto", new QMemberTeamDto(member.id, member.username, member.age, team.id, team.name));
+        projections.put("Projections.constructor", Projections.constructor(MemberTeamDto.class,
+                member.id, member.username, member.age, team.id, team.name));
+        projections.put("Projections.bean", Projections.bean(MemberTeamDto.class,
+                member.id.as("memberId"), member.username, member.age, team.id.as("teamId"), team.name.as("teamName")));
+        projections.put("Projections.fields", Projections.fields(MemberTeamDto.class,
+                member.id.as("memberId"), member.username, member.age, team.id.as("teamId"), team.name.as("teamName")));
+        projections.put("DtoProjections.constructor", DtoProjections.constructor(MemberTeamDto.class,
+                member.id, member.username, member.age, team.id, team.name));
+        projections.put("DtoProjections.bean", DtoProjections.bean(MemberTeamDto.class,
+                member.id.as("memberId"), member.username, member.age, team.id.as("teamId"), team.name.as("teamName")));
+        projections.put("DtoProjections.fields", DtoProjections.fields(MemberTeamDto.class,
+                member.id.as("memberId"), member.username, member.age, team.id.as("teamId"), team.name.as("teamName")));
+
+        Object[][] rows = new Object[ROWS][];
+        for (int i = 0; i < ROWS; i++) {
+            rows[i] = new Object[]{(long) i, "member" + i, i % 100, (long) (i % 10), "team" + (i % 10)};
+        }
+
+        // 앞 라운드는 JIT 워밍업으로 버린다
+        for (int round = 0; round < ROUNDS; round++) {
+            for (Map.Entry<String, FactoryExpression<MemberTeamDto>> entry : projections.entrySet()) {
+                double nanosPerRow = measure(entry.getValue(), rows);
+                if (round == ROUNDS - 1) {
+                    System.out.printf("%-28s %6.1f ns/row%n", entry.getKey(), nanosPerRow);
+                }
+            }
+        }
+    }
+
+    private double measure(FactoryExpression<MemberTeamDto> projection, Object[][] rows) {
+        long checksum = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            for (Object[] row : rows) {
+                checksum += projection.newInstance(row).getAge();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        if (checksum < 0) {
+            throw new IllegalStateException();
+        }
+        return (double) elapsed / ITERATIONS / ROWS;
+    }
+}
@@ -0,0 +1,69 @@
+package me.study.querydsl.dto;
+
+import com.querydsl.core.types.ExpressionException;
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.Projections;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static me.study.querydsl.entity.QMember.member;
+import static me.study.querydsl.entity.QTeam.team;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DtoProjectionsTest {
+
+    @DisplayName("setter / 필드 / 생성자 프로젝션은 Projections 와 같은 DTO 를 만든다")
+    @Test
+    void sameAsProjections() {
+        Object[] row = {1L, "member1", 10, 2L, "teamA"};
+
+        MemberTeamDto expected = Projections.constructor(MemberTeamDto.class,
+                member.id, member.username, member.age, team.id, team.name).newInstance(row);
+
+        assertThat(DtoProjections.bean(MemberTeamDto.class,
+                member.id.as("memberId"), member.username, member.age, team.id.as("teamId"), team.name.as("teamName"))
+                .newInstance(row)).isEqualTo(expected);
+        assertThat(DtoProjections.fields(MemberTeamDto.class,
+                member.id.as("memberId"), member.username, member.age, team.id.as("teamId"), team.name.as("teamName"))
+                .newInstance(row)).isEqualTo(expected);
+        assertThat(DtoProjections.constructor(MemberTeamDto.class,
+                member.id, member.username, member.age, team.id, team.name)
+                .newInstance(row)).isEqualTo(expected);
+    }
+
+    @DisplayName("못 찾은 속성은 무시하고 null 값은 건너뛰며, 원시 타입 생성자 인자의 null 은 기본값으로 넘긴다")
+    @Test
+    void nullsAndMissingProperties() {
+        // member.username 은 MemberDto 의 userName 과 이름이 달라 무시된다
+        MemberDto byFields = DtoProjections.fields(MemberDto.class, member.username, member.age)
+                .newInstance("member1", null);
+        MemberTeamDto byConstructor = DtoProjections.constructor(MemberTeamDto.class,
+                member.id, member.username, member.age, team.id, team.name)
+                .newInstance(1L, "member1", null, null, null);
+
+        assertThat(byFields).extracting("userName", "age").containsExactly(null, 0);
+        assertThat(byConstructor.getAge()).isZero();
+        assertThat(byConstructor.getTeamId()).isNull();
+    }
+
+    @DisplayName("타입이 맞지 않는 속성이나 생성자는 프로젝션을 만들 때 거부한다")
+    @Test
+    void rejectsTypeMismatch() {
+        assertThatThrownBy(() -> DtoProjections.bean(UserDto.class, member.username.as("age")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> DtoProjections.constructor(MemberDto.class, member.username, member.age, member.id))
+                .isInstanceOf(ExpressionException.class);
+    }
+
+    @DisplayName("같은 인자로 만든 프로젝션은 같고 setter 접근과 필드 접근은 구분한다")
+    @Test
+    void equality() {
+        FactoryExpression<UserDto> first = DtoProjections.bean(UserDto.class, member.username.as("name"), member.age);
+        FactoryExpression<UserDto> second = DtoProjections.bean(UserDto.class, member.username.as("name"), member.age);
+
+        assertThat(first).isEqualTo(second);
+        assertThat(first).isNotEqualTo(DtoProjections.fields(UserDto.class, member.username.as("name"), member.age));
+        assertThat(second.newInstance("member1", 10)).isEqualTo(new UserDto("member1", 10));
+    }
+}
@@ -0,0 +1,116 @@
+package me.study.querydsl.entity;
+
+import org.hibernate.engine.spi.SelfDirtinessTracker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.List;
+
+/**
+ * ./gradlew benchmark 로 실행한다.
+ * 바이트코드 향상(dirty tracking) 여부에 따라 10만 건을 읽고 일부만 바꾼 트랜잭션의 flush 시간과 힙 사용량을 본다.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {
+        "logging.level.org.hibernate.SQL=warn",
+        "logging.level.org.hibernate.type=warn",
+        "decorator.datasource.p6spy.enable-logging=false"
+})
+class MemberFlushBenchmarkTest {
+
+    static final int MEMBERS = 100_000;
+    static final int ITERATIONS = 5;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    Long teamAId;
+    Long teamBId;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("TeamA");
+            Team teamB = new Team("TeamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            teamAId = teamA.getId();
+            teamBId = teamB.getId();
+
+            for (int i = 0; i < MEMBERS; i++) {
+                em.persist(new Member("member" + i, i % 100, teamA));
+                if (i % 1_000 == 999) {
+                    em.flush();
+                    em.clear();
+                    teamA = em.getReference(Team.class, teamAId);
+                }
+            }
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+    }
+
+    @DisplayName("10만 건을 읽고 일부를 바꾼 트랜잭션의 flush 시간과 힙 사용량")
+    @Test
+    void flushTouchedMembers() {
+        // 변경 없음: flush 시간이 순수 dirty checking 비용이다
+        measure(0);
+        measure(1_000);
+    }
+
+    private void measure(int changed) {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long flushNanos = 0;
+        long heapBytes = 0;
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            long[] result = new long[2];
+            transactionTemplate.executeWithoutResult(status -> {
+                System.gc();
+                long before = memory.getHeapMemoryUsage().getUsed();
+
+                List<Member> members = em.createQuery("select m from Member m", Member.class).getResultList();
+                Team teamB = em.getReference(Team.class, teamBId);
+                for (int j = 0; j < changed; j++) {
+                    members.get(j * (MEMBERS / changed)).changeTeam(teamB);
+                }
+
+                System.gc();
+                result[1] = memory.getHeapMemoryUsage().getUsed() - before;
+
+                long start = System.nanoTime();
+                em.flush();
+                result[0] = System.nanoTime() - start;
+                status.setRollbackOnly();
+            });
+            if (i > 0) {
+                flushNanos += result[0];
+                heapBytes += result[1];
+            }
+        }
+
+        System.out.printf("enhanced=%s flush %8.1f ms, persistence context heap %6.1f MB (%d members, %d changed)%n",
+                SelfDirtinessTracker.class.isAssignableFrom(Member.class),
+                flushNanos / 1_000_000.0 / (ITERATIONS - 1),
+                heapBytes / 1024.0 / 1024.0 / (ITERATIONS - 1),
+                MEMBERS, changed);
+    }
+}
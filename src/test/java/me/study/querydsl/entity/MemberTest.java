@@ -1,5 +1,6 @@
 package me.study.querydsl.entity;
 
+import org.hibernate.Hibernate;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -8,7 +9,11 @@ import org.springframework.test.annotation.Commit;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
 
 @SpringBootTest
 @Transactional
@@ -49,4 +54,77 @@ class MemberTest {
         }
     }
 
+    @DisplayName("영속된 팀에 회원을 붙여도 Team.members 와 팀 프록시를 로딩하지 않는다")
+    @Test
+    void changeTeamWithoutLoadingMembers() {
+        // given
+        Team teamA = new Team("TeamA");
+        em.persist(teamA);
+        Member member1 = new Member("Member1", 10, teamA);
+        em.persist(member1);
+        em.persist(new Member("Member2", 20, teamA));
+        em.flush();
+        em.clear();
+
+        Team teamProxy = em.find(Member.class, member1.getId()).getTeam();
+
+        // when
+        Member member3 = new Member("Member3", 30, teamProxy);
+        em.persist(member3);
+
+        // then
+        assertThat(Hibernate.isInitialized(teamProxy)).isFalse();
+
+        Team findTeam = em.find(Team.class, teamA.getId());
+        em.persist(new Member("Member4", 40, findTeam));
+        assertThat(Hibernate.isInitialized(findTeam.getMembers())).isFalse();
+
+        em.flush();
+        em.clear();
+        assertThat(em.find(Team.class, teamA.getId()).getMembers()).hasSize(4);
+    }
+
+    @DisplayName("이미 로딩된 Team.members 는 팀 변경에 맞춰 갱신한다")
+    @Test
+    void changeTeamUpdatesLoadedMembers() {
+        // given
+        Team teamA = new Team("TeamA");
+        Team teamB = new Team("TeamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        Member member1 = new Member("Member1", 10, teamA);
+        em.persist(member1);
+
+        // when
+        member1.changeTeam(teamB);
+
+        // then
+        assertThat(teamA.getMembers()).isEmpty();
+        assertThat(teamB.getMembers()).containsExactly(member1);
+    }
+
+    @DisplayName("equals/hashCode 는 id 만 보고 연관 프록시를 초기화하지 않는다")
+    @Test
+    void idBasedEquality() {
+        // given
+        Team teamA = new Team("TeamA");
+        em.persist(teamA);
+        Member member1 = new Member("Member1", 10, teamA);
+        em.persist(member1);
+        em.flush();
+        em.clear();
+
+        // when
+        Member first = em.find(Member.class, member1.getId());
+        Set<Member> members = new HashSet<>();
+        members.add(first);
+        em.clear();
+        Member second = em.find(Member.class, member1.getId());
+
+        // then
+        assertThat(second).isNotSameAs(first).isEqualTo(first);
+        assertThat(members).contains(second);
+        assertThat(Hibernate.isInitialized(first.getTeam())).isFalse();
+        assertThat(new Member("Member1", 10)).isNotEqualTo(new Member("Member1", 10));
+    }
 }
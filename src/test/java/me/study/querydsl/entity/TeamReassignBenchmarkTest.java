@@ -0,0 +1,109 @@
+package me.study.querydsl.entity;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * ./gradlew benchmark 로 실행한다.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {
+        "logging.level.org.hibernate.SQL=warn",
+        "logging.level.org.hibernate.type=warn",
+        "decorator.datasource.p6spy.enable-logging=false"
+})
+class TeamReassignBenchmarkTest {
+
+    static final int TEAM_MEMBERS = 20_000;
+    static final int MOVED_MEMBERS = 1_000;
+    static final int ITERATIONS = 5;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    EntityManagerFactory emf;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    Long bigTeamId;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team bigTeam = new Team("BigTeam");
+            em.persist(bigTeam);
+            bigTeamId = bigTeam.getId();
+
+            for (int i = 0; i < TEAM_MEMBERS; i++) {
+                em.persist(new Member("member" + i, i % 100, bigTeam));
+            }
+            for (int i = 0; i < MOVED_MEMBERS; i++) {
+                em.persist(new Member("free" + i, i % 100));
+            }
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+    }
+
+    @DisplayName("영속된 큰 팀으로 회원을 대량 이동할 때 Team.members 로딩 비용")
+    @Test
+    void bulkReassign() {
+        measure("members not loaded", team -> { });
+        // 기존 changeTeam 처럼 팀 회원 컬렉션을 먼저 읽어 오는 경우
+        measure("members loaded", team -> team.getMembers().size());
+    }
+
+    private void measure(String name, Consumer<Team> beforeReassign) {
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+
+        long elapsed = 0;
+        long statements = 0;
+        long loaded = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            statistics.clear();
+            long start = System.nanoTime();
+            transactionTemplate.executeWithoutResult(status -> {
+                Team bigTeam = em.find(Team.class, bigTeamId);
+                beforeReassign.accept(bigTeam);
+
+                List<Member> free = em.createQuery("select m from Member m where m.team is null", Member.class)
+                        .getResultList();
+                for (Member member : free) {
+                    member.changeTeam(bigTeam);
+                }
+                em.flush();
+                status.setRollbackOnly();
+            });
+            elapsed += System.nanoTime() - start;
+            statements += statistics.getPrepareStatementCount();
+            loaded += statistics.getEntityLoadCount();
+        }
+        statistics.setStatisticsEnabled(false);
+
+        System.out.printf("%-20s %8.1f ms/op, %d statements/op, %d entities loaded/op%n",
+                name, elapsed / 1_000_000.0 / ITERATIONS, statements / ITERATIONS,
+                loaded / ITERATIONS);
+    }
+}
@@ -0,0 +1,104 @@
+package me.study.querydsl.monitoring;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import me.study.querydsl.dto.MemberSearchCondition;
+import me.study.querydsl.entity.Member;
+import me.study.querydsl.repository.MemberJpaRepository;
+import me.study.querydsl.repository.MemberRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "member.jfr.enabled=true")
+class RepositoryJfrAspectTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < 10; i++) {
+                em.persist(new Member("member" + i, i));
+            }
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+    }
+
+    @DisplayName("기록 중에는 리포지토리 호출과 SQL 실행이 조건 모양, 행 수와 함께 JFR 이벤트로 남는다")
+    @Test
+    void recordEvents(@TempDir Path dir) throws Exception {
+        // given
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(5);
+        Path file = dir.resolve("member.jfr");
+
+        // when
+        try (Recording recording = new Recording()) {
+            recording.enable("me.study.querydsl.RepositoryCall");
+            recording.enable("me.study.querydsl.SqlStatement");
+            recording.start();
+            memberRepository.searchPageSimple(condition, PageRequest.of(0, 3));
+            memberJpaRepository.findAll();
+            recording.stop();
+            recording.dump(file);
+        }
+
+        // then
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        List<RecordedEvent> calls = events.stream()
+                .filter(event -> event.getEventType().getName().equals("me.study.querydsl.RepositoryCall"))
+                .collect(Collectors.toList());
+        assertThat(calls).extracting(event -> event.getString("method")).contains("searchPageSimple", "findAll");
+
+        RecordedEvent search = calls.stream()
+                .filter(event -> event.getString("method").equals("searchPageSimple"))
+                .findFirst().orElseThrow();
+        assertThat(search.getString("repository")).isEqualTo("MemberRepositoryImpl");
+        assertThat(search.getString("condition")).isEqualTo("ageGoe");
+        assertThat(search.getLong("rows")).isEqualTo(3);
+        assertThat(search.getInt("pageSize")).isEqualTo(3);
+
+        assertThat(events).filteredOn(event -> event.getEventType().getName().equals("me.study.querydsl.SqlStatement"))
+                .extracting(event -> event.getString("sql"))
+                .anyMatch(sql -> sql.contains("where member0_.age>=?"));
+    }
+
+    @DisplayName("기록하지 않을 때는 이벤트 없이 그대로 호출한다")
+    @Test
+    void notRecording() {
+        assertThat(new RepositoryCallEvent().isEnabled()).isFalse();
+        assertThat(memberJpaRepository.findAll()).hasSize(10);
+    }
+}
@@ -0,0 +1,96 @@
+package me.study.querydsl.monitoring;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import me.study.querydsl.dto.MemberSearchCondition;
+import me.study.querydsl.entity.Member;
+import me.study.querydsl.repository.MemberRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(OutputCaptureExtension.class)
+@SpringBootTest(properties = {
+        "member.sql-monitor.enabled=true",
+        "member.sql-monitor.slow-threshold=0ms",
+        "decorator.datasource.p6spy.enable-logging=false"
+})
+class SlowQueryListenerTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    SqlStatsEndpoint sqlStatsEndpoint;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate.executeWithoutResult(status -> em.persist(new Member("member1", 10)));
+        sqlStatsEndpoint.reset();
+    }
+
+    @AfterEach
+    void tearDown() {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+    }
+
+    @DisplayName("느린 statement 는 bind 값과 호출한 리포지토리 메서드를 함께 남긴다")
+    @Test
+    void logSlowStatement(CapturedOutput output) {
+        // given
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("member1");
+
+        // when
+        memberRepository.search(condition);
+
+        // then
+        assertThat(output).contains("slow sql")
+                .contains("caller=repository.MemberRepositoryImpl.search")
+                .contains("'member1'");
+    }
+
+    @DisplayName("같은 모양의 SQL 은 bind 값이 달라도 하나로 집계한다")
+    @Test
+    void aggregateByShape() throws Exception {
+        // given
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        // when
+        for (int i = 0; i < 5; i++) {
+            condition.setUsername("member" + i);
+            memberRepository.search(condition);
+        }
+
+        // then
+        List<SqlShapeStats.Snapshot> stats = sqlStatsEndpoint.sqlStats();
+        assertThat(stats).hasSize(1);
+        assertThat(stats.get(0).getCount()).isEqualTo(5);
+        assertThat(stats.get(0).getSql()).contains("where member0_.username=?");
+        assertThat(stats.get(0).getP99Millis()).isGreaterThanOrEqualTo(stats.get(0).getP50Millis());
+        assertThat(objectMapper.writeValueAsString(stats)).contains("\"count\":5");
+    }
+}
@@ -0,0 +1,19 @@
+package me.study.querydsl.repository;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MemberBatchLoaderTest {
+
+    @DisplayName("IN 절 파라미터 수를 2의 거듭제곱으로 맞춘다")
+    @Test
+    void pad() {
+        assertThat(MemberBatchLoader.pad(List.of(1L))).containsExactly(1L);
+        assertThat(MemberBatchLoader.pad(List.of(1L, 2L, 3L))).containsExactly(1L, 2L, 3L, 3L);
+        assertThat(MemberBatchLoader.pad(List.of(1L, 2L, 3L, 4L, 5L))).hasSize(8).endsWith(5L, 5L, 5L, 5L);
+    }
+}
@@ -0,0 +1,115 @@
+package me.study.querydsl.repository;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import me.study.querydsl.dto.MemberSearchCondition;
+import me.study.querydsl.entity.Member;
+import me.study.querydsl.entity.Team;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.test.StepVerifier;
+
+import javax.persistence.EntityManager;
+import javax.sql.DataSource;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * reactive 검색은 별도 커넥션에서 읽으므로 테스트 데이터를 실제로 커밋하고 끝나면 지운다.
+ * batch 경계를 넘도록 batch-size 를 2 로 둔다.
+ */
+@SpringBootTest(properties = "member.reactive.batch-size=2")
+class MemberReactiveRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    MemberReactiveRepository memberReactiveRepository;
+
+    @Autowired
+    DataSource dataSource;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("TeamA");
+            Team teamB = new Team("TeamB");
+            em.persist(teamA);
+            em.persist(teamB);
+
+            em.persist(new Member("Member1", 10, teamA));
+            em.persist(new Member("Member2", 20, teamA));
+            em.persist(new Member("Member3", 30, teamB));
+            em.persist(new Member("Member4", 40, teamB));
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+    }
+
+    @DisplayName("reactive 검색은 search 와 같은 조건을 적용한다")
+    @Test
+    void search() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(35);
+        condition.setAgeLoe(40);
+        condition.setTeamName("TeamB");
+
+        StepVerifier.create(memberReactiveRepository.search(condition))
+                .expectNextMatches(dto -> dto.getUsername().equals("Member4"))
+                .verifyComplete();
+    }
+
+    @DisplayName("요청한 만큼만 받고 취소하면 커서를 닫는다")
+    @Test
+    void searchWithBackpressure() {
+        StepVerifier.create(memberReactiveRepository.search(new MemberSearchCondition()), 1)
+                .expectNextCount(1)
+                .thenRequest(1)
+                .expectNextCount(1)
+                .thenCancel()
+                .verify();
+    }
+
+    @DisplayName("batch 를 넘어 member_id 순으로 모두 읽고, 다음 요청을 기다리는 동안 커넥션을 잡지 않는다")
+    @Test
+    void releaseConnectionBetweenBatches() throws Exception {
+        HikariPoolMXBean pool = dataSource.unwrap(HikariDataSource.class).getHikariPoolMXBean();
+
+        StepVerifier.create(memberReactiveRepository.search(new MemberSearchCondition()), 1)
+                .expectNextMatches(dto -> dto.getUsername().equals("Member1"))
+                .then(() -> assertThat(awaitIdle(pool)).isTrue())
+                .thenRequest(3)
+                .expectNextMatches(dto -> dto.getUsername().equals("Member2"))
+                .expectNextMatches(dto -> dto.getUsername().equals("Member3"))
+                .expectNextMatches(dto -> dto.getUsername().equals("Member4"))
+                .verifyComplete();
+    }
+
+    // 다음 batch 를 미리 읽는 중일 수 있으므로 잠깐 기다린다
+    private static boolean awaitIdle(HikariPoolMXBean pool) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (System.nanoTime() < deadline) {
+            if (pool.getActiveConnections() == 0) {
+                return true;
+            }
+            Thread.onSpinWait();
+        }
+        return false;
+    }
+}
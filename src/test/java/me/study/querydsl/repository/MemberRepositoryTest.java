@@ -1,5 +1,6 @@
 package me.study.querydsl.repository;
 
+import me.study.querydsl.dto.MemberField;
 import me.study.querydsl.dto.MemberSearchCondition;
 import me.study.querydsl.dto.MemberTeamDto;
 import me.study.querydsl.entity.Member;
@@ -11,10 +12,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -99,6 +103,112 @@ public class MemberRepositoryTest {
                 .containsExactly("Member1", "Member2", "Member3");
     }
 
+    @DisplayName("요청한 필드만 조회하고 팀 필드가 없으면 team 조인 없이 조회한다")
+    @Test
+    void searchFieldsTest() {
+        // given
+        Team teamA = new Team("FieldsTeamA");
+        em.persist(teamA);
+        em.persist(new Member("FieldsMember1", 10, teamA));
+        em.persist(new Member("FieldsMember2", 20, null));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("FieldsMember1");
+
+        // when
+        List<Map<String, Object>> usernames = memberRepository.searchFields(condition, MemberField.parse("age,username"));
+        List<Map<String, Object>> teams = memberRepository.searchFields(condition, MemberField.parse("teamId,teamName"));
+
+        // then
+        assertThat(usernames).hasSize(1);
+        assertThat(usernames.get(0)).containsOnlyKeys("username", "age")
+                .containsEntry("username", "FieldsMember1")
+                .containsEntry("age", 10);
+        assertThat(teams.get(0)).containsOnlyKeys("teamId", "teamName")
+                .containsEntry("teamId", teamA.getId())
+                .containsEntry("teamName", "FieldsTeamA");
+    }
+
+    @DisplayName("fields 페이징은 조회한 필드만 담고 전체 건수를 함께 돌려준다")
+    @Test
+    void searchPageFieldsTest() {
+        // given
+        Team teamA = new Team("FieldsTeamA");
+        em.persist(teamA);
+        em.persist(new Member("FieldsMember1", 10, teamA));
+        em.persist(new Member("FieldsMember2", 20, teamA));
+        em.persist(new Member("FieldsMember3", 30, teamA));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("FieldsTeamA");
+
+        // when
+        Page<Map<String, Object>> result = memberRepository.searchPageFields(condition, MemberField.parse("username"), PageRequest.of(0, 2));
+
+        // then
+        assertThat(result.getTotalElements()).isEqualTo(3);
+        assertThat(result.getContent()).extracting(row -> row.get("username"))
+                .containsExactly("FieldsMember3", "FieldsMember2");
+    }
+
+    @DisplayName("같은 age 는 memberId 순서로 정렬되어 페이지가 겹치지 않는다")
+    @Test
+    void searchPageSortTiebreakerTest() {
+        // given
+        Team teamA = new Team("SortTeamA");
+        em.persist(teamA);
+        Member member1 = new Member("SortMember1", 10, teamA);
+        Member member2 = new Member("SortMember2", 10, teamA);
+        Member member3 = new Member("SortMember3", 10, teamA);
+        em.persist(member1);
+        em.persist(member2);
+        em.persist(member3);
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("SortTeamA");
+        Sort sort = Sort.by(Sort.Direction.ASC, "age");
+
+        // when
+        Page<MemberTeamDto> first = memberRepository.searchPageComplex(condition, PageRequest.of(0, 2, sort));
+        Page<MemberTeamDto> second = memberRepository.searchPageComplex(condition, PageRequest.of(1, 2, sort));
+
+        // then
+        assertThat(first.getContent()).extracting("memberId").containsExactly(member1.getId(), member2.getId());
+        assertThat(second.getContent()).extracting("memberId").containsExactly(member3.getId());
+    }
+
+    @DisplayName("여러 id 를 요청 순서대로 조회하고 영속성 컨텍스트에 있는 회원은 다시 조회하지 않는다")
+    @Test
+    void findAllByIdsTest() {
+        // given
+        Team teamA = new Team("BatchTeamA");
+        em.persist(teamA);
+        Member member1 = new Member("BatchMember1", 10, teamA);
+        Member member2 = new Member("BatchMember2", 20, teamA);
+        Member member3 = new Member("BatchMember3", 30, null);
+        em.persist(member1);
+        em.persist(member2);
+        em.persist(member3);
+        em.flush();
+        em.clear();
+
+        Member cached = em.find(Member.class, member2.getId());
+
+        // MAX_CHUNK 를 넘도록 없는 id 를 섞는다
+        List<Long> ids = new ArrayList<>(List.of(member3.getId(), member2.getId(), -1L, member1.getId(), member3.getId()));
+        for (long i = 0; i < MemberBatchLoader.MAX_CHUNK; i++) {
+            ids.add(-100 - i);
+        }
+
+        // when
+        List<Member> result = memberRepository.findAllByIds(ids);
+
+        // then
+        assertThat(result).extracting("username").containsExactly("BatchMember3", "BatchMember2", "BatchMember1");
+        assertThat(result.get(1)).isSameAs(cached);
+        assertThat(result.get(2).getTeam().getName()).isEqualTo("BatchTeamA");
+    }
+
     @Test
     public void querydslPredicateExecutorTest() {
         // given
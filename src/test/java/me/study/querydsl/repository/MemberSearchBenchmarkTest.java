@@ -0,0 +1,149 @@
+package me.study.querydsl.repository;
+
+import me.study.querydsl.dto.MemberSearchCondition;
+import me.study.querydsl.entity.Member;
+import me.study.querydsl.entity.Team;
+import me.study.querydsl.service.MemberAgeIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.function.Consumer;
+
+/**
+ * ./gradlew benchmark 로 실행한다.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {
+        "logging.level.org.hibernate.SQL=warn",
+        "logging.level.org.hibernate.type=warn",
+        "decorator.datasource.p6spy.enable-logging=false",
+        "member.age-index.enabled=true",
+        // 다른 비교는 team 조인으로 검색한다. teamJoinVersusDictionary 에서만 사전을 쓴다
+        "member.team-dictionary.enabled=true",
+        "member.team-dictionary.max-teams=0"
+})
+class MemberSearchBenchmarkTest {
+
+    static final int MEMBERS = 10_000;
+    static final int WARMUP = 200;
+    static final int ITERATIONS = 1_000;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberSqlRepository memberSqlRepository;
+
+    @Autowired
+    MemberAgeIndex memberAgeIndex;
+
+    @Autowired
+    TeamDictionary teamDictionary;
+
+    @Autowired
+    TeamDictionaryProperties teamDictionaryProperties;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("TeamA");
+            Team teamB = new Team("TeamB");
+            em.persist(teamA);
+            em.persist(teamB);
+
+            for (int i = 0; i < MEMBERS; i++) {
+                em.persist(new Member("member" + i, i % 100, i % 2 == 0 ? teamA : teamB));
+            }
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+    }
+
+    @DisplayName("JPA 와 querydsl-sql 검색 경로 비교")
+    @Test
+    void jpaVersusSql() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("TeamB");
+        condition.setAgeGoe(30);
+        PageRequest pageRequest = PageRequest.of(2, 20);
+
+        measure("jpa searchPageComplex", iteration -> memberRepository.searchPageComplex(condition, pageRequest));
+        measure("sql searchPageComplex", iteration -> memberSqlRepository.searchPageComplex(condition, pageRequest));
+        measure("jpa search", iteration -> memberRepository.search(condition));
+        measure("sql search", iteration -> memberSqlRepository.search(condition));
+    }
+
+    @DisplayName("age 순 첫 페이지: DB 정렬과 MemberAgeIndex 비교")
+    @Test
+    void ageIndexVersusDatabase() {
+        memberAgeIndex.reload();
+        MemberSearchCondition none = new MemberSearchCondition();
+        MemberSearchCondition teamB = new MemberSearchCondition();
+        teamB.setTeamName("TeamB");
+        PageRequest pageRequest = PageRequest.of(0, 20);
+
+        measure("jpa first page", iteration -> memberRepository.searchPageSimple(none, pageRequest));
+        measure("index first page", iteration -> memberAgeIndex.findPage(none, pageRequest).orElseThrow());
+        measure("jpa teamB first page", iteration -> memberRepository.searchPageSimple(teamB, pageRequest));
+        measure("index teamB first page", iteration -> memberAgeIndex.findPage(teamB, pageRequest).orElseThrow());
+    }
+
+    @DisplayName("team 조인과 TeamDictionary 비교")
+    @Test
+    void teamJoinVersusDictionary() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("TeamB");
+        condition.setAgeGoe(30);
+        PageRequest pageRequest = PageRequest.of(2, 20);
+
+        teamDictionary.reload();
+        measure("join jpa searchPageComplex", iteration -> memberRepository.searchPageComplex(condition, pageRequest));
+        measure("join sql searchPageComplex", iteration -> memberSqlRepository.searchPageComplex(condition, pageRequest));
+        measure("join sql search", iteration -> memberSqlRepository.search(condition));
+
+        teamDictionaryProperties.setMaxTeams(10_000);
+        try {
+            teamDictionary.reload();
+            measure("dict jpa searchPageComplex", iteration -> memberRepository.searchPageComplex(condition, pageRequest));
+            measure("dict sql searchPageComplex", iteration -> memberSqlRepository.searchPageComplex(condition, pageRequest));
+            measure("dict sql search", iteration -> memberSqlRepository.search(condition));
+        } finally {
+            teamDictionaryProperties.setMaxTeams(0);
+            teamDictionary.reload();
+        }
+    }
+
+    private void measure(String name, Consumer<Integer> call) {
+        for (int i = 0; i < WARMUP; i++) {
+            call.accept(i);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            call.accept(i);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        System.out.printf("%-28s %8.1f us/op%n", name, elapsed / 1_000.0 / ITERATIONS);
+    }
+}
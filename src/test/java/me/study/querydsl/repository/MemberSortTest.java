@@ -0,0 +1,42 @@
+package me.study.querydsl.repository;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MemberSortTest {
+
+    @DisplayName("정렬이 없으면 age DESC, memberId DESC 로 정렬한다")
+    @Test
+    void defaultSort() {
+        assertThat(MemberSort.resolve(Sort.unsorted()))
+                .containsExactly(Sort.Order.desc("age"), Sort.Order.desc("memberId"));
+    }
+
+    @DisplayName("정렬 키 뒤에 같은 방향의 memberId tiebreaker 를 붙인다")
+    @Test
+    void appendTiebreaker() {
+        assertThat(MemberSort.resolve(Sort.by("username")))
+                .containsExactly(Sort.Order.asc("username"), Sort.Order.asc("memberId"));
+        assertThat(MemberSort.resolve(Sort.by(Sort.Order.desc("age"), Sort.Order.desc("memberId"))))
+                .containsExactly(Sort.Order.desc("age"), Sort.Order.desc("memberId"));
+        assertThat(MemberSort.resolve(Sort.by("memberId")))
+                .containsExactly(Sort.Order.asc("memberId"));
+    }
+
+    @DisplayName("인덱스로 처리할 수 없는 정렬은 거부한다")
+    @Test
+    void rejectUnindexedSort() {
+        assertThatThrownBy(() -> MemberSort.resolve(Sort.by("teamName")))
+                .isInstanceOf(UnsupportedSortException.class);
+        assertThatThrownBy(() -> MemberSort.resolve(Sort.by("age", "username")))
+                .isInstanceOf(UnsupportedSortException.class);
+        assertThatThrownBy(() -> MemberSort.resolve(Sort.by(Sort.Order.asc("age"), Sort.Order.desc("memberId"))))
+                .isInstanceOf(UnsupportedSortException.class);
+        assertThatThrownBy(() -> MemberSort.resolve(Sort.by(Sort.Order.asc("username").ignoreCase())))
+                .isInstanceOf(UnsupportedSortException.class);
+    }
+}
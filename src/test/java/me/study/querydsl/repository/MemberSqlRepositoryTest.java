@@ -0,0 +1,98 @@
+package me.study.querydsl.repository;
+
+import me.study.querydsl.dto.MemberField;
+import me.study.querydsl.dto.MemberSearchCondition;
+import me.study.querydsl.dto.MemberTeamDto;
+import me.study.querydsl.entity.Member;
+import me.study.querydsl.entity.Team;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class MemberSqlRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberSqlRepository memberSqlRepository;
+
+    @BeforeEach
+    void setUp() {
+        Team teamA = new Team("TeamA");
+        Team teamB = new Team("TeamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("Member1", 10, teamA));
+        em.persist(new Member("Member2", 20, teamA));
+        em.persist(new Member("Member3", 30, teamB));
+        em.persist(new Member("Member4", 40, teamB));
+
+        // querydsl-sql 은 영속성 컨텍스트를 거치지 않으므로 먼저 DB 에 반영한다
+        em.flush();
+    }
+
+    @Test
+    void searchTest() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(35);
+        condition.setAgeLoe(40);
+        condition.setTeamName("TeamB");
+
+        List<MemberTeamDto> result = memberSqlRepository.search(condition);
+
+        assertThat(result).extracting("username").containsExactly("Member4");
+        assertThat(result).extracting("teamName").containsExactly("TeamB");
+    }
+
+    @Test
+    void searchPageTest() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        PageRequest pageRequest = PageRequest.of(0, 3);
+
+        Page<MemberTeamDto> simple = memberSqlRepository.searchPageSimple(condition, pageRequest);
+        Page<MemberTeamDto> complex = memberSqlRepository.searchPageComplex(condition, pageRequest);
+
+        assertThat(simple.getTotalElements()).isEqualTo(4);
+        assertThat(simple.getContent()).extracting("username").containsExactly("Member4", "Member3", "Member2");
+        assertThat(complex.getTotalElements()).isEqualTo(4);
+        assertThat(complex.getContent()).extracting("username").containsExactly("Member4", "Member3", "Member2");
+    }
+
+    @Test
+    void searchFieldsTest() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("TeamB");
+
+        List<Map<String, Object>> result = memberSqlRepository.searchFields(condition, MemberField.parse("username"));
+        Page<Map<String, Object>> page = memberSqlRepository.searchPageFields(condition, MemberField.parse("username,teamName"), PageRequest.of(0, 1));
+
+        assertThat(result).extracting(row -> row.get("username")).containsExactlyInAnyOrder("Member3", "Member4");
+        assertThat(result.get(0)).containsOnlyKeys("username");
+        assertThat(page.getTotalElements()).isEqualTo(2);
+        assertThat(page.getContent().get(0)).containsEntry("username", "Member4").containsEntry("teamName", "TeamB");
+    }
+
+    @Test
+    void searchPageSortTest() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        Page<MemberTeamDto> byUsername = memberSqlRepository.searchPageComplex(condition, PageRequest.of(0, 2, Sort.by("username")));
+
+        assertThat(byUsername.getContent()).extracting("username").containsExactly("Member1", "Member2");
+    }
+}
@@ -0,0 +1,211 @@
+package me.study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import me.study.querydsl.change.ChangeFeed;
+import me.study.querydsl.dto.MemberSearchCondition;
+import me.study.querydsl.dto.MemberTeamDto;
+import me.study.querydsl.entity.Member;
+import me.study.querydsl.entity.Team;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.List;
+
+import static me.study.querydsl.entity.QTeam.team;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest(properties = "member.team-dictionary.enabled=true")
+class TeamDictionaryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    ChangeFeed changeFeed;
+
+    @Autowired
+    TeamDictionary teamDictionary;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberSqlRepository memberSqlRepository;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("TeamA");
+            Team teamB = new Team("TeamB");
+            em.persist(teamA);
+            em.persist(teamB);
+
+            em.persist(new Member("Member1", 10, teamA));
+            em.persist(new Member("Member2", 20, teamA));
+            em.persist(new Member("Member3", 30, teamB));
+            em.persist(new Member("Member4", 40, teamB));
+            em.persist(new Member("Member5", 50));
+        });
+        teamDictionary.reload();
+    }
+
+    @AfterEach
+    void tearDown() {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+    }
+
+    @DisplayName("team 을 조인하지 않고 검색해도 teamName 조건과 결과의 teamName 이 조인 검색과 같다")
+    @Test
+    void searchWithoutJoin() {
+        // given
+        MemberSearchCondition teamB = new MemberSearchCondition();
+        teamB.setTeamName("TeamB");
+        MemberSearchCondition none = new MemberSearchCondition();
+        PageRequest pageRequest = PageRequest.of(0, 3, Sort.by("username"));
+
+        // when
+        List<MemberTeamDto> jpa = memberRepository.search(teamB);
+        List<MemberTeamDto> sql = memberSqlRepository.search(teamB);
+        List<MemberTeamDto> jpaPage = memberRepository.searchPageComplex(none, pageRequest).getContent();
+        List<MemberTeamDto> sqlPage = memberSqlRepository.searchPageSimple(none, pageRequest).getContent();
+        long total = memberSqlRepository.searchPageComplex(teamB, PageRequest.of(0, 1)).getTotalElements();
+
+        // then
+        assertThat(jpa).extracting("username", "teamName")
+                .containsExactlyInAnyOrder(tuple("Member3", "TeamB"), tuple("Member4", "TeamB"));
+        assertThat(sql).usingRecursiveFieldByFieldElementComparator().containsExactlyInAnyOrderElementsOf(jpa);
+        assertThat(jpaPage).extracting("username", "teamName")
+                .containsExactly(tuple("Member1", "TeamA"), tuple("Member2", "TeamA"), tuple("Member3", "TeamB"));
+        assertThat(sqlPage).usingRecursiveFieldByFieldElementComparator().containsExactlyElementsOf(jpaPage);
+        assertThat(total).isEqualTo(2);
+    }
+
+    @DisplayName("같은 이름의 팀이 여럿이면 모두 검색한다")
+    @Test
+    void duplicateTeamName() {
+        // given
+        transactionTemplate.executeWithoutResult(status -> {
+            Team other = new Team("TeamB");
+            em.persist(other);
+            em.persist(new Member("Member6", 60, other));
+        });
+        assertThat(changeFeed.awaitDelivered(Duration.ofSeconds(5))).isTrue();
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("TeamB");
+
+        // when
+        List<MemberTeamDto> result = memberSqlRepository.search(condition);
+
+        // then
+        assertThat(teamDictionary.current().idsOf("TeamB")).hasSize(2);
+        assertThat(result).extracting("username").containsExactlyInAnyOrder("Member3", "Member4", "Member6");
+    }
+
+    @DisplayName("커밋된 팀 이름 변경은 ChangeFeed 를 거쳐 사전에 반영된다")
+    @Test
+    void rename() {
+        // when
+        transactionTemplate.executeWithoutResult(status ->
+                queryFactory.update(team).set(team.name, "TeamC").where(team.name.eq("TeamB")).execute());
+        assertThat(changeFeed.awaitDelivered(Duration.ofSeconds(5))).isTrue();
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("TeamC");
+
+        // then
+        assertThat(teamDictionary.current().idsOf("TeamB")).isNull();
+        assertThat(memberRepository.search(condition)).extracting("username", "teamName")
+                .containsExactlyInAnyOrder(tuple("Member3", "TeamC"), tuple("Member4", "TeamC"));
+    }
+
+    @DisplayName("사전에 없는 팀은 조인으로 검색하거나 검색하는 트랜잭션에서 이름을 읽는다")
+    @Test
+    void uncommittedTeam() {
+        List<List<MemberTeamDto>> results = transactionTemplate.execute(status -> {
+            // given
+            Team teamD = new Team("TeamD");
+            em.persist(teamD);
+            em.persist(new Member("Member6", 60, teamD));
+            em.flush();
+
+            MemberSearchCondition byTeamName = new MemberSearchCondition();
+            byTeamName.setTeamName("TeamD");
+            MemberSearchCondition byUsername = new MemberSearchCondition();
+            byUsername.setUsername("Member6");
+
+            // when
+            List<List<MemberTeamDto>> found = List.of(
+                    memberRepository.search(byTeamName),
+                    memberSqlRepository.search(byTeamName),
+                    memberRepository.search(byUsername),
+                    memberSqlRepository.search(byUsername));
+            status.setRollbackOnly();
+            return found;
+        });
+
+        // then
+        assertThat(results).allSatisfy(result ->
+                assertThat(result).extracting("username", "teamName").containsExactly(tuple("Member6", "TeamD")));
+    }
+
+    @DisplayName("검색하는 트랜잭션에서 같은 이름의 팀을 만들거나 그 이름으로 바꾸면 사전 대신 조인으로 찾는다")
+    @Test
+    void teamWriteInTransaction() {
+        List<List<MemberTeamDto>> results = transactionTemplate.execute(status -> {
+            // given (flush 전의 새 팀)
+            Team otherA = new Team("TeamA");
+            em.persist(otherA);
+            em.persist(new Member("Member6", 60, otherA));
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setTeamName("TeamA");
+
+            // when
+            List<MemberTeamDto> created = memberRepository.search(condition);
+            queryFactory.update(team).set(team.name, "TeamA").where(team.name.eq("TeamB")).execute();
+            List<MemberTeamDto> renamed = memberSqlRepository.search(condition);
+            status.setRollbackOnly();
+            return List.of(created, renamed);
+        });
+
+        // then
+        assertThat(results.get(0)).extracting("username").containsExactlyInAnyOrder("Member1", "Member2", "Member6");
+        assertThat(results.get(1)).extracting("username")
+                .containsExactlyInAnyOrder("Member1", "Member2", "Member3", "Member4", "Member6");
+        assertThat(changeFeed.awaitDelivered(Duration.ofSeconds(5))).isTrue();
+        assertThat(teamDictionary.forSearch()).isNotNull();
+    }
+
+    @DisplayName("커밋한 이름 변경은 사전이 feed 를 처리하기 전에도 바뀐 이름으로 찾는다")
+    @Test
+    void renameBeforeDelivery() {
+        // when
+        transactionTemplate.executeWithoutResult(status ->
+                queryFactory.update(team).set(team.name, "TeamA").where(team.name.eq("TeamB")).execute());
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("TeamA");
+        List<MemberTeamDto> result = memberRepository.search(condition);
+
+        // then
+        assertThat(result).extracting("username").containsExactlyInAnyOrder("Member1", "Member2", "Member3", "Member4");
+        assertThat(changeFeed.awaitDelivered(Duration.ofSeconds(5))).isTrue();
+        assertThat(teamDictionary.forSearch().idsOf("TeamA")).hasSize(2);
+    }
+}
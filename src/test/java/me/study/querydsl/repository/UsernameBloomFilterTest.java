@@ -0,0 +1,46 @@
+package me.study.querydsl.repository;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UsernameBloomFilterTest {
+
+    @DisplayName("넣은 username 은 항상 있다고 하고, 넣지 않은 username 의 false positive 비율은 목표 근처다")
+    @Test
+    void falsePositiveRate() {
+        // given
+        UsernameBloomFilter filter = new UsernameBloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("member" + i);
+        }
+
+        // when
+        int falsePositives = 0;
+        for (int i = 10_000; i < 110_000; i++) {
+            if (filter.mightContain("member" + i)) {
+                falsePositives++;
+            }
+        }
+
+        // then
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(filter.mightContain("member" + i)).isTrue();
+        }
+        assertThat(falsePositives / 100_000.0).isLessThan(0.02);
+        assertThat(filter.expectedFpp()).isBetween(0.005, 0.02);
+        assertThat(filter.isSaturated()).isFalse();
+    }
+
+    @DisplayName("예상 개수를 넘게 넣으면 saturated 가 된다")
+    @Test
+    void saturated() {
+        UsernameBloomFilter filter = new UsernameBloomFilter(100, 0.01);
+        for (int i = 0; i < 200; i++) {
+            filter.put("member" + i);
+        }
+
+        assertThat(filter.isSaturated()).isTrue();
+    }
+}
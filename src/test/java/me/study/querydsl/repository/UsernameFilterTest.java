@@ -0,0 +1,169 @@
+package me.study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import me.study.querydsl.change.ChangeFeed;
+import me.study.querydsl.entity.Member;
+import me.study.querydsl.service.MemberBulkChangedEvent;
+import me.study.querydsl.service.MemberSnapshot;
+import me.study.querydsl.service.MemberUpsertService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static me.study.querydsl.entity.QMember.member;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "member.username-filter.enabled=true")
+class UsernameFilterTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    UsernameFilter usernameFilter;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    ChangeFeed changeFeed;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    MemberUpsertService memberUpsertService;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < 100; i++) {
+                em.persist(new Member("member" + i, i));
+            }
+        });
+        usernameFilter.rebuild();
+    }
+
+    @AfterEach
+    void tearDown() {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from MemberUsernameLock").executeUpdate();
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+    }
+
+    @DisplayName("없는 username 은 DB 를 거치지 않고 빈 결과를 돌려준다")
+    @Test
+    void skipAbsentUsername() {
+        // given
+        double before = skipped();
+
+        // when
+        int found = memberRepository.findByUsername("member7").size()
+                + memberJpaRepository.findByUsername("member8").size()
+                + memberJpaRepository.findByUsername_QueryDsl("member9").size();
+        int absent = memberRepository.findByUsername("nobody").size()
+                + memberJpaRepository.findByUsername("nobody").size()
+                + memberJpaRepository.findByUsername_QueryDsl("nobody").size();
+
+        // then
+        assertThat(found).isEqualTo(3);
+        assertThat(absent).isZero();
+        assertThat(skipped() - before).isEqualTo(3);
+    }
+
+    @DisplayName("새로 저장한 회원은 flush 전에도, 커밋 후에도 찾는다")
+    @Test
+    void findNewMember() {
+        // when
+        int inTransaction = transactionTemplate.execute(status -> {
+            em.persist(new Member("newcomer", 10));
+            return memberRepository.findByUsername("newcomer").size();
+        });
+
+        // then
+        assertThat(inTransaction).isEqualTo(1);
+        assertThat(memberJpaRepository.findByUsername("newcomer")).hasSize(1);
+    }
+
+    @DisplayName("엔티티 이벤트 없이 들어온 회원은 MemberBulkChangedEvent 로 다시 만든 뒤 찾는다")
+    @Test
+    void rebuildOnBulkChange() {
+        // given
+        jdbcTemplate.update("insert into member (member_id, username, age, version) values (next value for hibernate_sequence, 'imported', 1, 0)");
+
+        // when (ChangeFeed 구독자 스레드에서 다시 만든다)
+        eventPublisher.publishEvent(new MemberBulkChangedEvent("test"));
+        assertThat(changeFeed.awaitDelivered(Duration.ofSeconds(5))).isTrue();
+
+        // then
+        assertThat(memberRepository.findByUsername("imported")).hasSize(1);
+    }
+
+    @DisplayName("JDBC upsert 나 bulk update 로 커밋된 username 은 다시 만들기 전에도 찾는다")
+    @Test
+    void findBeforeRebuild() throws Exception {
+        // when
+        memberUpsertService.upsert(List.of(new MemberSnapshot("upserted", 1, null)));
+        List<Member> upserted = memberRepository.findByUsername("upserted");
+        transactionTemplate.executeWithoutResult(status -> {
+            queryFactory.update(member).set(member.username, "renamed").where(member.username.eq("member1")).execute();
+            // 실행한 뒤로는 커밋 전에도 filter 가 없다고 답하지 않는다
+            assertThat(usernameFilter.mightExist(em, "renamed")).isTrue();
+        });
+        List<Member> renamed = memberJpaRepository.findByUsername("renamed");
+
+        // then
+        assertThat(upserted).extracting("username").containsExactly("upserted");
+        assertThat(renamed).extracting("age").containsExactly(1);
+    }
+
+    @DisplayName("flush 된 뒤 커밋되기 전에 몇 번을 다시 만들어도 커밋 후에 찾는다")
+    @Test
+    void rebuildBeforeCommit() {
+        // when
+        transactionTemplate.executeWithoutResult(status -> {
+            em.persist(new Member("pending", 10));
+            em.flush();
+            // 다른 스레드에서 다시 만든다. 커밋되지 않은 username 은 DB 에서 읽히지 않는다
+            CompletableFuture.runAsync(usernameFilter::rebuild).join();
+            CompletableFuture.runAsync(usernameFilter::rebuild).join();
+        });
+
+        // then
+        assertThat(memberRepository.findByUsername("pending")).hasSize(1);
+        assertThat(memberJpaRepository.findByUsername("pending")).hasSize(1);
+    }
+
+    private double skipped() {
+        return meterRegistry.get("member.username.filter.lookups").tag("result", "skipped").counter().count();
+    }
+}
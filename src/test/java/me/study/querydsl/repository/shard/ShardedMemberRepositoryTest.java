@@ -0,0 +1,102 @@
+package me.study.querydsl.repository.shard;
+
+import me.study.querydsl.dto.MemberSearchCondition;
+import me.study.querydsl.dto.MemberTeamDto;
+import me.study.querydsl.entity.Member;
+import me.study.querydsl.entity.Team;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ShardedMemberRepositoryTest {
+
+    MemberShards memberShards;
+    ShardedMemberRepository shardedMemberRepository;
+
+    @BeforeEach
+    void setUp() {
+        // 테스트마다 새 in-memory H2 3개를 shard 로 사용한다
+        String prefix = UUID.randomUUID().toString();
+        MemberShardProperties properties = new MemberShardProperties();
+        properties.setUrls(List.of(
+                "jdbc:h2:mem:" + prefix + "-0;DB_CLOSE_DELAY=-1",
+                "jdbc:h2:mem:" + prefix + "-1;DB_CLOSE_DELAY=-1",
+                "jdbc:h2:mem:" + prefix + "-2;DB_CLOSE_DELAY=-1"));
+
+        memberShards = new MemberShards(properties);
+        shardedMemberRepository = new ShardedMemberRepository(memberShards);
+
+        Team teamA = new Team("TeamA");
+        Team teamB = new Team("TeamB");
+        Team teamC = new Team("TeamC");
+        shardedMemberRepository.saveTeam(teamA);
+        shardedMemberRepository.saveTeam(teamB);
+        shardedMemberRepository.saveTeam(teamC);
+
+        shardedMemberRepository.save(new Member("Member1", 10, teamA));
+        shardedMemberRepository.save(new Member("Member2", 20, teamB));
+        shardedMemberRepository.save(new Member("Member3", 30, teamC));
+        shardedMemberRepository.save(new Member("Member4", 40, teamA));
+        shardedMemberRepository.save(new Member("Member5", 50, teamB));
+        shardedMemberRepository.save(new Member("Member6", 60));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        shardedMemberRepository.close();
+        memberShards.close();
+    }
+
+    @DisplayName("조건 없는 검색은 모든 shard 결과를 합친다")
+    @Test
+    void searchScatterGather() {
+        List<MemberTeamDto> result = shardedMemberRepository.search(new MemberSearchCondition());
+
+        assertThat(result).extracting("username")
+                .containsExactlyInAnyOrder("Member1", "Member2", "Member3", "Member4", "Member5", "Member6");
+    }
+
+    @DisplayName("teamName 조건은 shard 하나로 라우팅된다")
+    @Test
+    void searchRoutedByTeamName() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("TeamB");
+
+        List<MemberTeamDto> result = shardedMemberRepository.search(condition);
+
+        assertThat(result).extracting("username").containsExactlyInAnyOrder("Member2", "Member5");
+    }
+
+    @DisplayName("shard 별 age DESC 결과를 병합해 전역 페이지를 만든다")
+    @Test
+    void searchPageMerged() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        Page<MemberTeamDto> simple = shardedMemberRepository.searchPageSimple(condition, PageRequest.of(1, 2));
+        Page<MemberTeamDto> complex = shardedMemberRepository.searchPageComplex(condition, PageRequest.of(1, 2));
+
+        assertThat(simple.getTotalElements()).isEqualTo(6);
+        assertThat(simple.getContent()).extracting("username").containsExactly("Member4", "Member3");
+        assertThat(complex.getTotalElements()).isEqualTo(6);
+        assertThat(complex.getContent()).extracting("username").containsExactly("Member4", "Member3");
+    }
+
+    @DisplayName("요청한 정렬 순서로 shard 결과를 병합한다")
+    @Test
+    void searchPageMergedWithSort() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        Page<MemberTeamDto> result = shardedMemberRepository.searchPageComplex(condition, PageRequest.of(0, 3, Sort.by("username")));
+
+        assertThat(result.getContent()).extracting("username").containsExactly("Member1", "Member2", "Member3");
+    }
+}
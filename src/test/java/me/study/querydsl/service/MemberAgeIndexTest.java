@@ -0,0 +1,297 @@
+package me.study.querydsl.service;
+
+import me.study.querydsl.change.ChangeFeed;
+import me.study.querydsl.change.ChangeType;
+import me.study.querydsl.change.MemberChanged;
+import me.study.querydsl.change.TeamChanged;
+import me.study.querydsl.dto.MemberSearchCondition;
+import me.study.querydsl.dto.MemberTeamDto;
+import me.study.querydsl.entity.Member;
+import me.study.querydsl.entity.Team;
+import me.study.querydsl.repository.MemberRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+// window(10건)보다 회원이 많아 DB 로 다시 채우기와 total count 를 거친다
+@SpringBootTest(properties = {"member.age-index.enabled=true", "member.age-index.max-rows=5"})
+class MemberAgeIndexTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    MemberAgeIndex memberAgeIndex;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    ChangeFeed changeFeed;
+
+    Long teamAId;
+    Long teamBId;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            teamAId = teamA.getId();
+            teamBId = teamB.getId();
+
+            for (int i = 0; i < 50; i++) {
+                em.persist(new Member("member" + i, i % 7, i % 2 == 0 ? teamA : teamB));
+            }
+            em.persist(new Member("noTeam", 3));
+        });
+        awaitChangeFeed();
+        memberAgeIndex.reload();
+    }
+
+    @AfterEach
+    void tearDown() {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+        awaitChangeFeed();
+        memberAgeIndex.reload();
+    }
+
+    @DisplayName("조건이 없거나 teamName 만 있는 age DESC 앞쪽 페이지는 DB 검색과 같은 결과를 메모리에서 돌려준다")
+    @Test
+    void sameAsDatabase() {
+        MemberSearchCondition none = new MemberSearchCondition();
+        MemberSearchCondition teamB = new MemberSearchCondition();
+        teamB.setTeamName("teamB");
+
+        for (MemberSearchCondition condition : new MemberSearchCondition[]{none, teamB}) {
+            for (PageRequest pageable : new PageRequest[]{
+                    PageRequest.of(0, 5),
+                    PageRequest.of(1, 2),
+                    PageRequest.of(0, 3, Sort.by(Sort.Order.desc("age"))),
+                    PageRequest.of(0, 5, Sort.by(Sort.Order.desc("age"), Sort.Order.desc("memberId")))}) {
+                Page<MemberTeamDto> expected = memberRepository.searchPageSimple(condition, pageable);
+                Page<MemberTeamDto> result = findPage(condition, pageable);
+
+                assertThat(result.getContent()).isEqualTo(expected.getContent());
+                assertThat(result.getTotalElements()).isEqualTo(expected.getTotalElements());
+            }
+        }
+    }
+
+    @DisplayName("username / age 조건, age DESC 외 정렬, maxRows 를 넘는 페이지는 맡지 않는다")
+    @Test
+    void notCovered() {
+        MemberSearchCondition username = new MemberSearchCondition();
+        username.setUsername("member1");
+        MemberSearchCondition ageGoe = new MemberSearchCondition();
+        ageGoe.setAgeGoe(3);
+
+        assertThat(memberAgeIndex.findPage(username, PageRequest.of(0, 10))).isEmpty();
+        assertThat(memberAgeIndex.findPage(ageGoe, PageRequest.of(0, 10))).isEmpty();
+        assertThat(memberAgeIndex.findPage(new MemberSearchCondition(), PageRequest.of(0, 10, Sort.by("username")))).isEmpty();
+        assertThat(memberAgeIndex.findPage(new MemberSearchCondition(), PageRequest.of(0, 5, Sort.by(Sort.Order.asc("age"))))).isEmpty();
+        assertThat(memberAgeIndex.findPage(new MemberSearchCondition(), PageRequest.of(1, 5))).isEmpty();
+    }
+
+    @DisplayName("커밋된 추가 / 팀 변경 / 삭제는 반영하고 롤백된 변경은 반영하지 않는다")
+    @Test
+    void followsCommittedChanges() {
+        // given
+        MemberSearchCondition teamA = new MemberSearchCondition();
+        teamA.setTeamName("teamA");
+        PageRequest first = PageRequest.of(0, 3);
+
+        // when
+        Long oldestId = transactionTemplate.execute(status -> {
+            Member oldest = new Member("oldest", 100, em.getReference(Team.class, teamBId));
+            em.persist(oldest);
+            return oldest.getId();
+        });
+        awaitChangeFeed();
+
+        // then
+        assertThat(memberAgeIndex.findPage(new MemberSearchCondition(), first).orElseThrow().getContent())
+                .first().extracting("memberId", "teamName").containsExactly(oldestId, "teamB");
+
+        // when (team 프록시로 팀 변경)
+        transactionTemplate.executeWithoutResult(status ->
+                em.find(Member.class, oldestId).changeTeam(em.getReference(Team.class, teamAId)));
+        awaitChangeFeed();
+
+        // then
+        Page<MemberTeamDto> teamAPage = findPage(teamA, first);
+        assertThat(teamAPage.getContent()).first().extracting("memberId", "teamId", "teamName")
+                .containsExactly(oldestId, teamAId, "teamA");
+        assertThat(teamAPage.getTotalElements()).isEqualTo(26);
+
+        // when (롤백)
+        transactionTemplate.executeWithoutResult(status -> {
+            em.remove(em.find(Member.class, oldestId));
+            status.setRollbackOnly();
+        });
+        awaitChangeFeed();
+
+        // then
+        assertThat(findPage(teamA, first).getTotalElements()).isEqualTo(26);
+
+        // when (삭제)
+        transactionTemplate.executeWithoutResult(status -> em.remove(em.find(Member.class, oldestId)));
+        awaitChangeFeed();
+
+        // then
+        assertThat(findPage(teamA, first).getTotalElements()).isEqualTo(25);
+        assertThat(memberAgeIndex.findPage(new MemberSearchCondition(), first).orElseThrow().getContent())
+                .isEqualTo(memberRepository.searchPageComplex(new MemberSearchCondition(), first).getContent());
+    }
+
+    @DisplayName("앞쪽 회원이 지워져 window 가 maxRows 보다 줄면 DB 에서 다시 채운다")
+    @Test
+    void refillsFromDatabase() {
+        // given
+        MemberSearchCondition teamB = new MemberSearchCondition();
+        teamB.setTeamName("teamB");
+        PageRequest first = PageRequest.of(0, 5);
+        findPage(teamB, first);
+
+        // when (age 6, 5 인 회원을 모두 지운다)
+        transactionTemplate.executeWithoutResult(status ->
+                em.createQuery("select m from Member m where m.age >= 5", Member.class).getResultList().forEach(em::remove));
+        awaitChangeFeed();
+
+        // then
+        for (MemberSearchCondition condition : new MemberSearchCondition[]{new MemberSearchCondition(), teamB}) {
+            Page<MemberTeamDto> expected = memberRepository.searchPageSimple(condition, first);
+            Page<MemberTeamDto> result = findPage(condition, first);
+
+            assertThat(result.getContent()).isEqualTo(expected.getContent());
+            assertThat(result.getTotalElements()).isEqualTo(expected.getTotalElements());
+        }
+    }
+
+    @DisplayName("이름이 없는 팀이 있어도 읽을 수 있다")
+    @Test
+    void nullTeamName() {
+        // when
+        transactionTemplate.executeWithoutResult(status -> {
+            Team noName = new Team(null);
+            em.persist(noName);
+            em.persist(new Member("oldest", 100, noName));
+        });
+        awaitChangeFeed();
+        memberAgeIndex.reload();
+
+        // then
+        assertThat(memberAgeIndex.findPage(new MemberSearchCondition(), PageRequest.of(0, 1)).orElseThrow().getContent())
+                .extracting("username", "teamName").containsExactly(tuple("oldest", null));
+    }
+
+    @DisplayName("커밋 순서보다 늦게 발행된 이전 version 의 변경은 버린다")
+    @Test
+    void dropsStaleChanges() {
+        // given
+        Long memberId = transactionTemplate.execute(status -> {
+            Member oldest = new Member("oldest", 100, em.getReference(Team.class, teamAId));
+            em.persist(oldest);
+            return oldest.getId();
+        });
+        transactionTemplate.executeWithoutResult(status -> em.find(Member.class, memberId).changeTeam(em.getReference(Team.class, teamBId)));
+        awaitChangeFeed();
+
+        // when (version 0 의 변경이 version 1 뒤에 온다)
+        memberAgeIndex.onChange(new MemberChanged(ChangeType.UPDATE, memberId, "oldest", 100, teamAId, 0));
+        memberAgeIndex.onChange(new TeamChanged(ChangeType.UPDATE, teamBId, "renamed", -1));
+
+        // then
+        assertThat(memberAgeIndex.findPage(new MemberSearchCondition(), PageRequest.of(0, 1)).orElseThrow().getContent())
+                .extracting("memberId", "teamId", "teamName").containsExactly(tuple(memberId, teamBId, "teamB"));
+
+        // when (삭제 뒤에 늦게 온 수정)
+        transactionTemplate.executeWithoutResult(status -> em.remove(em.find(Member.class, memberId)));
+        awaitChangeFeed();
+        memberAgeIndex.onChange(new MemberChanged(ChangeType.UPDATE, memberId, "oldest", 100, teamBId, 1));
+
+        // then
+        assertThat(memberAgeIndex.findPage(new MemberSearchCondition(), PageRequest.of(0, 1)).orElseThrow().getContent())
+                .extracting("memberId").doesNotContain(memberId);
+    }
+
+    @DisplayName("teamName window 를 채우는 동안 요청은 잠금을 기다리지 않고 DB 로 넘어간다")
+    @Test
+    void buildsTeamWindowOffRequestThread() throws Exception {
+        // given (reload 나 변경 반영이 잠금을 쥐고 있다)
+        MemberSearchCondition teamA = new MemberSearchCondition();
+        teamA.setTeamName("teamA");
+        PageRequest first = PageRequest.of(0, 3);
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> {
+            synchronized (memberAgeIndex) {
+                locked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        holder.start();
+        locked.await();
+
+        try {
+            // when
+            Optional<Page<MemberTeamDto>> during = CompletableFuture
+                    .supplyAsync(() -> memberAgeIndex.findPage(teamA, first))
+                    .get(1, TimeUnit.SECONDS);
+
+            // then
+            assertThat(during).isEmpty();
+        } finally {
+            release.countDown();
+            holder.join();
+        }
+        assertThat(findPage(teamA, first).getContent())
+                .isEqualTo(memberRepository.searchPageSimple(teamA, first).getContent());
+    }
+
+    // teamName window 는 처음 요청되면 age-index 스레드에서 채우므로 채워질 때까지 다시 묻는다
+    private Page<MemberTeamDto> findPage(MemberSearchCondition condition, PageRequest pageable) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        Optional<Page<MemberTeamDto>> page;
+        while ((page = memberAgeIndex.findPage(condition, pageable)).isEmpty()) {
+            assertThat(System.nanoTime() - deadline).as("age index 가 %s 를 맡지 않는다", condition.getTeamName()).isNegative();
+            LockSupport.parkNanos(Duration.ofMillis(10).toNanos());
+        }
+        return page.get();
+    }
+
+    // 인덱스는 커밋된 변경을 ChangeFeed 구독자 스레드에서 반영한다
+    private void awaitChangeFeed() {
+        assertThat(changeFeed.awaitDelivered(Duration.ofSeconds(5))).isTrue();
+    }
+}
@@ -0,0 +1,193 @@
+package me.study.querydsl.service;
+
+import me.study.querydsl.change.ChangeEvent;
+import me.study.querydsl.change.ChangeFeed;
+import me.study.querydsl.change.TableInvalidated;
+import me.study.querydsl.dto.MemberSearchCondition;
+import me.study.querydsl.dto.MemberTeamDto;
+import me.study.querydsl.entity.Member;
+import me.study.querydsl.entity.MemberArchive;
+import me.study.querydsl.entity.Team;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static me.study.querydsl.entity.QMember.member;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "member.archive.chunk-size=7",
+        "member.archive.max-rows-per-second=200",
+        "member.archive.hot-row-limit=40"
+})
+class MemberArchiveServiceTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    MemberArchiveService memberArchiveService;
+
+    @Autowired
+    MemberSearchService memberSearchService;
+
+    @Autowired
+    ChangeFeed changeFeed;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+
+            for (int i = 0; i < 50; i++) {
+                em.persist(new Member("member" + i, i, i % 2 == 0 ? teamA : teamB));
+            }
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from MemberArchive").executeUpdate();
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+    }
+
+    @DisplayName("보관 조건에 맞는 회원을 chunk 단위로 옮기고 초당 상한을 지킨다")
+    @Test
+    void archive() {
+        // when
+        MemberArchiveResult result = memberArchiveService.archive(member.age.lt(20));
+
+        // then
+        assertThat(result.getRows()).isEqualTo(20);
+        assertThat(result.getChunks()).isEqualTo(3);
+        assertThat(result.isCompleted()).isTrue();
+        // 14건을 옮긴 뒤 14 / 200 초까지 기다린다
+        assertThat(result.getElapsed().toMillis()).isGreaterThanOrEqualTo(70);
+
+        List<MemberArchive> archived = em.createQuery("select a from MemberArchive a join fetch a.team order by a.id", MemberArchive.class)
+                .getResultList();
+        assertThat(archived).hasSize(20);
+        assertThat(archived).extracting("username").contains("member0", "member19");
+        assertThat(archived).extracting("team.name").contains("teamA", "teamB");
+        assertThat(em.createQuery("select count(m) from Member m where m.age < 20", Long.class).getSingleResult()).isZero();
+    }
+
+    @DisplayName("hot 검색은 옮긴 회원을 보지 않고, includeArchived 검색은 옮기기 전과 같은 결과를 돌려준다")
+    @Test
+    void includeArchived() {
+        // given
+        List<MemberSearchCondition> conditions = conditions();
+        List<PageRequest> pages = List.of(
+                PageRequest.of(0, 10),
+                PageRequest.of(3, 7, Sort.by(Sort.Order.asc("age"))),
+                PageRequest.of(1, 5, Sort.by(Sort.Order.desc("username"))));
+        List<Object> before = new ArrayList<>();
+        for (MemberSearchCondition condition : conditions) {
+            before.add(sorted(memberSearchService.search(condition)));
+            for (PageRequest page : pages) {
+                before.add(pageOf(memberSearchService.searchPageSimple(condition, page)));
+                before.add(pageOf(memberSearchService.searchPageComplex(condition, page)));
+            }
+        }
+
+        // when
+        memberArchiveService.archive(member.age.lt(20).or(member.username.eq("member33")));
+
+        // then
+        MemberSearchCondition hot = new MemberSearchCondition();
+        assertThat(memberSearchService.search(hot)).hasSize(29)
+                .extracting("age").allMatch(age -> (int) age >= 20 && (int) age != 33);
+
+        List<Object> after = new ArrayList<>();
+        for (MemberSearchCondition condition : conditions) {
+            condition.setIncludeArchived(true);
+            after.add(sorted(memberSearchService.search(condition)));
+            for (PageRequest page : pages) {
+                after.add(pageOf(memberSearchService.searchPageSimple(condition, page)));
+                after.add(pageOf(memberSearchService.searchPageComplex(condition, page)));
+            }
+        }
+        assertThat(after).isEqualTo(before);
+    }
+
+    @DisplayName("chunk 가 커밋될 때마다 member 테이블 무효화를 ChangeFeed 로 발행한다")
+    @Test
+    void invalidatesPerChunk() {
+        // given
+        List<ChangeEvent> events = new CopyOnWriteArrayList<>();
+        List<Long> remaining = new CopyOnWriteArrayList<>();
+        try (ChangeFeed.Subscription ignored = changeFeed.subscribe("archive-test", event -> {
+            events.add(event);
+            // 무효화를 받은 시점에 이미 커밋된 chunk 만큼 member 가 줄어 있어야 한다
+            remaining.add(transactionTemplate.execute(status ->
+                    em.createQuery("select count(m) from Member m", Long.class).getSingleResult()));
+        })) {
+            // when
+            MemberArchiveResult result = memberArchiveService.archive(member.age.lt(20));
+            assertThat(changeFeed.awaitDelivered(Duration.ofSeconds(5))).isTrue();
+
+            // then
+            assertThat(events).hasSize(result.getChunks())
+                    .allMatch(event -> event.equals(new TableInvalidated(Member.class, "archive")));
+            assertThat(remaining.get(0)).isLessThan(50);
+        }
+    }
+
+    @DisplayName("archiveOverflow 는 member 가 hotRowLimit 를 넘는 만큼만 옮긴다")
+    @Test
+    void archiveOverflow() {
+        MemberArchiveResult first = memberArchiveService.archiveOverflow(member.age.goe(0));
+        MemberArchiveResult second = memberArchiveService.archiveOverflow(member.age.goe(0));
+
+        assertThat(first.getRows()).isEqualTo(10);
+        assertThat(second.getRows()).isZero();
+        // member_id 가 작은 회원부터 옮긴다
+        assertThat(em.createQuery("select min(m.age) from Member m", Integer.class).getSingleResult()).isEqualTo(10);
+    }
+
+    private List<MemberSearchCondition> conditions() {
+        MemberSearchCondition none = new MemberSearchCondition();
+        MemberSearchCondition teamB = new MemberSearchCondition();
+        teamB.setTeamName("teamB");
+        MemberSearchCondition range = new MemberSearchCondition();
+        range.setAgeGoe(15);
+        range.setAgeLoe(35);
+        MemberSearchCondition username = new MemberSearchCondition();
+        username.setUsername("member3");
+        return List.of(none, teamB, range, username);
+    }
+
+    // 페이지 내용과 전체 건수만 비교한다
+    private List<Object> pageOf(Page<MemberTeamDto> page) {
+        return List.of(page.getContent(), page.getTotalElements());
+    }
+
+    // 정렬 없는 search 는 순서가 정해져 있지 않다
+    private List<MemberTeamDto> sorted(List<MemberTeamDto> rows) {
+        List<MemberTeamDto> result = new ArrayList<>(rows);
+        result.sort((a, b) -> Long.compare(a.getMemberId(), b.getMemberId()));
+        return result;
+    }
+}
@@ -0,0 +1,130 @@
+package me.study.querydsl.service;
+
+import me.study.querydsl.dto.MemberSearchCondition;
+import me.study.querydsl.dto.MemberTeamDto;
+import me.study.querydsl.entity.Member;
+import me.study.querydsl.repository.MemberRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class MemberBulkImportServiceTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberBulkImportService memberBulkImportService;
+
+    @Autowired
+    MemberExportService memberExportService;
+
+    @AfterEach
+    void tearDown() {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+    }
+
+    @DisplayName("CSV 를 여러 chunk 로 나눠 적재하고 팀 이름을 team_id 로 바꾼다")
+    @Test
+    void importCsv(@TempDir Path dir) throws Exception {
+        // given
+        Path source = writeCsv(dir, 100);
+
+        // when
+        MemberImportResult result = memberBulkImportService.importCsv(source, 4, 256);
+
+        // then
+        assertThat(result.getRows()).isEqualTo(100);
+        assertThat(result.getChunks()).isGreaterThan(1);
+        assertThat(Files.exists(dir.resolve("members.csv.checkpoint"))).isFalse();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("Team,B");
+        List<MemberTeamDto> teamB = memberRepository.search(condition);
+        assertThat(teamB).hasSize(33);
+
+        condition.setTeamName(null);
+        condition.setUsername("member\"0\"");
+        assertThat(memberRepository.search(condition)).extracting("teamName").containsExactly("TeamA");
+    }
+
+    @DisplayName("checkpoint 에 기록된 chunk 는 건너뛴다")
+    @Test
+    void resumeFromCheckpoint(@TempDir Path dir) throws Exception {
+        // given
+        Path source = writeCsv(dir, 100);
+        Files.write(dir.resolve("members.csv.checkpoint"), List.of("size=" + Files.size(source) + ",chunk=256", "0"));
+
+        // when
+        MemberImportResult result = memberBulkImportService.importCsv(source, 4, 256);
+
+        // then
+        assertThat(result.getResumedChunks()).isEqualTo(1);
+        assertThat(result.getRows()).isLessThan(100);
+        assertThat(memberRepository.count()).isEqualTo(result.getRows());
+    }
+
+    @DisplayName("export 한 CSV 의 따옴표 안 줄바꿈에 chunk 경계가 걸려도 그 필드를 자르지 않는다")
+    @Test
+    void newlineInQuotedField(@TempDir Path dir) throws Exception {
+        // given
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < 20; i++) {
+                em.persist(new Member(i == 10 ? "multi\nline" : "member" + i, i));
+            }
+        });
+        Path source = dir.resolve("members.csv");
+        memberExportService.exportCsv(source, 1);
+        transactionTemplate.executeWithoutResult(status -> em.createQuery("delete from Member").executeUpdate());
+
+        // 따옴표 안 줄바꿈 바로 다음 byte 가 chunk 경계 후보가 되게 한다
+        String csv = new String(Files.readAllBytes(source), StandardCharsets.UTF_8);
+        long chunkBytes = csv.indexOf("multi\n") + "multi\n".length();
+
+        // when
+        MemberImportResult result = memberBulkImportService.importCsv(source, 2, chunkBytes);
+
+        // then
+        assertThat(result.getRows()).isEqualTo(20);
+        assertThat(result.getChunks()).isGreaterThan(1);
+        List<String> usernames = em.createQuery("select m.username from Member m", String.class).getResultList();
+        assertThat(usernames).hasSize(20).contains("multi\nline", "member9", "member11");
+    }
+
+    private Path writeCsv(Path dir, int rows) throws Exception {
+        List<String> lines = new ArrayList<>();
+        lines.add("member_id,username,age,team_name");
+        lines.add("1,\"member\"\"0\"\"\",0,TeamA");
+        for (int i = 1; i < rows; i++) {
+            String teamName = i % 3 == 0 ? "TeamA" : i % 3 == 1 ? "\"Team,B\"" : "";
+            lines.add(i + 1 + ",member" + i + "," + i + "," + teamName);
+        }
+
+        Path source = dir.resolve("members.csv");
+        Files.write(source, lines);
+        return source;
+    }
+}
@@ -0,0 +1,69 @@
+package me.study.querydsl.service;
+
+import me.study.querydsl.entity.Member;
+import me.study.querydsl.entity.Team;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class MemberExportServiceTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    MemberExportService memberExportService;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("TeamA");
+            em.persist(teamA);
+
+            for (int i = 0; i < 100; i++) {
+                em.persist(new Member("member" + i, i, i % 2 == 0 ? teamA : null));
+            }
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+    }
+
+    @DisplayName("id 구간별로 나눠 쓴 파일을 하나의 CSV 로 합친다")
+    @Test
+    void exportCsv(@TempDir Path dir) throws Exception {
+        // when
+        Path target = dir.resolve("members.csv");
+        MemberExportResult result = memberExportService.exportCsv(target, 3);
+
+        // then
+        List<String> lines = Files.readAllLines(target);
+        assertThat(result.getRows()).isEqualTo(100);
+        assertThat(lines).hasSize(101);
+        assertThat(lines.get(0)).isEqualTo("member_id,username,age,team_name");
+        assertThat(lines).anyMatch(line -> line.endsWith(",member0,0,TeamA"));
+        assertThat(lines).anyMatch(line -> line.endsWith(",member1,1,"));
+        assertThat(Files.list(dir)).containsExactly(target);
+    }
+}
@@ -0,0 +1,118 @@
+package me.study.querydsl.service;
+
+import me.study.querydsl.entity.Member;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "member.ingest.enabled=true",
+        "member.ingest.batch-size=20",
+        "member.ingest.flush-interval=20ms"
+})
+class MemberIngestServiceTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    MemberIngestService memberIngestService;
+
+    @AfterEach
+    void tearDown() {
+        transactionTemplate.executeWithoutResult(status -> em.createQuery("delete from Member").executeUpdate());
+    }
+
+    @DisplayName("write-behind 저장은 group commit 후 future 로 id 를 돌려준다")
+    @Test
+    void submit() {
+        // when
+        List<CompletableFuture<Long>> futures = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            futures.add(memberIngestService.submit(new Member("ingest" + i, i)));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        // then
+        assertThat(futures).allSatisfy(future -> assertThat(future.join()).isNotNull());
+        assertThat(memberIngestService.getPendingCount()).isZero();
+
+        Long count = transactionTemplate.execute(status ->
+                em.createQuery("select count(m) from Member m where m.username like 'ingest%'", Long.class)
+                        .getSingleResult());
+        assertThat(count).isEqualTo(50);
+    }
+
+    @DisplayName("종료 중에 받은 write 는 커밋되거나 거절되며 완료되지 않는 future 가 없다")
+    @Test
+    void submitDuringShutdown() throws Exception {
+        // given
+        MemberIngestProperties properties = new MemberIngestProperties();
+        properties.setQueueCapacity(200);
+        properties.setBatchSize(20);
+        properties.setOfferTimeout(Duration.ofSeconds(5));
+        MemberIngestService service = new MemberIngestService(transactionTemplate, properties);
+        ReflectionTestUtils.setField(service, "em", em);
+        service.start();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<List<CompletableFuture<Long>>>> submitters = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int thread = t;
+            submitters.add(executor.submit(() -> {
+                List<CompletableFuture<Long>> futures = new ArrayList<>();
+                for (int i = 0; ; i++) {
+                    try {
+                        futures.add(service.submit(new Member("shutdown" + thread + "_" + i, i)));
+                    } catch (RejectedExecutionException e) {
+                        return futures;
+                    }
+                }
+            }));
+        }
+        Thread.sleep(50);
+
+        // when
+        service.shutdown();
+
+        // then
+        int committed = 0;
+        for (Future<List<CompletableFuture<Long>>> submitter : submitters) {
+            for (CompletableFuture<Long> future : submitter.get(5, TimeUnit.SECONDS)) {
+                try {
+                    assertThat(future.get(5, TimeUnit.SECONDS)).isNotNull();
+                    committed++;
+                } catch (ExecutionException e) {
+                    assertThat(e).hasCauseInstanceOf(RejectedExecutionException.class);
+                }
+            }
+        }
+        assertThat(service.getPendingCount()).isZero();
+
+        Long count = transactionTemplate.execute(status ->
+                em.createQuery("select count(m) from Member m where m.username like 'shutdown%'", Long.class)
+                        .getSingleResult());
+        assertThat(count).isEqualTo(committed);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,246 @@
+package me.study.querydsl.service;
+
+import me.study.querydsl.change.ChangeEvent;
+import me.study.querydsl.change.ChangeFeed;
+import me.study.querydsl.change.ChangeType;
+import me.study.querydsl.change.MemberChanged;
+import me.study.querydsl.change.TeamChanged;
+import me.study.querydsl.entity.Member;
+import me.study.querydsl.entity.Team;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest
+class MemberUpsertServiceTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    MemberUpsertService memberUpsertService;
+
+    @Autowired
+    ChangeFeed changeFeed;
+
+    @AfterEach
+    void tearDown() {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from MemberUsernameLock").executeUpdate();
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+    }
+
+    @DisplayName("같은 피드를 다시 넣으면 모두 건너뛰고 member_id 도 그대로다")
+    @Test
+    void idempotent() throws Exception {
+        // given
+        List<MemberSnapshot> feed = feed(25);
+
+        // when
+        MemberUpsertResult first = memberUpsertService.upsert(feed, 10);
+        List<Member> inserted = members();
+        MemberUpsertResult second = memberUpsertService.upsert(feed, 10);
+
+        // then
+        assertThat(first.getInserted()).isEqualTo(25);
+        assertThat(first.getChunks()).isEqualTo(3);
+        assertThat(second.getInserted()).isZero();
+        assertThat(second.getUpdated()).isZero();
+        assertThat(second.getUnchanged()).isEqualTo(25);
+        assertThat(members()).extracting("id", "username", "age")
+                .containsExactlyElementsOf(inserted.stream()
+                        .map(member -> tuple(member.getId(), member.getUsername(), member.getAge()))
+                        .collect(Collectors.toList()));
+    }
+
+    @DisplayName("바뀐 회원만 고치고 새 회원은 넣으며, 같은 username 이 다시 나오면 마지막 값이 남는다")
+    @Test
+    void upsert() throws Exception {
+        // given
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            em.persist(teamA);
+            em.persist(new Member("member0", 0, teamA));
+            em.persist(new Member("member1", 1, teamA));
+            em.persist(new Member("member2", 2, teamA));
+            // 같은 username 의 회원은 모두 맞춘다
+            em.persist(new Member("member2", 20, null));
+        });
+
+        List<MemberSnapshot> feed = List.of(
+                new MemberSnapshot("member0", 0, "teamA"),
+                new MemberSnapshot("member1", 11, "teamA"),
+                new MemberSnapshot("member2", 2, "teamA"),
+                new MemberSnapshot("member3", 3, "teamB"),
+                new MemberSnapshot("member3", 33, null),
+                new MemberSnapshot("member1", 1, "teamB"));
+
+        // when
+        MemberUpsertResult result = memberUpsertService.upsert(feed, 4);
+
+        // then
+        assertThat(result.getInserted()).isEqualTo(1);
+        assertThat(result.getUpdated()).isEqualTo(4);
+        assertThat(result.getUnchanged()).isEqualTo(1);
+        assertThat(result.getRows()).isEqualTo(6);
+
+        List<Member> members = members();
+        assertThat(members).extracting("username", "age")
+                .containsExactly(
+                        tuple("member0", 0),
+                        tuple("member1", 1),
+                        tuple("member2", 2),
+                        tuple("member2", 2),
+                        tuple("member3", 33));
+        assertThat(teamName("member1")).isEqualTo("teamB");
+        assertThat(teamName("member3")).isNull();
+    }
+
+    @DisplayName("같은 새 username 을 동시에 upsert 해도 한 번만 넣는다")
+    @Test
+    void concurrentUpsert() throws Exception {
+        // given (chunk 순서를 서로 뒤집어 잠금 순서도 확인한다)
+        List<MemberSnapshot> feed = feed(30);
+        List<MemberSnapshot> reversed = new ArrayList<>(feed);
+        Collections.reverse(reversed);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        // when
+        List<Future<MemberUpsertResult>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < 4; i++) {
+                List<MemberSnapshot> each = i % 2 == 0 ? feed : reversed;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return memberUpsertService.upsert(each, 7);
+                }));
+            }
+            start.countDown();
+            long inserted = 0;
+            for (Future<MemberUpsertResult> result : results) {
+                inserted += result.get().getInserted();
+            }
+
+            // then
+            assertThat(inserted).isEqualTo(30);
+            assertThat(members()).extracting("username").doesNotHaveDuplicates().hasSize(30);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @DisplayName("커밋한 회원과 새 팀을 한 건씩 ChangeFeed 로 발행한다")
+    @Test
+    void publishesChanges() throws Exception {
+        // given
+        memberUpsertService.upsert(List.of(new MemberSnapshot("member0", 0, null)));
+        List<ChangeEvent> events = new CopyOnWriteArrayList<>();
+        try (ChangeFeed.Subscription ignored = changeFeed.subscribe("upsert-test", events::add)) {
+            // when
+            memberUpsertService.upsert(List.of(
+                    new MemberSnapshot("member0", 10, "teamA"),
+                    new MemberSnapshot("member1", 1, null)));
+            assertThat(changeFeed.awaitDelivered(Duration.ofSeconds(5))).isTrue();
+
+            // then
+            Member member0 = members().get(0);
+            Member member1 = members().get(1);
+            assertThat(events).containsExactly(
+                    new TeamChanged(ChangeType.INSERT, member0.getTeam().getId(), "teamA", 0),
+                    new MemberChanged(ChangeType.UPDATE, member0.getId(), "member0", 10, member0.getTeam().getId(), 1),
+                    new MemberChanged(ChangeType.INSERT, member1.getId(), "member1", 1, null, 0));
+        }
+    }
+
+    @DisplayName("조회 뒤에 JPA 가 커밋한 수정은 덮어쓰지 않고 다시 읽어 그 위에 version 을 올린다")
+    @Test
+    void concurrentJpaUpdate() throws Exception {
+        // given
+        transactionTemplate.executeWithoutResult(status -> em.persist(new Member("member0", 0)));
+        Long id = members().get(0).getId();
+        CountDownLatch updated = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            // JPA 가 행을 고쳐 잠근 채로 커밋을 미룬다. upsert 는 커밋 전 version 0 을 읽고 update 에서 기다린다
+            Future<?> jpa = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+                Team teamA = new Team("teamA");
+                em.persist(teamA);
+                em.find(Member.class, id).changeTeam(teamA);
+                em.flush();
+                updated.countDown();
+                await(commit);
+            }));
+            updated.await();
+
+            // when
+            Future<MemberUpsertResult> upsert = executor.submit(() ->
+                    memberUpsertService.upsert(List.of(new MemberSnapshot("member0", 10, null))));
+            Thread.sleep(300);
+            commit.countDown();
+            jpa.get();
+            MemberUpsertResult result = upsert.get();
+
+            // then
+            Member member = members().get(0);
+            assertThat(result.getUpdated()).isEqualTo(1);
+            assertThat(member.getAge()).isEqualTo(10);
+            assertThat(member.getTeam()).isNull();
+            assertThat(member.getVersion()).isEqualTo(2);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private List<MemberSnapshot> feed(int size) {
+        List<MemberSnapshot> feed = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            feed.add(new MemberSnapshot("member" + i, i, i % 3 == 0 ? null : "team" + (i % 3)));
+        }
+        return feed;
+    }
+
+    private List<Member> members() {
+        return em.createQuery("select m from Member m order by m.username, m.id", Member.class).getResultList();
+    }
+
+    private String teamName(String username) {
+        List<String> names = em.createQuery("select t.name from Member m left join m.team t where m.username = :username", String.class)
+                .setParameter("username", username)
+                .getResultList();
+        return names.get(0);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package me.study.querydsl.service;
+
+import me.study.querydsl.deadline.Deadline;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    @DisplayName("실행 중인 같은 key 의 호출은 한 번의 실행 결과를 함께 받는다")
+    @Test
+    void coalesceConcurrentCalls() throws Exception {
+        // given
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+        AtomicInteger executions = new AtomicInteger();
+        AtomicInteger followers = new AtomicInteger();
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        // when
+        List<CompletableFuture<Integer>> results = new ArrayList<>();
+        results.add(CompletableFuture.supplyAsync(() -> singleFlight.execute("key", () -> {
+            leaderStarted.countDown();
+            await(release);
+            return executions.incrementAndGet();
+        }, joined -> { }), executor));
+        leaderStarted.await(5, TimeUnit.SECONDS);
+
+        for (int i = 0; i < 7; i++) {
+            results.add(CompletableFuture.supplyAsync(() -> singleFlight.execute("key", executions::incrementAndGet,
+                    joined -> {
+                        if (joined) {
+                            followers.incrementAndGet();
+                        }
+                    }), executor));
+        }
+        while (followers.get() < 7) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+
+        // then
+        for (CompletableFuture<Integer> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+        }
+        assertThat(executions.get()).isEqualTo(1);
+        assertThat(singleFlight.inFlightCount()).isZero();
+        executor.shutdownNow();
+    }
+
+    @DisplayName("완료된 뒤의 호출은 결과를 재사용하지 않고 다시 실행한다")
+    @Test
+    void noResultAfterCompletion() {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+        AtomicInteger executions = new AtomicInteger();
+
+        singleFlight.execute("key", executions::incrementAndGet, joined -> { });
+        int second = singleFlight.execute("key", executions::incrementAndGet, joined -> { });
+
+        assertThat(second).isEqualTo(2);
+    }
+
+    @DisplayName("실행이 실패하면 예외를 그대로 던지고 key 를 정리한다")
+    @Test
+    void propagateFailure() {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+
+        assertThatThrownBy(() -> singleFlight.execute("key", () -> {
+            throw new IllegalStateException("boom");
+        }, joined -> { })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(singleFlight.inFlightCount()).isZero();
+        assertThat(singleFlight.execute("key", () -> 1, joined -> { })).isEqualTo(1);
+    }
+
+    @DisplayName("follower 는 자기 마감까지만 기다리고 leader 는 계속 실행한다")
+    @Test
+    void followerDeadline() throws Exception {
+        // given
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CompletableFuture<Integer> leader = CompletableFuture.supplyAsync(() -> singleFlight.execute("key", () -> {
+            leaderStarted.countDown();
+            await(release);
+            return 1;
+        }, joined -> { }), executor);
+        leaderStarted.await(5, TimeUnit.SECONDS);
+
+        // when
+        long start = System.nanoTime();
+        CompletableFuture<Integer> follower = CompletableFuture.supplyAsync(() -> Deadline.within(Duration.ofMillis(200),
+                () -> singleFlight.execute("key", () -> 2, joined -> { })), executor);
+
+        // then
+        assertThatThrownBy(() -> follower.get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(QueryTimeoutException.class);
+        assertThat((System.nanoTime() - start) / 1_000_000).isLessThan(2_000);
+        assertThat(leader.isDone()).isFalse();
+
+        release.countDown();
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+        executor.shutdownNow();
+    }
+
+    @DisplayName("leader 가 자기 마감으로 timeout 되면 마감이 남은 follower 는 결과를 나눠 받지 않고 다시 실행한다")
+    @Test
+    void leaderDeadlineNotShared() throws Exception {
+        // given
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicReference<Thread> followerThread = new AtomicReference<>();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        // X-Request-Timeout 이 짧은 요청이 leader 가 된다
+        CompletableFuture<Integer> leader = CompletableFuture.supplyAsync(() -> Deadline.within(Duration.ofMillis(1),
+                () -> singleFlight.execute("key", () -> {
+                    leaderStarted.countDown();
+                    await(release);
+                    throw new QueryTimeoutException("leader deadline");
+                }, joined -> { })), executor);
+        leaderStarted.await(5, TimeUnit.SECONDS);
+
+        // when
+        CompletableFuture<Integer> follower = CompletableFuture.supplyAsync(() -> {
+            followerThread.set(Thread.currentThread());
+            return Deadline.within(Duration.ofSeconds(5), () -> singleFlight.execute("key", () -> 2, joined -> { }));
+        }, executor);
+        // follower 가 leader 의 결과를 기다리기 시작한 뒤에 leader 를 실패시킨다
+        while (followerThread.get() == null || followerThread.get().getState() != Thread.State.TIMED_WAITING) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+
+        // then
+        assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(QueryTimeoutException.class);
+        assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo(2);
+        assertThat(singleFlight.inFlightCount()).isZero();
+        executor.shutdownNow();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}